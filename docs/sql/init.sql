@@ -99,6 +99,29 @@ CREATE TABLE `t_sys_config` (
     PRIMARY KEY (`config_key`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='系统配置表';
 
+-- ID号段表
+DROP TABLE IF EXISTS `t_sys_id_segment`;
+CREATE TABLE `t_sys_id_segment` (
+    `biz_tag` VARCHAR(32) NOT NULL COMMENT '业务标识（ID前缀）',
+    `max_id` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '已分配的最大值',
+    `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
+    PRIMARY KEY (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='ID号段表';
+
+-- 定时任务租约表
+DROP TABLE IF EXISTS `t_sys_task_lease`;
+CREATE TABLE `t_sys_task_lease` (
+    `lease_key` VARCHAR(128) NOT NULL COMMENT '租约标识',
+    `task_name` VARCHAR(32) NOT NULL COMMENT '任务名称',
+    `lease_type` VARCHAR(8) NOT NULL COMMENT '租约类型： NODE-节点心跳, SHARD-任务分片, LEADER-任务执行节点',
+    `shard_no` INT DEFAULT NULL COMMENT '分片序号',
+    `node_id` VARCHAR(64) NOT NULL COMMENT '持有租约的节点标识',
+    `expire_time` DATETIME(3) NOT NULL COMMENT '租约到期时间',
+    `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
+    PRIMARY KEY (`lease_key`),
+    INDEX(`task_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务租约表';
+
 -- 系统操作日志表
 DROP TABLE IF EXISTS `t_sys_log`;
 CREATE TABLE `t_sys_log` (
@@ -134,7 +157,8 @@ CREATE TABLE `t_mch_info` (
         `created_by` VARCHAR(64) COMMENT '创建者姓名',
         `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
         `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
-        PRIMARY KEY (`mch_no`)
+        PRIMARY KEY (`mch_no`),
+        INDEX(`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商户信息表';
 
 -- 商户应用表
@@ -146,11 +170,13 @@ CREATE TABLE `t_mch_app` (
          `state` TINYINT(6) NOT NULL DEFAULT 1 COMMENT '应用状态: 0-停用, 1-正常',
          `app_secret` VARCHAR(128) NOT NULL COMMENT '应用私钥',
          `remark` varchar(128) DEFAULT NULL COMMENT '备注',
+         `notify_policy` VARCHAR(256) DEFAULT NULL COMMENT '商户通知重试策略（JSON）, 为空表示使用系统默认策略',
          `created_uid` BIGINT(20) COMMENT '创建者用户ID',
          `created_by` VARCHAR(64) COMMENT '创建者姓名',
          `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
          `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
-         PRIMARY KEY (`app_id`)
+         PRIMARY KEY (`app_id`),
+         INDEX(`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商户应用表';
 
 -- 服务商信息表
@@ -168,7 +194,8 @@ CREATE TABLE `t_isv_info` (
         `created_by` VARCHAR(64) COMMENT '创建者姓名',
         `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
         `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
-        PRIMARY KEY (`isv_no`)
+        PRIMARY KEY (`isv_no`),
+        INDEX(`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='服务商信息表';
 
 -- 支付方式表  pay_way
@@ -220,7 +247,8 @@ CREATE TABLE `t_pay_interface_config` (
           `updated_by` VARCHAR(64) COMMENT '更新者姓名',
           `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
           PRIMARY KEY (`id`),
-          UNIQUE KEY `Uni_InfoType_InfoId_IfCode` (`info_type`, `info_id`, `if_code`)
+          UNIQUE KEY `Uni_InfoType_InfoId_IfCode` (`info_type`, `info_id`, `if_code`),
+          INDEX(`updated_at`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付接口配置参数表';
 
 
@@ -287,7 +315,9 @@ CREATE TABLE `t_pay_order` (
         `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
         PRIMARY KEY (`pay_order_id`),
         UNIQUE KEY `Uni_MchNo_MchOrderNo` (`mch_no`, `mch_order_no`),
-        INDEX(`created_at`)
+        INDEX(`created_at`),
+        INDEX(`state`, `created_at`),
+        INDEX(`state`, `expired_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付订单表';
 
 
@@ -302,6 +332,7 @@ CREATE TABLE `t_mch_notify_record` (
         `isv_no` VARCHAR(64) COMMENT '服务商号',
         `app_id` VARCHAR(64) NOT NULL COMMENT '应用ID',
         `notify_url` TEXT NOT NULL COMMENT '通知地址',
+        `notify_body` TEXT DEFAULT NULL COMMENT '通知请求体（已编码的表单参数）, 为空表示通知参数拼接在通知地址中',
         `res_result` TEXT DEFAULT NULL COMMENT '通知响应结果',
         `notify_count` INT(11) NOT NULL DEFAULT '0' COMMENT '通知次数',
         `notify_count_limit` INT(11) NOT NULL DEFAULT '6' COMMENT '最大通知次数, 默认6次',
@@ -310,10 +341,20 @@ CREATE TABLE `t_mch_notify_record` (
         `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
         `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
         PRIMARY KEY (`notify_id`),
-        UNIQUE KEY `Uni_OrderId_Type` (`order_id`, `order_type`)
+        UNIQUE KEY `Uni_OrderId_Type` (`order_id`, `order_type`),
+        INDEX(`state`, `last_notify_time`)
 ) ENGINE=InnoDB AUTO_INCREMENT=1001 DEFAULT CHARSET=utf8mb4 COMMENT='商户通知记录表';
 
 
+-- 商户通知地址熔断状态表
+DROP TABLE IF EXISTS `t_mch_notify_host_state`;
+CREATE TABLE `t_mch_notify_host_state` (
+        `node_id` VARCHAR(64) NOT NULL COMMENT '支付网关节点标识',
+        `state_data` TEXT DEFAULT NULL COMMENT '各通知地址的状态（JSON数组）',
+        `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '上报时间',
+        PRIMARY KEY (`node_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商户通知地址熔断状态表';
+
 -- 订单接口数据快照（加密存储）
 DROP TABLE IF EXISTS `t_order_snapshot`;
 CREATE TABLE `t_order_snapshot` (
@@ -364,7 +405,8 @@ CREATE TABLE `t_refund_order` (
           `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
           `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
           PRIMARY KEY (`refund_order_id`),
-          UNIQUE KEY `Uni_MchNo_MchRefundNo` (`mch_no`, `mch_refund_no`)
+          UNIQUE KEY `Uni_MchNo_MchRefundNo` (`mch_no`, `mch_refund_no`),
+          INDEX(`state`, `expired_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='退款订单表';
 
 
@@ -303,3 +303,54 @@ alter table t_transfer_order add column `channel_res_data` TEXT DEFAULT NULL COM
 
 
 ## -- ++++ [v3.1.0] ===> NEXT
+
+-- 增加ID号段表 （ 订单号生成器使用号段模式时需要 ）
+CREATE TABLE `t_sys_id_segment` (
+    `biz_tag` VARCHAR(32) NOT NULL COMMENT '业务标识（ID前缀）',
+    `max_id` BIGINT(20) NOT NULL DEFAULT 0 COMMENT '已分配的最大值',
+    `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
+    PRIMARY KEY (`biz_tag`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='ID号段表';
+
+-- 商户通知记录表增加索引 （ 延迟重试兜底扫描使用 ）
+alter table t_mch_notify_record add index(`state`, `last_notify_time`);
+
+-- 商户应用表增加商户通知重试策略
+alter table t_mch_app add column `notify_policy` VARCHAR(256) DEFAULT NULL COMMENT '商户通知重试策略（JSON）, 为空表示使用系统默认策略' after `remark`;
+
+-- 增加商户通知地址熔断状态表 （ 支付网关各节点定时上报， 运营平台查看 ）
+CREATE TABLE `t_mch_notify_host_state` (
+        `node_id` VARCHAR(64) NOT NULL COMMENT '支付网关节点标识',
+        `state_data` TEXT DEFAULT NULL COMMENT '各通知地址的状态（JSON数组）',
+        `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '上报时间',
+        PRIMARY KEY (`node_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商户通知地址熔断状态表';
+
+-- 商户通知记录表增加通知请求体 （ 通知参数不再拼接在通知地址中 ）
+alter table t_mch_notify_record add column `notify_body` TEXT DEFAULT NULL COMMENT '通知请求体（已编码的表单参数）, 为空表示通知参数拼接在通知地址中' after `notify_url`;
+
+-- 增加定时任务租约表 （ 支付网关多节点部署时分配定时任务的执行节点 / 分片 ）
+CREATE TABLE `t_sys_task_lease` (
+    `lease_key` VARCHAR(128) NOT NULL COMMENT '租约标识',
+    `task_name` VARCHAR(32) NOT NULL COMMENT '任务名称',
+    `lease_type` VARCHAR(8) NOT NULL COMMENT '租约类型： NODE-节点心跳, SHARD-任务分片, LEADER-任务执行节点',
+    `shard_no` INT DEFAULT NULL COMMENT '分片序号',
+    `node_id` VARCHAR(64) NOT NULL COMMENT '持有租约的节点标识',
+    `expire_time` DATETIME(3) NOT NULL COMMENT '租约到期时间',
+    `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
+    PRIMARY KEY (`lease_key`),
+    INDEX(`task_name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='定时任务租约表';
+
+-- 支付订单表增加索引 （ 补单任务按照 订单状态 + 创建时间 游标分页 ）
+alter table t_pay_order add index(`state`, `created_at`);
+
+-- 支付订单表 & 退款订单表增加索引 （ 订单过期任务按照 订单状态 + 过期时间 分批关闭 ）
+alter table t_pay_order add index(`state`, `expired_time`);
+alter table t_refund_order add index(`state`, `expired_time`);
+
+-- 服务商/商户/商户应用/支付接口配置参数表增加索引 （ 配置信息定时对账按照 updated_at 查询变更记录 ）
+alter table t_isv_info add index(`updated_at`);
+alter table t_mch_info add index(`updated_at`);
+alter table t_mch_app add index(`updated_at`);
+alter table t_pay_interface_config add index(`updated_at`);
@@ -18,19 +18,28 @@ package com.jeequan.jeepay.components.mq.model;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.jeequan.jeepay.components.mq.constant.MQSendTypeEnum;
+import com.jeequan.jeepay.core.cache.RedisUtil;
+import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
 
 /**
 *
 * 定义MQ消息格式
 * 业务场景： [ 更新服务商/商户/商户应用配置信息 ]
 *
+* 消息携带递增的版本号（ 发送方所连接的redis库自增 ）及版本号来源， 接收方按来源分别比较版本号， 据此丢弃重复/过期的消息并识别遗漏的消息；
+* （ 运营平台、商户系统、支付网关 默认使用不同的redis库， 各自的版本号互不相关 ）
+* 指定ifCode时仅更新该支付接口的参数。
+*
 * @author terrfly
 * @site https://www.jeequan.com
 * @date 2021/7/22 15:25
 */
+@Slf4j
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,8 +56,12 @@ public class ResetIsvMchAppInfoConfigMQ extends AbstractMQ {
     public static final byte RESET_TYPE_MCH_INFO = 2;
     public static final byte RESET_TYPE_MCH_APP = 3;
 
+    /** 配置变更版本号 redis key **/
+    public static final String VERSION_REDIS_KEY = "CONFIG_CHANGE_VERSION";
+
     /**  【！重要配置项！】 定义Msg消息载体 **/
     @Data
+    @NoArgsConstructor
     @AllArgsConstructor
     public static class MsgPayload {
 
@@ -64,6 +77,15 @@ public class ResetIsvMchAppInfoConfigMQ extends AbstractMQ {
         /** appId **/
         private String appId;
 
+        /** 支付接口代码， 为空表示更新全部配置 **/
+        private String ifCode;
+
+        /** 变更版本号（同一来源内递增）， 为空表示未获取到版本号 **/
+        private Long version;
+
+        /** 版本号来源（ 生成版本号的redis库： host:port/database ）， 不同来源的版本号不可比较 **/
+        private String versionSource;
+
     }
 
 
@@ -85,7 +107,38 @@ public class ResetIsvMchAppInfoConfigMQ extends AbstractMQ {
 
     /**  【！重要配置项！】 构造MQModel , 一般用于发送MQ时 **/
     public static ResetIsvMchAppInfoConfigMQ build(Byte resetType, String isvNo, String mchNo, String appId){
-        return new ResetIsvMchAppInfoConfigMQ(new MsgPayload(resetType, isvNo, mchNo, appId));
+        return build(resetType, isvNo, mchNo, appId, null);
+    }
+
+    /**  构造MQModel， 仅更新指定支付接口(ifCode)的参数 **/
+    public static ResetIsvMchAppInfoConfigMQ build(Byte resetType, String isvNo, String mchNo, String appId, String ifCode){
+        Long version = nextVersion();
+        return new ResetIsvMchAppInfoConfigMQ(new MsgPayload(resetType, isvNo, mchNo, appId, ifCode, version, version == null ? null : getVersionSource()));
+    }
+
+    /** 版本号来源 **/
+    private static volatile String versionSource = null;
+
+    /** 获取版本号来源： 即自增版本号所在的redis库 **/
+    private static String getVersionSource(){
+
+        if(versionSource == null){
+            Environment env = SpringBeansUtil.getApplicationContext().getEnvironment();
+            versionSource = env.getProperty("spring.data.redis.host", "localhost") + ":"
+                    + env.getProperty("spring.data.redis.port", "6379") + "/"
+                    + env.getProperty("spring.data.redis.database", "0");
+        }
+        return versionSource;
+    }
+
+    /** 获取下一个版本号， redis不可用时返回null（ 接收方按无版本消息处理 ） **/
+    private static Long nextVersion(){
+        try {
+            return RedisUtil.increment(VERSION_REDIS_KEY);
+        } catch (Exception e) {
+            log.error("获取配置变更版本号异常", e);
+            return null;
+        }
     }
 
     /** 解析MQ消息， 一般用于接收MQ消息时 **/
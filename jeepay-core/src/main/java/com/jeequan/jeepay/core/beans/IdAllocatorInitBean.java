@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.beans;
+
+import com.jeequan.jeepay.core.service.IIdSegmentService;
+import com.jeequan.jeepay.core.service.IWorkerIdLeaseService;
+import com.jeequan.jeepay.core.utils.SeqKit;
+import com.jeequan.jeepay.core.utils.seq.SegmentIdAllocator;
+import com.jeequan.jeepay.core.utils.seq.SnowflakeIdAllocator;
+import com.jeequan.jeepay.core.utils.seq.TimeSeqIdAllocator;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 根据yml配置 初始化 SeqKit 的ID生成器
+*
+* isys.seq.allocator:  mp: MybatisPlus分布式ID（默认）  snowflake: 雪花算法  segment: 数据库号段  time: 时间+序列号（仅单节点）
+*
+* 雪花算法的workerId通过数据库租约（ t_sys_task_lease ）保证唯一：
+*   lease:  从随机位置开始依次尝试， 使用第一个可获取租约的workerId；  续期失败（ 被其他节点占用 ）时重新分配并切换；
+*   config / ip:  使用配置值 / 本机IP低10位， 同样注册租约， 与其他节点冲突时输出错误日志。
+*/
+@Slf4j
+@Component
+public class IdAllocatorInitBean implements SmartInitializingSingleton, DisposableBean {
+
+    public static final String ALLOCATOR_MP = "mp";
+    public static final String ALLOCATOR_SNOWFLAKE = "snowflake";
+    public static final String ALLOCATOR_SEGMENT = "segment";
+    public static final String ALLOCATOR_TIME = "time";
+
+    public static final String WORKER_ID_TYPE_CONFIG = "config";
+    public static final String WORKER_ID_TYPE_IP = "ip";
+    public static final String WORKER_ID_TYPE_LEASE = "lease";
+
+    @Value("${isys.seq.allocator:mp}")
+    private String allocator;
+
+    /** 雪花算法workerId的分配方式 **/
+    @Value("${isys.seq.worker-id-type:config}")
+    private String workerIdType;
+
+    @Value("${isys.seq.worker-id:0}")
+    private long workerId;
+
+    /** workerId租约时长（秒）， 每 1/3 租约时长续期一次 **/
+    @Value("${isys.seq.worker-lease-seconds:60}")
+    private int workerLeaseSeconds;
+
+    /** 号段模式每次分配的数量 **/
+    @Value("${isys.seq.segment-step:1000}")
+    private int segmentStep;
+
+    @Autowired(required = false)
+    private IIdSegmentService idSegmentService;
+
+    @Autowired(required = false)
+    private IWorkerIdLeaseService workerIdLeaseService;
+
+    /** 节点标识 （ 每次启动不同， 租约按照workerId记录， 不会累积 ） **/
+    private final String nodeId = StringUtils.left(ManagementFactory.getRuntimeMXBean().getName(), 64);
+
+    /** 当前使用的workerId ( 雪花算法 ) **/
+    private volatile long currentWorkerId = -1;
+
+    private ScheduledExecutorService leaseRenewer;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        if(ALLOCATOR_SNOWFLAKE.equals(allocator)){
+            currentWorkerId = getSnowflakeWorkerId();
+            SeqKit.setIdAllocator(new SnowflakeIdAllocator(currentWorkerId));
+            log.info("ID生成器： 雪花算法, workerId={}, workerIdType={}", currentWorkerId, workerIdType);
+            startLeaseRenewer();
+
+        }else if(ALLOCATOR_SEGMENT.equals(allocator)){
+            if(idSegmentService == null){
+                throw new IllegalStateException("号段模式需要依赖 IIdSegmentService 的实现");
+            }
+            SeqKit.setIdAllocator(new SegmentIdAllocator(idSegmentService, segmentStep));
+            log.info("ID生成器： 数据库号段, step={}", segmentStep);
+
+        }else if(ALLOCATOR_TIME.equals(allocator)){
+            SeqKit.setIdAllocator(new TimeSeqIdAllocator());
+            log.info("ID生成器： 时间+序列号");
+        }
+    }
+
+    @Override
+    public void destroy() {
+
+        if(leaseRenewer == null){
+            return;
+        }
+        leaseRenewer.shutdownNow();
+        try {
+            workerIdLeaseService.releaseWorkerId(currentWorkerId, nodeId);
+        } catch (Exception e) {
+            log.warn("释放workerId[{}]租约异常", currentWorkerId, e);
+        }
+    }
+
+    private long getSnowflakeWorkerId() {
+
+        // 本机IPv4地址的低10位
+        if(WORKER_ID_TYPE_IP.equals(workerIdType)){
+            try {
+                byte[] address = InetAddress.getLocalHost().getAddress();
+                return checkCollision((((address[address.length - 2] & 0xff) << 8) | (address[address.length - 1] & 0xff)) & SnowflakeIdAllocator.MAX_WORKER_ID);
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException("获取本机IP地址失败", e);
+            }
+        }
+
+        // 数据库租约分配
+        if(WORKER_ID_TYPE_LEASE.equals(workerIdType)){
+            if(workerIdLeaseService == null){
+                throw new IllegalStateException("workerId租约分配需要依赖 IWorkerIdLeaseService 的实现");
+            }
+            Long leaseWorkerId = leaseWorkerId(-1);
+            if(leaseWorkerId == null){
+                throw new IllegalStateException("全部workerId均已被其他节点占用");
+            }
+            return leaseWorkerId;
+        }
+
+        return checkCollision(workerId);
+    }
+
+    /** 配置 / IP 方式： 注册租约， 已被其他节点占用时输出错误日志 **/
+    private long checkCollision(long id){
+
+        if(workerIdLeaseService != null && !workerIdLeaseService.acquireWorkerId(id, nodeId, workerLeaseSeconds)){
+            log.error("雪花算法workerId[{}]已被其他节点使用， 可能生成重复的ID， 请检查 isys.seq.worker-id 配置或改为 lease 方式", id);
+        }
+        return id;
+    }
+
+    /** 从随机位置开始依次尝试获取workerId租约（ 跳过 excludeId ）， 全部被占用时返回null **/
+    private Long leaseWorkerId(long excludeId){
+
+        int size = (int) SnowflakeIdAllocator.MAX_WORKER_ID + 1;
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            long id = (start + i) % size;
+            if(id != excludeId && workerIdLeaseService.acquireWorkerId(id, nodeId, workerLeaseSeconds)){
+                return id;
+            }
+        }
+        return null;
+    }
+
+    /** 定时续期workerId租约 **/
+    private void startLeaseRenewer(){
+
+        if(workerIdLeaseService == null){
+            return;
+        }
+
+        leaseRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "seq-worker-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(workerLeaseSeconds / 3, 1);
+        leaseRenewer.scheduleWithFixedDelay(this::renewLease, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /** 续期失败说明租约已过期且被其他节点占用（ 如： 长时间GC / 数据库不可用 ）， lease方式重新分配workerId **/
+    private void renewLease(){
+
+        try {
+            if(workerIdLeaseService.acquireWorkerId(currentWorkerId, nodeId, workerLeaseSeconds)){
+                return;
+            }
+
+            if(!WORKER_ID_TYPE_LEASE.equals(workerIdType)){
+                log.error("雪花算法workerId[{}]已被其他节点使用， 可能生成重复的ID", currentWorkerId);
+                return;
+            }
+
+            Long newWorkerId = leaseWorkerId(currentWorkerId);
+            if(newWorkerId == null){
+                log.error("雪花算法workerId[{}]已被其他节点使用， 且无可用的workerId", currentWorkerId);
+                return;
+            }
+            log.warn("雪花算法workerId[{}]已被其他节点使用， 切换为workerId[{}]", currentWorkerId, newWorkerId);
+            SeqKit.setIdAllocator(new SnowflakeIdAllocator(newWorkerId));
+            currentWorkerId = newWorkerId;
+
+        } catch (Exception e) {
+            log.error("雪花算法workerId[{}]租约续期异常", currentWorkerId, e);
+        }
+    }
+
+}
@@ -94,6 +94,16 @@ public class RedisUtil {
         setString(key, JSON.toJSONString(value), time, timeUnit);
     }
 
+    /** 当key不存在时放入缓存并设置时间（原子操作 SET NX）， 返回是否放入成功 */
+    public static boolean setIfAbsent(String key, String value, long time, TimeUnit timeUnit) {
+        return Boolean.TRUE.equals(getStringRedisTemplate().opsForValue().setIfAbsent(key, value, time, timeUnit));
+    }
+
+    /** 自增（原子操作 INCR）， 返回自增后的值 */
+    public static long increment(String key) {
+        return getStringRedisTemplate().opsForValue().increment(key);
+    }
+
     /** 指定缓存失效时间 */
     public static void expire(String key, long time) {
        getStringRedisTemplate().expire(key, time, TimeUnit.SECONDS);
@@ -72,6 +72,12 @@ public class MchApp extends BaseModel {
     @Schema(title = "remark", description = "备注")
     private String remark;
 
+    /**
+     * 商户通知重试策略（JSON）， 为空表示使用系统默认策略
+     */
+    @Schema(title = "notifyPolicy", description = "商户通知重试策略（JSON）， 为空表示使用系统默认策略")
+    private String notifyPolicy;
+
     /**
      * 创建者用户ID
      */
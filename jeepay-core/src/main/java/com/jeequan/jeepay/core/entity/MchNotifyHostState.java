@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.jeequan.jeepay.core.model.BaseModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * <p>
+ * 商户通知地址熔断状态表 （ 支付网关各节点定时上报 ）
+ * </p>
+ */
+@Schema(description = "商户通知地址熔断状态表")
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("t_mch_notify_host_state")
+public class MchNotifyHostState extends BaseModel implements Serializable {
+
+    //gw
+    public static final LambdaQueryWrapper<MchNotifyHostState> gw(){
+        return new LambdaQueryWrapper<>();
+    }
+
+    private static final long serialVersionUID=1L;
+
+    /**
+     * 支付网关节点标识
+     */
+    @Schema(title = "nodeId", description = "支付网关节点标识")
+    @TableId(value = "node_id", type = IdType.INPUT)
+    private String nodeId;
+
+    /**
+     * 各通知地址的状态（JSON数组）
+     */
+    @Schema(title = "stateData", description = "各通知地址的状态（JSON数组）")
+    private String stateData;
+
+    /**
+     * 上报时间
+     */
+    @Schema(title = "updatedAt", description = "上报时间")
+    private Date updatedAt;
+
+}
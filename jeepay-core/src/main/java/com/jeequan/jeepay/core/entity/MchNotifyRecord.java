@@ -109,6 +109,12 @@ public class MchNotifyRecord extends BaseModel implements Serializable {
     @Schema(title = "notifyUrl", description = "通知地址")
     private String notifyUrl;
 
+    /**
+     * 通知请求体（已编码的表单参数）, 为空表示通知参数拼接在通知地址中
+     */
+    @Schema(title = "notifyBody", description = "通知请求体（已编码的表单参数）, 为空表示通知参数拼接在通知地址中")
+    private String notifyBody;
+
     /**
      * 通知响应结果
      */
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.jeequan.jeepay.core.model.BaseModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * <p>
+ * ID号段表
+ * </p>
+ */
+@Schema(description = "ID号段表")
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("t_sys_id_segment")
+public class SysIdSegment extends BaseModel implements Serializable {
+
+    //gw
+    public static final LambdaQueryWrapper<SysIdSegment> gw(){
+        return new LambdaQueryWrapper<>();
+    }
+
+    private static final long serialVersionUID=1L;
+
+    /**
+     * 业务标识（ID前缀）
+     */
+    @Schema(title = "bizTag", description = "业务标识（ID前缀）")
+    @TableId(value = "biz_tag", type = IdType.INPUT)
+    private String bizTag;
+
+    /**
+     * 已分配的最大值
+     */
+    @Schema(title = "maxId", description = "已分配的最大值")
+    private Long maxId;
+
+    /**
+     * 更新时间
+     */
+    @Schema(title = "updatedAt", description = "更新时间")
+    private Date updatedAt;
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.jeequan.jeepay.core.model.BaseModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * <p>
+ * 定时任务租约表 （ 支付网关多节点部署时， 分配定时任务的执行节点 / 分片 ）
+ * </p>
+ */
+@Schema(description = "定时任务租约表")
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("t_sys_task_lease")
+public class SysTaskLease extends BaseModel implements Serializable {
+
+    //gw
+    public static final LambdaQueryWrapper<SysTaskLease> gw(){
+        return new LambdaQueryWrapper<>();
+    }
+
+    private static final long serialVersionUID=1L;
+
+    public static final String LEASE_TYPE_NODE = "NODE"; //节点心跳
+    public static final String LEASE_TYPE_SHARD = "SHARD"; //任务分片
+    public static final String LEASE_TYPE_LEADER = "LEADER"; //任务执行节点（仅一个节点执行）
+
+    /**
+     * 租约标识
+     */
+    @Schema(title = "leaseKey", description = "租约标识")
+    @TableId(value = "lease_key", type = IdType.INPUT)
+    private String leaseKey;
+
+    /**
+     * 任务名称
+     */
+    @Schema(title = "taskName", description = "任务名称")
+    private String taskName;
+
+    /**
+     * 租约类型： NODE-节点心跳, SHARD-任务分片, LEADER-任务执行节点
+     */
+    @Schema(title = "leaseType", description = "租约类型： NODE-节点心跳, SHARD-任务分片, LEADER-任务执行节点")
+    private String leaseType;
+
+    /**
+     * 分片序号
+     */
+    @Schema(title = "shardNo", description = "分片序号")
+    private Integer shardNo;
+
+    /**
+     * 持有租约的节点标识
+     */
+    @Schema(title = "nodeId", description = "持有租约的节点标识")
+    private String nodeId;
+
+    /**
+     * 租约到期时间
+     */
+    @Schema(title = "expireTime", description = "租约到期时间")
+    private Date expireTime;
+
+    /**
+     * 更新时间
+     */
+    @Schema(title = "updatedAt", description = "更新时间")
+    private Date updatedAt;
+
+}
@@ -72,7 +72,11 @@ public class ApiRes<M> implements Serializable {
         return new ApiRes(ApiCodeEnum.SUCCESS.getCode(), ApiCodeEnum.SUCCESS.getMsg(), data, null);
     }
 
-    /** 业务处理成功, 自动签名 **/
+    /**
+     * 业务处理成功, 自动签名
+     * 响应数据直接使用签名时已转换的JSONObject， 输出响应时无需再次反射遍历业务对象。
+     * （ 需配合 SerializerFeature.MapSortField 保持与业务对象输出时一致的字段顺序 ）
+     * **/
     public static ApiRes okWithSign(Object data, String mchKey){
 
         if(data == null){
@@ -81,7 +85,7 @@ public class ApiRes<M> implements Serializable {
 
         JSONObject jsonObject = (JSONObject)JSONObject.toJSON(data);
         String sign = JeepayKit.getSign(jsonObject, mchKey);
-        return new ApiRes(ApiCodeEnum.SUCCESS.getCode(), ApiCodeEnum.SUCCESS.getMsg(), data, sign);
+        return new ApiRes(ApiCodeEnum.SUCCESS.getCode(), ApiCodeEnum.SUCCESS.getMsg(), jsonObject, sign);
     }
 
     /** 业务处理成功, 返回简单json格式 **/
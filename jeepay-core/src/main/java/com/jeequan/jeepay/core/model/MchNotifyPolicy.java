@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.model;
+
+import com.alibaba.fastjson.JSON;
+import com.jeequan.jeepay.core.exception.BizException;
+import lombok.Data;
+import org.apache.commons.lang3.StringUtils;
+
+/*
+* 商户通知重试策略 （ 指数退避 + 随机抖动 ）， 以JSON格式保存在商户应用中
+*
+* 第N次通知失败后的延迟时间 = min(maxDelaySeconds, baseSeconds * multiplier^(N-1))，
+* 再按照 jitter 比例随机浮动（ 例如0.2表示 ±20% ）， 避免同一商户大量订单同时重试。
+*/
+@Data
+public class MchNotifyPolicy {
+
+    /** maxDelaySeconds 允许配置的上限（1天）， 实际生效值另受系统配置的最大延迟时间限制 **/
+    public static final int MAX_DELAY_SECONDS_LIMIT = 86400;
+
+    /** 首次重试延迟时间， 单位：秒 **/
+    private Integer baseSeconds = 30;
+
+    /** 延迟时间倍数 **/
+    private Double multiplier = 2.0;
+
+    /** 最大延迟时间， 单位：秒， 不超过 MAX_DELAY_SECONDS_LIMIT **/
+    private Integer maxDelaySeconds = 3600;
+
+    /** 随机抖动比例（0-1）， 为空表示使用系统默认值 **/
+    private Double jitter;
+
+    /** 最大通知次数， 为空表示使用系统默认值 **/
+    private Integer maxCount;
+
+    /** 第 currentCount 次通知失败后的延迟时间（ 不含抖动 ） **/
+    public int getDelaySeconds(int currentCount){
+        double delay = baseSeconds * Math.pow(multiplier, Math.max(0, currentCount - 1));
+        return (int) Math.max(1, Math.min(maxDelaySeconds, delay));
+    }
+
+    /** 解析JSON， 为空时返回null； 格式错误时抛出BizException **/
+    public static MchNotifyPolicy parse(String json){
+
+        if(StringUtils.isBlank(json)){
+            return null;
+        }
+
+        MchNotifyPolicy policy;
+        try {
+            policy = JSON.parseObject(json, MchNotifyPolicy.class);
+        } catch (Exception e) {
+            throw new BizException("商户通知重试策略格式错误");
+        }
+
+        if(policy.getBaseSeconds() == null || policy.getBaseSeconds() < 1
+                || policy.getMultiplier() == null || policy.getMultiplier() < 1
+                || policy.getMaxDelaySeconds() == null || policy.getMaxDelaySeconds() < policy.getBaseSeconds()
+                || policy.getMaxDelaySeconds() > MAX_DELAY_SECONDS_LIMIT
+                || (policy.getJitter() != null && (policy.getJitter() < 0 || policy.getJitter() > 1))
+                || (policy.getMaxCount() != null && (policy.getMaxCount() < 1 || policy.getMaxCount() > 100))){
+            throw new BizException("商户通知重试策略参数错误");
+        }
+        return policy;
+    }
+
+}
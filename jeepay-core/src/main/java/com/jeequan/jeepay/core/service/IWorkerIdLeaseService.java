@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.service;
+
+/**
+* 雪花算法workerId租约 接口定义 （ 保证同一时刻每个workerId仅被一个节点使用 ）
+*/
+public interface IWorkerIdLeaseService {
+
+    /** 获取 / 续期 workerId 的租约， 返回true表示当前节点持有； 返回false表示其他节点持有且未过期 **/
+    boolean acquireWorkerId(long workerId, String nodeId, int leaseSeconds);
+
+    /** 释放 workerId 的租约 （ 仅释放当前节点持有的租约 ） **/
+    void releaseWorkerId(long workerId, String nodeId);
+
+}
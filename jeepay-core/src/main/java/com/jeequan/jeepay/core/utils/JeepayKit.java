@@ -25,8 +25,6 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -54,8 +52,6 @@ public class JeepayKit {
 
 
 
-    private static String encodingCharset = "UTF-8";
-
     /**
      * <p><b>Description: </b>计算签名摘要
      * <p>2018年9月30日 上午11:32:46
@@ -64,25 +60,7 @@ public class JeepayKit {
      * @return
      */
     public static String getSign(Map<String,Object> map, String key){
-        ArrayList<String> list = new ArrayList<String>();
-        for(Map.Entry<String,Object> entry:map.entrySet()){
-            if(null != entry.getValue() && !"".equals(entry.getValue())){
-                list.add(entry.getKey() + "=" + entry.getValue() + "&");
-            }
-        }
-        int size = list.size();
-        String [] arrayToSort = list.toArray(new String[size]);
-        Arrays.sort(arrayToSort, String.CASE_INSENSITIVE_ORDER);
-        StringBuilder sb = new StringBuilder();
-        for(int i = 0; i < size; i ++) {
-            sb.append(arrayToSort[i]);
-        }
-        String result = sb.toString();
-        result += "key=" + key;
-        log.info("signStr:{}", result);
-        result = md5(result, encodingCharset).toUpperCase();
-        log.info("sign:{}", result);
-        return result;
+        return SignKit.md5Sign(map, key);
     }
 
 
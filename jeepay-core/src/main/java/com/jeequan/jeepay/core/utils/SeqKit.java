@@ -15,14 +15,9 @@
  */
 package com.jeequan.jeepay.core.utils;
 
-import cn.hutool.core.date.DatePattern;
-import cn.hutool.core.date.DateUtil;
-import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
-import com.baomidou.mybatisplus.core.toolkit.IdWorker;
-import org.springframework.context.annotation.Bean;
-import org.springframework.stereotype.Component;
-
-import java.util.Date;
+import com.jeequan.jeepay.core.utils.seq.IIdAllocator;
+import com.jeequan.jeepay.core.utils.seq.MpIdAllocator;
+
 import java.util.concurrent.atomic.AtomicLong;
 
 /*
@@ -35,11 +30,6 @@ import java.util.concurrent.atomic.AtomicLong;
 */
 public class SeqKit {
 
-	private static final AtomicLong PAY_ORDER_SEQ = new AtomicLong(0L);
-	private static final AtomicLong REFUND_ORDER_SEQ = new AtomicLong(0L);
-	private static final AtomicLong MHO_ORDER_SEQ = new AtomicLong(0L);
-	private static final AtomicLong TRANSFER_ID_SEQ = new AtomicLong(0L);
-	private static final AtomicLong DIVISION_BATCH_ID_SEQ = new AtomicLong(0L);
 	private static final AtomicLong QRCODE_CARD_ID_SEQ = new AtomicLong(0L); //码牌自增ID
 
 	private static final String PAY_ORDER_SEQ_PREFIX = "P";
@@ -48,58 +38,38 @@ public class SeqKit {
 	private static final String TRANSFER_ID_SEQ_PREFIX = "T";
 	private static final String DIVISION_BATCH_ID_SEQ_PREFIX = "D";
 
-	/** 是否使用MybatisPlus生成分布式ID **/
-	private static final boolean IS_USE_MP_ID = true;
+	/** ID生成器， 默认使用MybatisPlus生成分布式ID， 可通过 isys.seq.allocator 配置切换 **/
+	private static volatile IIdAllocator ID_ALLOCATOR = new MpIdAllocator();
+
+	/** 设置ID生成器 **/
+	public static void setIdAllocator(IIdAllocator idAllocator) {
+		ID_ALLOCATOR = idAllocator;
+	}
 
 	/** 生成支付订单号 **/
 	public static String genPayOrderId() {
-		if(IS_USE_MP_ID) {
-			return PAY_ORDER_SEQ_PREFIX + IdWorker.getIdStr();
-		}
-		return String.format("%s%s%04d",PAY_ORDER_SEQ_PREFIX,
-				DateUtil.format(new Date(), DatePattern.PURE_DATETIME_MS_PATTERN),
-				(int) PAY_ORDER_SEQ.getAndIncrement() % 10000);
+		return ID_ALLOCATOR.nextId(PAY_ORDER_SEQ_PREFIX);
 	}
 
 	/** 生成退款订单号 **/
 	public static String genRefundOrderId() {
-		if(IS_USE_MP_ID) {
-			return REFUND_ORDER_SEQ_PREFIX + IdWorker.getIdStr();
-		}
-		return String.format("%s%s%04d",REFUND_ORDER_SEQ_PREFIX,
-				DateUtil.format(new Date(), DatePattern.PURE_DATETIME_MS_PATTERN),
-				(int) REFUND_ORDER_SEQ.getAndIncrement() % 10000);
+		return ID_ALLOCATOR.nextId(REFUND_ORDER_SEQ_PREFIX);
 	}
 
 
 	/** 模拟生成商户订单号 **/
 	public static String genMhoOrderId() {
-		if(IS_USE_MP_ID) {
-			return MHO_ORDER_SEQ_PREFIX + IdWorker.getIdStr();
-		}
-		return String.format("%s%s%04d", MHO_ORDER_SEQ_PREFIX,
-				DateUtil.format(new Date(), DatePattern.PURE_DATETIME_MS_PATTERN),
-				(int) MHO_ORDER_SEQ.getAndIncrement() % 10000);
+		return ID_ALLOCATOR.nextId(MHO_ORDER_SEQ_PREFIX);
 	}
 
 	/** 模拟生成商户订单号 **/
 	public static String genTransferId() {
-		if(IS_USE_MP_ID) {
-			return TRANSFER_ID_SEQ_PREFIX + IdWorker.getIdStr();
-		}
-		return String.format("%s%s%04d", TRANSFER_ID_SEQ_PREFIX,
-				DateUtil.format(new Date(), DatePattern.PURE_DATETIME_MS_PATTERN),
-				(int) TRANSFER_ID_SEQ.getAndIncrement() % 10000);
+		return ID_ALLOCATOR.nextId(TRANSFER_ID_SEQ_PREFIX);
 	}
 
 	/** 模拟生成分账批次号 **/
 	public static String genDivisionBatchId() {
-		if(IS_USE_MP_ID) {
-			return DIVISION_BATCH_ID_SEQ_PREFIX + IdWorker.getIdStr();
-		}
-		return String.format("%s%s%04d", DIVISION_BATCH_ID_SEQ_PREFIX,
-				DateUtil.format(new Date(), DatePattern.PURE_DATETIME_MS_PATTERN),
-				(int) DIVISION_BATCH_ID_SEQ.getAndIncrement() % 10000);
+		return ID_ALLOCATOR.nextId(DIVISION_BATCH_ID_SEQ_PREFIX);
 	}
 
 	/** 模拟生成分账批次号, 避免mp自增太长 导致查询失败 **/
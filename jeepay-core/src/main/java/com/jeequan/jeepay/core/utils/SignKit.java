@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+/*
+* 接口签名工具类 （ MD5 ）
+*
+* 签名规则： 非空参数按照 "k=v&" 整体忽略大小写排序后拼接， 末尾追加 "key=商户秘钥"， 取MD5大写。
+*
+* 实现上不再拼接签名串： 参数仅排序一次， 直接将UTF-8字节写入线程内复用的 MessageDigest，
+* 排序比较时按照 "k=v&" 的虚拟字符序列进行（ 比较规则与 String.CASE_INSENSITIVE_ORDER 一致， 同样使用 Arrays.sort ），
+* 保证与拼接字符串后排序的结果完全一致（ 包括未成对的代理字符等比较规则不满足传递性的情况 ）。
+*/
+@Slf4j
+public class SignKit {
+
+    /** 是否打印签名串日志（包含商户秘钥， 仅限排查问题时开启）， 通过 setLogSignStr 配置 **/
+    private static volatile boolean logSignStr = false;
+
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    private static final ThreadLocal<SignContext> CONTEXT = ThreadLocal.withInitial(SignContext::new);
+
+    /** 计算签名摘要 （ MD5 大写 ） **/
+    public static String md5Sign(Map<String, Object> map, String key){
+
+        SignContext ctx = CONTEXT.get();
+        try {
+
+            int size = ctx.load(map);
+            Arrays.sort(ctx.params, 0, size, SignContext.PARAM_ORDER);
+
+            for (int i = 0; i < size; i++) {
+                ctx.write(ctx.params[i].key);
+                ctx.write('=');
+                ctx.write(ctx.params[i].val);
+                ctx.write('&');
+            }
+            ctx.write("key=");
+            ctx.write(String.valueOf(key));
+            ctx.flush();
+
+            String sign = toHexUpper(ctx.md.digest(), ctx.hexChars);
+
+            if(logSignStr){
+                log.info("signStr:{}", buildSignStr(ctx, size, key));
+                log.info("sign:{}", sign);
+            }
+            return sign;
+
+        } finally {
+            ctx.reset();
+        }
+    }
+
+    /** 配置是否打印签名串日志 **/
+    public static void setLogSignStr(boolean logSignStr){
+        SignKit.logSignStr = logSignStr;
+    }
+
+    /** 签名串， 仅用于日志输出 **/
+    private static String buildSignStr(SignContext ctx, int size, String key){
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.append(ctx.params[i].key).append('=').append(ctx.params[i].val).append('&');
+        }
+        return sb.append("key=").append(key).toString();
+    }
+
+    private static String toHexUpper(byte[] digest, char[] hexChars){
+        for (int i = 0; i < digest.length; i++) {
+            int v = digest[i] & 0xff;
+            hexChars[i * 2] = HEX_UPPER[v >>> 4];
+            hexChars[i * 2 + 1] = HEX_UPPER[v & 0x0f];
+        }
+        return new String(hexChars, 0, digest.length * 2);
+    }
+
+    /** 线程内复用的签名上下文 **/
+    private static class SignContext {
+
+        final MessageDigest md;
+        final byte[] buf = new byte[1024];
+        final char[] hexChars = new char[32];
+        int pos = 0;
+
+        /** 按照 "k=v&" 忽略大小写排序， 与旧版对拼接后的字符串数组执行 Arrays.sort 的比较结果一致， 排序结果因此完全一致 **/
+        static final Comparator<Param> PARAM_ORDER = (p1, p2) -> compare(p1.key, p1.val, p2.key, p2.val);
+
+        Param[] params = new Param[32];
+
+        SignContext(){
+            try {
+                md = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /** 读取非空参数， 返回参数个数 **/
+        int load(Map<String, Object> map){
+            int size = 0;
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                Object value = entry.getValue();
+                if(value == null || "".equals(value)){
+                    continue;
+                }
+                if(size == params.length){
+                    params = Arrays.copyOf(params, size * 2);
+                }
+                if(params[size] == null){
+                    params[size] = new Param();
+                }
+                params[size].key = String.valueOf(entry.getKey());
+                params[size].val = value.toString();
+                size++;
+            }
+            return size;
+        }
+
+        /**
+         * 按照 String.CASE_INSENSITIVE_ORDER 的规则比较 "k1=v1&" 和 "k2=v2&"：
+         * 逐字符忽略大小写比较， 字符不同且涉及代理字符时， 与JDK一致按照完整的码点（ 成对的代理字符 ）比较。
+         * **/
+        static int compare(String k1, String v1, String k2, String v2){
+
+            int n1 = k1.length() + v1.length() + 2;
+            int n2 = k2.length() + v2.length() + 2;
+            for (int i1 = 0, i2 = 0; i1 < n1 && i2 < n2; i1++, i2++) {
+
+                int c1 = charAt(k1, v1, i1);
+                int c2 = charAt(k2, v2, i2);
+                if(c1 == c2 || compareCodePoint(c1, c2) == 0){
+                    continue;
+                }
+
+                c1 = codePointIncluding(k1, v1, c1, i1, n1);
+                if(c1 < 0){
+                    i1++;
+                    c1 = -c1;
+                }
+                c2 = codePointIncluding(k2, v2, c2, i2, n2);
+                if(c2 < 0){
+                    i2++;
+                    c2 = -c2;
+                }
+
+                int r = compareCodePoint(c1, c2);
+                if(r != 0){
+                    return r;
+                }
+            }
+            return n1 - n2;
+        }
+
+        static char charAt(String k, String v, int i){
+            int kLen = k.length();
+            if(i < kLen){
+                return k.charAt(i);
+            }
+            if(i == kLen){
+                return '=';
+            }
+            i -= kLen + 1;
+            return i < v.length() ? v.charAt(i) : '&';
+        }
+
+        /**
+         * 下标i处为代理字符时返回组合后的码点： 低代理与前一个高代理组合； 高代理与后一个低代理组合， 此时返回负数（ 调用方需跳过下一个字符 ）。
+         * 非代理字符 或 未成对的代理字符原样返回。
+         * **/
+        static int codePointIncluding(String k, String v, int c, int i, int n){
+
+            if(!Character.isSurrogate((char) c)){
+                return c;
+            }
+            if(Character.isLowSurrogate((char) c)){
+                if(i > 0){
+                    char prev = charAt(k, v, i - 1);
+                    if(Character.isHighSurrogate(prev)){
+                        return Character.toCodePoint(prev, (char) c);
+                    }
+                }
+            }else if(i + 1 < n){
+                char next = charAt(k, v, i + 1);
+                if(Character.isLowSurrogate(next)){
+                    return -Character.toCodePoint((char) c, next);
+                }
+            }
+            return c;
+        }
+
+        static int compareCodePoint(int c1, int c2){
+            c1 = Character.toUpperCase(c1);
+            c2 = Character.toUpperCase(c2);
+            if (c1 != c2) {
+                c1 = Character.toLowerCase(c1);
+                c2 = Character.toLowerCase(c2);
+                if (c1 != c2) {
+                    return c1 - c2;
+                }
+            }
+            return 0;
+        }
+
+        /** 以UTF-8编码写入 （ 与 String.getBytes(UTF-8) 一致， 非法代理字符写入 '?' ） **/
+        void write(String s){
+
+            int len = s.length();
+
+            // 缓冲区足够容纳（每个char最多3个字节）时， 纯ASCII字符无需逐个检查容量
+            if(len * 3 > buf.length - pos){
+                flush();
+            }
+            if(len * 3 <= buf.length){
+                int i = 0;
+                for (; i < len; i++) {
+                    char c = s.charAt(i);
+                    if(c >= 0x80){
+                        break;
+                    }
+                    buf[pos++] = (byte) c;
+                }
+                if(i == len){
+                    return;
+                }
+                writeSlow(s, i);
+                return;
+            }
+            writeSlow(s, 0);
+        }
+
+        private void writeSlow(String s, int from){
+            int len = s.length();
+            for (int i = from; i < len; i++) {
+                char c = s.charAt(i);
+                if(Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))){
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    ensure(4);
+                    buf[pos++] = (byte) (0xf0 | (cp >> 18));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+                }else if(Character.isSurrogate(c)){
+                    write('?');
+                }else{
+                    write(c);
+                }
+            }
+        }
+
+        void write(char c){
+            if(c < 0x80){
+                ensure(1);
+                buf[pos++] = (byte) c;
+            }else if(c < 0x800){
+                ensure(2);
+                buf[pos++] = (byte) (0xc0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }else{
+                ensure(3);
+                buf[pos++] = (byte) (0xe0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buf[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+
+        void ensure(int n){
+            if(pos + n > buf.length){
+                flush();
+            }
+        }
+
+        void flush(){
+            if(pos > 0){
+                md.update(buf, 0, pos);
+                pos = 0;
+            }
+        }
+
+        /** 清理引用， 避免线程长期持有请求数据 **/
+        void reset(){
+            pos = 0;
+            md.reset();
+            for (Param param : params) {
+                if(param == null){
+                    break;
+                }
+                param.key = null;
+                param.val = null;
+            }
+        }
+    }
+
+    /** 参数 （ 线程内复用 ） **/
+    private static class Param {
+        String key;
+        String val;
+    }
+
+}
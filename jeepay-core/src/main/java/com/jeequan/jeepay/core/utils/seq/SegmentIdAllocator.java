@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.utils.seq;
+
+import com.jeequan.jeepay.core.service.IIdSegmentService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+* ID生成器： 数据库号段模式， 适用于多节点部署
+*
+* ID格式： 前缀 + 时间（yyyyMMddHHmmss） + 号段序列号（ 不足8位时左补0 ）， 唯一性由号段序列号保证，
+* 时间部分避免ID过短且连续（ 如： P1、 P2 ）导致订单号可被枚举、 订单量可被推算。
+*
+* 每个前缀（业务类型）从数据库一次获取 step 个号段， 当前号段使用过半时异步预取下一个号段，
+* 当前号段用完时直接切换， 正常情况下生成ID时无需等待数据库。
+*/
+@Slf4j
+public class SegmentIdAllocator implements IIdAllocator {
+
+    private final IIdSegmentService idSegmentService;
+    private final int step;
+
+    private final Map<String, SegmentBuffer> bufferMap = new ConcurrentHashMap<>();
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "seq-segment-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SegmentIdAllocator(IIdSegmentService idSegmentService, int step) {
+        this.idSegmentService = idSegmentService;
+        this.step = step;
+    }
+
+    /** 序列号最少位数 **/
+    private static final int SEQ_MIN_DIGITS = 8;
+
+    /** 当前秒的日期部分 **/
+    private volatile TimeSeqIdAllocator.SecondChars secondChars = new TimeSeqIdAllocator.SecondChars(-1);
+
+    @Override
+    public String nextId(String prefix) {
+
+        long seq = bufferMap.computeIfAbsent(prefix, SegmentBuffer::new).next();
+        long now = System.currentTimeMillis();
+
+        TimeSeqIdAllocator.SecondChars current = secondChars;
+        if(current.second != now / 1000){
+            current = new TimeSeqIdAllocator.SecondChars(now / 1000);
+            secondChars = current;
+        }
+
+        String seqStr = Long.toString(seq);
+        int prefixLen = prefix.length();
+        int padLen = Math.max(SEQ_MIN_DIGITS - seqStr.length(), 0);
+        char[] chars = new char[prefixLen + 14 + padLen + seqStr.length()];
+        prefix.getChars(0, prefixLen, chars, 0);
+        System.arraycopy(current.chars, 0, chars, prefixLen, 14);
+        for (int i = 0; i < padLen; i++) {
+            chars[prefixLen + 14 + i] = '0';
+        }
+        seqStr.getChars(0, seqStr.length(), chars, prefixLen + 14 + padLen);
+        return new String(chars);
+    }
+
+    /** 双号段缓冲 **/
+    private class SegmentBuffer {
+
+        final String bizTag;
+
+        /** 当前号段： 下一个可用值 & 最大值 **/
+        long cursor = 1;
+        long max = 0;
+
+        /** 达到该值时预取下一号段 **/
+        long prefetchAt = 0;
+
+        /** 已预取的下一号段 **/
+        long nextMax = 0;
+        boolean hasNext = false;
+        boolean loading = false;
+
+        SegmentBuffer(String bizTag) {
+            this.bizTag = bizTag;
+        }
+
+        synchronized long next(){
+
+            if(cursor > max){
+
+                while (loading) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("等待号段加载时被中断", e);
+                    }
+                }
+
+                long newMax;
+                if(hasNext){
+                    newMax = nextMax;
+                    hasNext = false;
+                }else{
+                    newMax = idSegmentService.allocate(bizTag, step);
+                }
+                cursor = newMax - step + 1;
+                max = newMax;
+                prefetchAt = cursor + step / 2;
+            }
+
+            if(cursor >= prefetchAt && !hasNext && !loading){
+                loading = true;
+                loader.execute(this::prefetch);
+            }
+
+            return cursor++;
+        }
+
+        void prefetch(){
+
+            Long newMax = null;
+            try {
+                newMax = idSegmentService.allocate(bizTag, step);
+            } catch (Exception e) {
+                log.error("预取号段异常, bizTag={}", bizTag, e);
+            }
+
+            synchronized (this){
+                if(newMax != null){
+                    nextMax = newMax;
+                    hasNext = true;
+                }
+                loading = false;
+                notifyAll();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.utils.seq;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* ID生成器： 雪花算法 （无锁实现）
+*
+* 结构： 41位时间戳（毫秒） + 10位workerId + 12位序列号。
+* 时间戳与序列号合并为一个 AtomicLong 通过CAS更新： 同一毫秒内序列号溢出时进位到下一毫秒；
+* 时钟回拨时沿用已分配的最大时间戳继续递增， 不会产生重复ID。
+*/
+public class SnowflakeIdAllocator implements IIdAllocator {
+
+    /** 起始时间： 2021-01-01 00:00:00 (GMT+8) **/
+    private static final long EPOCH = 1609430400000L;
+
+    private static final int SEQ_BITS = 12;
+    private static final int WORKER_ID_BITS = 10;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    private final long workerId;
+
+    /** 最近一次分配的 ( 时间戳 << SEQ_BITS ) | 序列号 **/
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdAllocator(long workerId) {
+        if(workerId < 0 || workerId > MAX_WORKER_ID){
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+    }
+
+    @Override
+    public String nextId(String prefix) {
+        return prefix + nextLongId();
+    }
+
+    public long nextLongId(){
+
+        while (true) {
+
+            long now = System.currentTimeMillis() - EPOCH;
+            long last = state.get();
+
+            // 新的毫秒： 序列号从0开始；  同一毫秒或时钟回拨： 在上次的基础上递增（序列号溢出时自动进位到下一毫秒）
+            long next = now > (last >>> SEQ_BITS) ? now << SEQ_BITS : last + 1;
+
+            if(state.compareAndSet(last, next)){
+                return ((next >>> SEQ_BITS) << (WORKER_ID_BITS + SEQ_BITS)) | (workerId << SEQ_BITS) | (next & ((1L << SEQ_BITS) - 1));
+            }
+        }
+    }
+
+}
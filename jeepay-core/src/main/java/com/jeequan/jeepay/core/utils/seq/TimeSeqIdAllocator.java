@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.utils.seq;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* ID生成器： 前缀 + 时间（yyyyMMddHHmmssSSS） + 4位序列号,  仅适用于单节点部署
+*
+* 每秒仅格式化一次日期部分， 其余字符直接写入char数组， 不使用 DateUtil.format / String.format。
+*/
+public class TimeSeqIdAllocator implements IIdAllocator {
+
+    private final AtomicLong seq = new AtomicLong(0L);
+
+    /** 当前秒的日期部分 yyyyMMddHHmmss **/
+    private volatile SecondChars secondChars = new SecondChars(-1);
+
+    @Override
+    public String nextId(String prefix) {
+
+        long now = System.currentTimeMillis();
+
+        SecondChars current = secondChars;
+        if(current.second != now / 1000){
+            current = new SecondChars(now / 1000);
+            secondChars = current;
+        }
+
+        int prefixLen = prefix.length();
+        char[] chars = new char[prefixLen + 21];
+        prefix.getChars(0, prefixLen, chars, 0);
+        System.arraycopy(current.chars, 0, chars, prefixLen, 14);
+        writeDigits(chars, prefixLen + 14, (int) (now % 1000), 3);
+        writeDigits(chars, prefixLen + 17, (int) (seq.getAndIncrement() % 10000), 4);
+        return new String(chars);
+    }
+
+    static void writeDigits(char[] chars, int offset, int value, int len){
+        for (int i = offset + len - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /** 秒级的日期部分 yyyyMMddHHmmss （ 号段模式同样使用 ） **/
+    static class SecondChars {
+
+        final long second;
+        final char[] chars = new char[14];
+
+        SecondChars(long second){
+            this.second = second;
+            if(second < 0){
+                return;
+            }
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault());
+            writeDigits(chars, 0, time.getYear(), 4);
+            writeDigits(chars, 4, time.getMonthValue(), 2);
+            writeDigits(chars, 6, time.getDayOfMonth(), 2);
+            writeDigits(chars, 8, time.getHour(), 2);
+            writeDigits(chars, 10, time.getMinute(), 2);
+            writeDigits(chars, 12, time.getSecond(), 2);
+        }
+    }
+
+}
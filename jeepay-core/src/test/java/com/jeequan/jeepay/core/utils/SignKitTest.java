@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.core.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* SignKit.md5Sign 与 旧版 JeepayKit.getSign（ 拼接字符串 + CASE_INSENSITIVE_ORDER 排序 ）的签名一致性测试
+*
+* 随机生成参数（ 空值 / null / 数字 / 非ASCII / 代理对 / 仅大小写不同 / 互为前缀的key ）， 比较两种实现的签名结果；
+* 旧版实现排序时抛出异常的参数， 新版实现同样抛出异常。
+*/
+class SignKitTest {
+
+    private static final String[] ATOMS = {"a", "A", "b", "B", "z", "Z", "_", "-", "=", "&", "0", "9", "mch", "Mch", "MCH", "no", "No",
+            "中", "文", "签名", "é", "É", "ß", "ı", "İ", "ǅ", "ǆ", "Ǆ", "😀", "Ω", "ω", "\uD83D", "\uDE00", "\uD801", "\uDC00", "\uDC28", "𐐀", "𐐨",
+            "Ａ", "ａ", "\uFFFD", "\uE000", " ", "%", "+"};
+
+    @Test
+    void sameSignAsLegacy() {
+        assertSameSign(new Random(20261017L), 200000, 12);
+    }
+
+    @Test
+    void sameSignAsLegacyWithManyParams() {
+        assertSameSign(new Random(20261018L), 5000, 120);
+    }
+
+    @Test
+    void typicalRequest() {
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("mchNo", "M1621873433953");
+        params.put("appId", "60cc09bce4b0f1c0b83761c9");
+        params.put("mchOrderNo", "mho1624005107281");
+        params.put("wayCode", "QR_CASHIER");
+        params.put("amount", 1);
+        params.put("currency", "cny");
+        params.put("subject", "商品标题");
+        params.put("body", "商品描述");
+        params.put("extParam", "");
+        params.put("clientIp", null);
+        params.put("reqTime", 1622016572190L);
+        params.put("version", "1.0");
+        params.put("signType", "MD5");
+
+        String key = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        assertEquals(legacySign(params, key), SignKit.md5Sign(params, key));
+        assertEquals(SignKit.md5Sign(params, key), JeepayKit.getSign(params, key));
+    }
+
+    private static void assertSameSign(Random random, int cases, int maxParams) {
+
+        for (int c = 0; c < cases; c++) {
+
+            Map<String, Object> params = random.nextBoolean() ? new HashMap<>() : new LinkedHashMap<>();
+            int size = random.nextInt(maxParams);
+            for (int i = 0; i < size; i++) {
+                int type = random.nextInt(10);
+                Object value = type == 0 ? null : type == 1 ? "" : type == 2 ? (Object) random.nextInt(100000)
+                        : type == 3 ? (Object) random.nextLong() : randomString(random, 4, true);
+                params.put(randomString(random, 3, false), value);
+            }
+            String key = randomString(random, 3, true);
+
+            String expected = signOrException(() -> legacySign(params, key));
+            String actual = signOrException(() -> SignKit.md5Sign(params, key));
+            assertEquals(expected, actual, "params=" + params + ", key=" + key);
+        }
+    }
+
+    private static String signOrException(java.util.function.Supplier<String> signer){
+        try {
+            return signer.get();
+        } catch (RuntimeException e) {
+            return "EX:" + e.getClass().getName();
+        }
+    }
+
+    private static String randomString(Random random, int maxAtoms, boolean allowEmpty){
+        int n = random.nextInt(maxAtoms + 1);
+        if(n == 0 && !allowEmpty){
+            n = 1;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(ATOMS[random.nextInt(ATOMS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /** 旧版 JeepayKit.getSign 实现（ 去掉日志 ） **/
+    private static String legacySign(Map<String, Object> map, String key){
+        ArrayList<String> list = new ArrayList<String>();
+        for(Map.Entry<String,Object> entry:map.entrySet()){
+            if(null != entry.getValue() && !"".equals(entry.getValue())){
+                list.add(entry.getKey() + "=" + entry.getValue() + "&");
+            }
+        }
+        int size = list.size();
+        String [] arrayToSort = list.toArray(new String[size]);
+        Arrays.sort(arrayToSort, String.CASE_INSENSITIVE_ORDER);
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < size; i ++) {
+            sb.append(arrayToSort[i]);
+        }
+        String result = sb.toString();
+        result += "key=" + key;
+        return JeepayKit.md5(result, "UTF-8").toUpperCase();
+    }
+
+}
@@ -24,6 +24,7 @@ import com.jeequan.jeepay.core.constants.ApiCodeEnum;
 import com.jeequan.jeepay.core.entity.MchApp;
 import com.jeequan.jeepay.core.model.ApiPageRes;
 import com.jeequan.jeepay.core.model.ApiRes;
+import com.jeequan.jeepay.core.model.MchNotifyPolicy;
 import com.jeequan.jeepay.mgr.ctrl.CommonCtrl;
 import com.jeequan.jeepay.service.impl.MchAppService;
 import com.jeequan.jeepay.service.impl.MchInfoService;
@@ -88,6 +89,7 @@ public class MchAppController extends CommonCtrl {
             @Parameter(name = "appSecret", description = "应用私钥", required = true),
             @Parameter(name = "mchNo", description = "商户号", required = true),
             @Parameter(name = "remark", description = "备注"),
+            @Parameter(name = "notifyPolicy", description = "商户通知重试策略（JSON）, 如: {\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600,\"jitter\":0.2,\"maxCount\":6}"),
             @Parameter(name = "state", description = "状态: 0-停用, 1-启用")
     })
     @PreAuthorize("hasAuthority('ENT_MCH_APP_ADD')")
@@ -95,6 +97,7 @@ public class MchAppController extends CommonCtrl {
     @PostMapping
     public ApiRes add() {
         MchApp mchApp = getObject(MchApp.class);
+        MchNotifyPolicy.parse(mchApp.getNotifyPolicy()); // 校验通知重试策略格式
         mchApp.setAppId(IdUtil.objectId());
 
         if(mchInfoService.getById(mchApp.getMchNo()) == null) {
@@ -142,6 +145,7 @@ public class MchAppController extends CommonCtrl {
             @Parameter(name = "appSecret", description = "应用私钥", required = true),
             @Parameter(name = "mchNo", description = "商户号", required = true),
             @Parameter(name = "remark", description = "备注"),
+            @Parameter(name = "notifyPolicy", description = "商户通知重试策略（JSON）, 如: {\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600,\"jitter\":0.2,\"maxCount\":6}"),
             @Parameter(name = "state", description = "状态: 0-停用, 1-启用")
     })
     @PreAuthorize("hasAuthority('ENT_MCH_APP_EDIT')")
@@ -149,6 +153,7 @@ public class MchAppController extends CommonCtrl {
     @PutMapping("/{appId}")
     public ApiRes update(@PathVariable("appId") String appId) {
         MchApp mchApp = getObject(MchApp.class);
+        MchNotifyPolicy.parse(mchApp.getNotifyPolicy()); // 校验通知重试策略格式
         mchApp.setAppId(appId);
         boolean result = mchAppService.updateById(mchApp);
         if (!result) {
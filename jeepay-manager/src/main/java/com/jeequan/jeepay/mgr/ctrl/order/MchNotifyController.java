@@ -15,17 +15,21 @@
  */
 package com.jeequan.jeepay.mgr.ctrl.order;
 
+import cn.hutool.core.date.DateUtil;
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.jeequan.jeepay.components.mq.model.PayOrderMchNotifyMQ;
 import com.jeequan.jeepay.components.mq.vender.IMQSender;
 import com.jeequan.jeepay.core.constants.ApiCodeEnum;
+import com.jeequan.jeepay.core.entity.MchNotifyHostState;
 import com.jeequan.jeepay.core.entity.MchNotifyRecord;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiPageRes;
 import com.jeequan.jeepay.core.model.ApiRes;
 import com.jeequan.jeepay.mgr.ctrl.CommonCtrl;
+import com.jeequan.jeepay.service.impl.MchNotifyHostStateService;
 import com.jeequan.jeepay.service.impl.MchNotifyRecordService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -40,6 +44,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
 /**
  * 商户通知类
  *
@@ -54,6 +62,7 @@ public class MchNotifyController extends CommonCtrl {
 
     @Autowired private MchNotifyRecordService mchNotifyService;
     @Autowired private IMQSender mqSender;
+    @Autowired private MchNotifyHostStateService mchNotifyHostStateService;
 
     /**
      * @author: pangxiaoyu
@@ -168,4 +177,29 @@ public class MchNotifyController extends CommonCtrl {
         return ApiRes.ok(mchNotify);
     }
 
+    /*
+     * 功能描述: 商户通知地址熔断状态 （ 支付网关各节点最近5分钟内上报的数据， 需支付网关启用 isys.mch-notify-breaker ）
+     */
+    @Operation(summary = "商户通知地址熔断状态")
+    @Parameters({
+            @Parameter(name = "iToken", description = "用户身份凭证", required = true, in = ParameterIn.HEADER)
+    })
+    @PreAuthorize("hasAuthority('ENT_NOTIFY_LIST')")
+    @RequestMapping(value="hostStates", method = RequestMethod.GET)
+    public ApiRes<List<JSONObject>> hostStates() {
+
+        List<JSONObject> result = new ArrayList<>();
+        for (MchNotifyHostState nodeState : mchNotifyHostStateService.listActive(DateUtil.offsetMinute(new Date(), -5))) {
+            if (StringUtils.isEmpty(nodeState.getStateData())) {
+                continue;
+            }
+            for (JSONObject item : JSON.parseArray(nodeState.getStateData(), JSONObject.class)) {
+                item.put("nodeId", nodeState.getNodeId());
+                item.put("reportTime", nodeState.getUpdatedAt());
+                result.add(item);
+            }
+        }
+        return ApiRes.ok(result);
+    }
+
 }
@@ -25,6 +25,7 @@ import com.jeequan.jeepay.core.entity.MchApp;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiPageRes;
 import com.jeequan.jeepay.core.model.ApiRes;
+import com.jeequan.jeepay.core.model.MchNotifyPolicy;
 import com.jeequan.jeepay.mch.ctrl.CommonCtrl;
 import com.jeequan.jeepay.service.impl.MchAppService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -86,6 +87,7 @@ public class MchAppController extends CommonCtrl {
             @Parameter(name = "appName", description = "应用名称", required = true),
             @Parameter(name = "appSecret", description = "应用私钥", required = true),
             @Parameter(name = "remark", description = "备注"),
+            @Parameter(name = "notifyPolicy", description = "商户通知重试策略（JSON）, 如: {\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600,\"jitter\":0.2,\"maxCount\":6}"),
             @Parameter(name = "state", description = "状态: 0-停用, 1-启用")
     })
     @PreAuthorize("hasAuthority('ENT_MCH_APP_ADD')")
@@ -93,6 +95,7 @@ public class MchAppController extends CommonCtrl {
     @PostMapping
     public ApiRes add() {
         MchApp mchApp = getObject(MchApp.class);
+        MchNotifyPolicy.parse(mchApp.getNotifyPolicy()); // 校验通知重试策略格式
         mchApp.setMchNo(getCurrentMchNo());
         mchApp.setAppId(IdUtil.objectId());
 
@@ -137,6 +140,7 @@ public class MchAppController extends CommonCtrl {
             @Parameter(name = "appName", description = "应用名称", required = true),
             @Parameter(name = "appSecret", description = "应用私钥", required = true),
             @Parameter(name = "remark", description = "备注"),
+            @Parameter(name = "notifyPolicy", description = "商户通知重试策略（JSON）, 如: {\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600,\"jitter\":0.2,\"maxCount\":6}"),
             @Parameter(name = "state", description = "状态: 0-停用, 1-启用")
     })
     @PreAuthorize("hasAuthority('ENT_MCH_APP_EDIT')")
@@ -144,6 +148,7 @@ public class MchAppController extends CommonCtrl {
     @PutMapping("/{appId}")
     public ApiRes update(@PathVariable("appId") String appId) {
         MchApp mchApp = getObject(MchApp.class);
+        MchNotifyPolicy.parse(mchApp.getNotifyPolicy()); // 校验通知重试策略格式
         mchApp.setAppId(appId);
 
         MchApp dbRecord = mchAppService.getById(appId);
@@ -20,7 +20,9 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.serializer.SerializeConfig;
 import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.alibaba.fastjson.serializer.SimpleDateFormatSerializer;
+import com.jeequan.jeepay.core.utils.SignKit;
 import com.jeequan.jeepay.pay.config.SystemYmlConfig;
+import com.jeequan.jeepay.pay.service.ConfigWarmUpService;
 import com.jeequan.jeepay.service.impl.SysConfigService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -42,6 +44,7 @@ import java.util.Date;
 public class InitRunner implements CommandLineRunner {
 
     @Autowired private SystemYmlConfig systemYmlConfig;
+    @Autowired private ConfigWarmUpService configWarmUpService;
 
 
     @Override
@@ -50,6 +53,9 @@ public class InitRunner implements CommandLineRunner {
         // 配置是否使用缓存模式
         SysConfigService.IS_USE_CACHE = systemYmlConfig.getCacheConfig();
 
+        // 配置是否打印签名串日志
+        SignKit.setLogSignStr(systemYmlConfig.getSignLog());
+
         //初始化处理fastjson格式
         SerializeConfig serializeConfig = SerializeConfig.getGlobalInstance();
         serializeConfig.put(Date.class, new SimpleDateFormatSerializer(DatePattern.NORM_DATETIME_PATTERN));
@@ -57,5 +63,8 @@ public class InitRunner implements CommandLineRunner {
         //解决json 序列化时候的  $ref：问题
         JSON.DEFAULT_GENERATE_FEATURE |= SerializerFeature.DisableCircularReferenceDetect.getMask();
 
+        // 配置信息缓存预热（ 同步执行， 完成后应用才进入就绪状态 ）
+        configWarmUpService.warmUp();
+
     }
 }
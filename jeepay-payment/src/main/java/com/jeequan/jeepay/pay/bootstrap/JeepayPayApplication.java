@@ -16,6 +16,7 @@
 package com.jeequan.jeepay.pay.bootstrap;
 
 import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.alibaba.fastjson.support.config.FastJsonConfig;
 import com.alibaba.fastjson.support.spring.FastJsonHttpMessageConverter;
 import com.baomidou.mybatisplus.annotation.DbType;
@@ -80,6 +81,8 @@ public class JeepayPayApplication {
         //fast-json 配置信息
         FastJsonConfig config = new FastJsonConfig();
         config.setDateFormat("yyyy-MM-dd HH:mm:ss");
+        // Map类型按照key排序输出 （ ApiRes.okWithSign 的响应数据为签名时生成的JSONObject， 保持与业务对象输出一致的字段顺序 ）
+        config.setSerializerFeatures(SerializerFeature.BrowserSecure, SerializerFeature.MapSortField);
         converter.setFastJsonConfig(config);
 
         //设置响应的 Content-Type
@@ -37,6 +37,8 @@ public abstract class AbstractPaymentService implements IPaymentService{
     @Autowired protected SysConfigService sysConfigService;
     @Autowired protected ChannelCertConfigKitBean channelCertConfigKitBean;
     @Autowired protected ConfigContextQueryService configContextQueryService;
+    @Autowired protected ChannelServiceRegistry channelServiceRegistry;
+    @Autowired protected ChannelHttpClient channelHttpClient;
 
     @Override
     public String customPayOrderId(UnifiedOrderRQ bizRQ, PayOrder payOrder, MchAppConfigContext mchAppConfigContext){
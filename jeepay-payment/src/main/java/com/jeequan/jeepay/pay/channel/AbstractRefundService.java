@@ -33,6 +33,7 @@ public abstract class AbstractRefundService implements IRefundService{
     @Autowired protected SysConfigService sysConfigService;
     @Autowired protected ChannelCertConfigKitBean channelCertConfigKitBean;
     @Autowired protected ConfigContextQueryService configContextQueryService;
+    @Autowired protected ChannelHttpClient channelHttpClient;
 
     protected String getNotifyUrl(){
         return sysConfigService.getDBApplicationConfig().getPaySiteUrl() + "/api/refund/notify/" + getIfCode();
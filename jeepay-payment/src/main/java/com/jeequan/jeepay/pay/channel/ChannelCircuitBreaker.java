@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.channel;
+
+import com.alibaba.fastjson.JSONObject;
+import com.jeequan.jeepay.pay.config.ChannelBreakerYmlConfig;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 单个支付接口(ifCode)的 并发隔离 & 熔断器
+*
+* 关闭状态： 按照最近 windowSize 次调用统计失败率， 达到阈值后熔断；
+* 熔断状态： 直接拒绝， openSeconds 到期后进入半开状态；
+* 半开状态： 允许 halfOpenCalls 次试探调用， 全部成功后恢复， 任一失败则重新熔断。
+*
+* 每次状态变化时递增状态代数， 调用许可记录获取时的代数及是否为试探调用：
+* 结果返回时状态已变化的调用（ 如： 关闭状态发起、 半开状态才返回 ）不再统计， 半开状态仅统计试探调用的结果。
+*/
+public class ChannelCircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String ifCode;
+    private final ChannelBreakerYmlConfig.Rule rule;
+    private final Semaphore semaphore;
+
+    /** 滑动窗口： 最近的调用结果 （ true: 失败 ） **/
+    private final boolean[] window;
+    private int windowPos = 0;
+    private int windowCalls = 0;
+    private int windowFailures = 0;
+
+    private State state = State.CLOSED;
+    private long openUntil = 0;
+    private int halfOpenPermits = 0;
+    private int halfOpenSuccess = 0;
+
+    /** 状态代数， 每次状态变化时递增 **/
+    private long generation = 0;
+
+    private final AtomicLong rejectByOpen = new AtomicLong();
+    private final AtomicLong rejectByConcurrent = new AtomicLong();
+
+    public ChannelCircuitBreaker(String ifCode, ChannelBreakerYmlConfig.Rule rule) {
+        this.ifCode = ifCode;
+        this.rule = rule;
+        this.semaphore = new Semaphore(rule.getMaxConcurrent());
+        this.window = new boolean[rule.getWindowSize()];
+    }
+
+    /** 获取调用许可， 被拒绝时 Permit.getRejectMsg() 不为空。 获取成功后必须调用 release **/
+    public Permit tryAcquire(){
+
+        if(!semaphore.tryAcquire()){
+            rejectByConcurrent.incrementAndGet();
+            return Permit.REJECT_CONCURRENT;
+        }
+
+        Permit permit = allowRequest();
+        if(permit == null){
+            semaphore.release();
+            rejectByOpen.incrementAndGet();
+            return Permit.REJECT_OPEN;
+        }
+        return permit;
+    }
+
+    /** 释放许可 & 记录调用结果 （ success为null表示未实际调用上游 或 非上游原因的失败， 不计入统计 ） **/
+    public void release(Permit permit, Boolean success){
+        try {
+            if(success != null){
+                onResult(permit, success);
+            }else{
+                onSkip(permit);
+            }
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    /** 允许调用时返回许可， 否则返回null **/
+    private synchronized Permit allowRequest(){
+
+        if(state == State.OPEN){
+            if(System.currentTimeMillis() < openUntil){
+                return null;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            halfOpenPermits = rule.getHalfOpenCalls();
+            halfOpenSuccess = 0;
+        }
+
+        if(state == State.HALF_OPEN){
+            if(halfOpenPermits <= 0){
+                return null;
+            }
+            halfOpenPermits--;
+            return new Permit(generation, true, null);
+        }
+        return new Permit(generation, false, null);
+    }
+
+    private synchronized void onResult(Permit permit, boolean success){
+
+        // 状态已变化（ 如： 熔断前发起的调用、 关闭状态发起而半开状态返回的调用 ）， 不再统计
+        if(permit.generation != generation){
+            return;
+        }
+
+        if(state == State.HALF_OPEN){
+            if(!permit.probe){
+                return;
+            }
+            if(!success){
+                open();
+            }else if(++halfOpenSuccess >= rule.getHalfOpenCalls()){
+                close();
+            }
+            return;
+        }
+
+        if(windowCalls == window.length){
+            if(window[windowPos]){
+                windowFailures--;
+            }
+        }else{
+            windowCalls++;
+        }
+        window[windowPos] = !success;
+        if(!success){
+            windowFailures++;
+        }
+        windowPos = (windowPos + 1) % window.length;
+
+        if(windowCalls >= rule.getMinCalls() && windowFailures * 100 >= rule.getFailureRate() * windowCalls){
+            open();
+        }
+    }
+
+    /** 未计入统计的试探调用： 归还半开状态的试探次数， 避免半开状态无法结束 **/
+    private synchronized void onSkip(Permit permit){
+        if(permit.probe && permit.generation == generation && state == State.HALF_OPEN && halfOpenPermits < rule.getHalfOpenCalls()){
+            halfOpenPermits++;
+        }
+    }
+
+    private void open(){
+        state = State.OPEN;
+        generation++;
+        openUntil = System.currentTimeMillis() + rule.getOpenSeconds() * 1000L;
+    }
+
+    private void close(){
+        state = State.CLOSED;
+        generation++;
+        windowPos = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+    }
+
+    /** 当前状态 **/
+    public synchronized JSONObject getStateInfo(){
+
+        JSONObject result = new JSONObject();
+        result.put("ifCode", ifCode);
+        result.put("state", state == State.OPEN && System.currentTimeMillis() >= openUntil ? State.HALF_OPEN : state);
+        result.put("windowCalls", windowCalls);
+        result.put("windowFailures", windowFailures);
+        result.put("concurrent", rule.getMaxConcurrent() - semaphore.availablePermits());
+        result.put("maxConcurrent", rule.getMaxConcurrent());
+        result.put("rejectByOpen", rejectByOpen.get());
+        result.put("rejectByConcurrent", rejectByConcurrent.get());
+        return result;
+    }
+
+    /** 调用许可 **/
+    public static class Permit {
+
+        static final Permit REJECT_CONCURRENT = new Permit(-1, false, "渠道并发请求已达上限， 请稍后再试");
+        static final Permit REJECT_OPEN = new Permit(-1, false, "渠道暂不可用， 请稍后再试");
+
+        /** 获取许可时的状态代数 **/
+        final long generation;
+
+        /** 是否为半开状态的试探调用 **/
+        final boolean probe;
+
+        /** 拒绝原因， 为空表示获取成功 **/
+        final String rejectMsg;
+
+        Permit(long generation, boolean probe, String rejectMsg) {
+            this.generation = generation;
+            this.probe = probe;
+            this.rejectMsg = rejectMsg;
+        }
+
+        public String getRejectMsg() {
+            return rejectMsg;
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.channel;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.URLUtil;
+import com.alibaba.fastjson.JSON;
+import com.jeequan.jeepay.pay.config.ChannelHttpYmlConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/*
+* 渠道HTTP客户端
+*
+* 每个连接池（ 一般为支付接口ifCode ）使用独立的 java.net.http.HttpClient： 连接复用（keep-alive）、 可选HTTP/2，
+* 建立连接与读取响应分别设置超时， 并限制最大并发请求数； 按连接池统计 请求数/失败数/耗时，
+* 统计信息定时输出到日志， 并可通过 /api/channelHttp/stats 查询（ 需配置 isys.channel-http.stats-endpoint=true ）。
+*
+* 与 hutool HttpUtil 一致： 返回响应体字符串， 不校验HTTP状态码。
+*/
+@Slf4j
+@Component
+public class ChannelHttpClient {
+
+    public static final String CONTENT_TYPE_FORM = "application/x-www-form-urlencoded;charset=UTF-8";
+    public static final String CONTENT_TYPE_JSON = "application/json;charset=UTF-8";
+
+    @Autowired private ChannelHttpYmlConfig channelHttpYmlConfig;
+
+    /** 连接池名称 -> 连接池 **/
+    private final Map<String, Pool> poolMap = new ConcurrentHashMap<>();
+
+    /** POST json **/
+    public String postJson(String poolName, String url, Object params) throws IOException {
+        return post(poolName, url, CONTENT_TYPE_JSON, JSON.toJSONString(params));
+    }
+
+    /** POST 表单 **/
+    public String postForm(String poolName, String url, Map<String, ?> params) throws IOException {
+        return post(poolName, url, CONTENT_TYPE_FORM, buildForm(params));
+    }
+
+    /** POST， body为空时发送空请求体 **/
+    public String post(String poolName, String url, String contentType, String body) throws IOException {
+        return post(poolName, url, contentType, body, channelHttpYmlConfig.getReadTimeoutMillis());
+    }
+
+    /** POST， 指定读取响应超时时长 **/
+    public String post(String poolName, String url, String contentType, String body, int readTimeoutMillis) throws IOException {
+        return post(poolName, url, contentType, body == null ? null : body.getBytes(StandardCharsets.UTF_8), readTimeoutMillis);
+    }
+
+    /** POST 已序列化的请求体， 指定读取响应超时时长 **/
+    public String post(String poolName, String url, String contentType, byte[] body, int readTimeoutMillis) throws IOException {
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(readTimeoutMillis))
+                .header("Content-Type", contentType)
+                .POST(body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+
+        return send(poolName, request).body();
+    }
+
+    /** 发送请求（ 同步 ） **/
+    public HttpResponse<String> send(String poolName, HttpRequest request) throws IOException {
+
+        Pool pool = getPool(poolName);
+        boolean acquired = false;
+        long startTime = System.currentTimeMillis();
+        try {
+
+            acquired = pool.permits.tryAcquire(channelHttpYmlConfig.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if(!acquired){
+                pool.rejectCount.increment();
+                throw new IOException("连接池[" + poolName + "]并发请求数已达上限");
+            }
+
+            HttpResponse<String> response = pool.client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            pool.record(System.currentTimeMillis() - startTime, false);
+            return response;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pool.record(System.currentTimeMillis() - startTime, true);
+            throw new IOException("请求被中断", e);
+
+        } catch (IOException e) {
+            if(acquired){
+                pool.record(System.currentTimeMillis() - startTime, true);
+            }
+            throw e;
+
+        } finally {
+            if(acquired){
+                pool.permits.release();
+            }
+        }
+    }
+
+    /** 获取连接池对应的HttpClient （ 可用于异步请求 ） **/
+    public HttpClient getClient(String poolName){
+        return getPool(poolName).client;
+    }
+
+    /** 各连接池统计信息 **/
+    public Map<String, Map<String, Object>> getStats(){
+        return poolMap.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getStats()));
+    }
+
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void logStats(){
+        poolMap.forEach((poolName, pool) -> log.info("渠道HTTP连接池[{}]统计： {}", poolName, pool.getStats()));
+    }
+
+    /** 停止各连接池的线程池 （ 不再接收新请求， 已发出的请求继续完成 ） **/
+    @PreDestroy
+    public void destroy(){
+        poolMap.values().forEach(pool -> pool.executor.shutdown());
+    }
+
+    private Pool getPool(String poolName){
+        return poolMap.computeIfAbsent(poolName, k -> new Pool(k, channelHttpYmlConfig));
+    }
+
+    /** 拼接表单参数 （ UTF-8编码， 忽略null值 ） **/
+    public static String buildForm(Map<String, ?> params){
+
+        if(params == null || params.isEmpty()){
+            return "";
+        }
+        return params.entrySet().stream()
+                .filter(e -> e.getValue() != null)
+                .map(e -> URLUtil.encodeAll(e.getKey()) + "=" + URLUtil.encodeAll(String.valueOf(e.getValue())))
+                .collect(Collectors.joining("&"));
+    }
+
+    /** 连接池 **/
+    private static class Pool {
+
+        final ExecutorService executor;
+        final HttpClient client;
+        final Semaphore permits;
+        final int maxConcurrent;
+
+        final LongAdder requestCount = new LongAdder();
+        final LongAdder errorCount = new LongAdder();
+        final LongAdder rejectCount = new LongAdder();
+        final LongAdder totalMillis = new LongAdder();
+        final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+        Pool(String poolName, ChannelHttpYmlConfig config){
+            this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("channel-http-" + poolName + "-", true));
+            this.client = HttpClient.newBuilder()
+                    .version(config.getHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMillis()))
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .executor(executor)
+                    .build();
+            this.maxConcurrent = config.getMaxConcurrent();
+            this.permits = new Semaphore(maxConcurrent);
+        }
+
+        void record(long costMillis, boolean error){
+            requestCount.increment();
+            totalMillis.add(costMillis);
+            maxMillis.accumulate(costMillis);
+            if(error){
+                errorCount.increment();
+            }
+        }
+
+        Map<String, Object> getStats(){
+            long count = requestCount.sum();
+            return Map.of(
+                    "request", count,
+                    "error", errorCount.sum(),
+                    "reject", rejectCount.sum(),
+                    "avgMillis", count == 0 ? 0 : totalMillis.sum() / count,
+                    "maxMillis", maxMillis.get(),
+                    "inFlight", maxConcurrent - permits.availablePermits()
+            );
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.channel;
+
+import com.alibaba.fastjson.JSONObject;
+import com.jeequan.jeepay.core.exception.BizException;
+import com.jeequan.jeepay.pay.config.ChannelBreakerYmlConfig;
+import com.jeequan.jeepay.pay.config.ChannelExecYmlConfig;
+import com.jeequan.jeepay.pay.exception.ChannelException;
+import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
+import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRS;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/*
+* 上游渠道调用执行器
+*
+* 启用 isys.channel-exec.enabled 后， 每个支付接口(ifCode)使用独立的有界线程池调用上游，
+* 请求线程最多等待 timeoutSeconds； 超时按照未知状态（需查单）返回， 线程池已满时按照系统异常返回（未调用上游）。
+* 注意： 这里仅是 并发隔离 + 超时 的封装， 请求线程在等待期间仍然阻塞（ 并非异步处理请求 ），
+*       其作用是限制同时等待单个渠道的请求线程数（ maxThreads + queueSize ）及等待时长。
+*       超时后调用线程不会被中断（ 阻塞的socket读写不响应中断 ）， 因此下单/退款/转账时渠道接口使用订单的副本，
+*       调用完成后再写回， 超时后迟到的结果直接丢弃， 避免与请求线程同时修改同一订单对象。
+*
+* 启用 isys.channel-breaker.enabled 后， 每个支付接口限制最大并发数， 并按照失败率熔断， 熔断期间直接返回系统异常。
+*/
+@Slf4j
+@Component
+public class ChannelInvoker {
+
+    @Autowired private ChannelExecYmlConfig channelExecYmlConfig;
+    @Autowired private ChannelBreakerYmlConfig channelBreakerYmlConfig;
+
+    /** ifCode -> 线程池 **/
+    private final Map<String, ThreadPoolExecutor> executorMap = new ConcurrentHashMap<>();
+
+    /** ifCode -> 熔断器 **/
+    private final Map<String, ChannelCircuitBreaker> breakerMap = new ConcurrentHashMap<>();
+
+    /** 调用上游接口 **/
+    public <T> T invoke(String ifCode, Callable<T> channelCall) throws Exception {
+        return doInvoke(ifCode, channelCall, null);
+    }
+
+    /**
+     * 调用上游接口， 渠道接口会修改订单对象时使用：
+     * 启用独立线程池时， 渠道接口使用订单的副本， 调用完成（ 包括渠道异常 ）后将副本的属性写回 order；
+     * 超时后不再写回， 调用线程迟到的结果及对副本的修改直接丢弃。
+     * **/
+    @SuppressWarnings("unchecked")
+    public <O, T> T invoke(String ifCode, O order, OrderCall<O, T> orderCall) throws Exception {
+
+        if(!channelExecYmlConfig.getEnabled()){ // 在请求线程中调用， 不存在并发修改
+            return invoke(ifCode, () -> orderCall.call(order));
+        }
+
+        O channelOrder = (O) BeanUtils.instantiateClass(order.getClass());
+        BeanUtils.copyProperties(order, channelOrder);
+
+        AtomicBoolean abandoned = new AtomicBoolean(false);
+        try {
+            return doInvoke(ifCode, () -> {
+                try {
+                    return orderCall.call(channelOrder);
+                } finally {
+                    if(abandoned.get()){
+                        log.warn("渠道[{}]调用超时后返回， 结果已丢弃", ifCode);
+                    }
+                }
+            }, abandoned);
+
+        } finally {
+            if(!abandoned.get()){
+                BeanUtils.copyProperties(channelOrder, order);
+            }
+        }
+    }
+
+    /** 使用订单副本的渠道调用 **/
+    @FunctionalInterface
+    public interface OrderCall<O, T> {
+        T call(O channelOrder) throws Exception;
+    }
+
+    /** abandoned： 超时（ 请求线程不再等待结果 ）时设置为true， 可为null **/
+    private <T> T doInvoke(String ifCode, Callable<T> channelCall, AtomicBoolean abandoned) throws Exception {
+
+        ChannelCircuitBreaker breaker = channelBreakerYmlConfig.getEnabled() ? getBreaker(ifCode) : null;
+        ChannelCircuitBreaker.Permit permit = null;
+        if(breaker != null){
+            permit = breaker.tryAcquire();
+            if(permit.getRejectMsg() != null){
+                throw ChannelException.sysError(permit.getRejectMsg());
+            }
+        }
+
+        Boolean success = null; // null表示未实际调用上游 或 非上游原因的失败， 不计入熔断统计
+        try {
+            T result = execute(ifCode, channelCall, abandoned);
+            success = toBreakerResult(result instanceof UnifiedOrderRS ? ((UnifiedOrderRS) result).getChannelRetMsg() : result);
+            return result;
+
+        } catch (RejectedExecutionException e) {
+            log.warn("渠道[{}]调用线程池已满， 本次请求未发送至上游", ifCode);
+            throw ChannelException.sysError("渠道繁忙， 请稍后再试");
+
+        } catch (BizException e) {
+            success = true;
+            throw e;
+
+        } catch (ChannelException e) {
+            success = toBreakerResult(e.getChannelRetMsg());
+            throw e;
+
+        } catch (Exception e) {
+            success = isIOFailure(e) ? false : null;
+            throw e;
+
+        } finally {
+            if(breaker != null){
+                breaker.release(permit, success);
+            }
+        }
+    }
+
+    /**
+     * 熔断统计结果：  上游超时 / 结果未知 计为失败；  上游正常返回（包括业务失败） 计为成功；
+     * 系统异常（ 如： 支付参数配置错误、 本地处理异常 ）与上游是否可用无关， 不计入统计（ 返回null ）。
+     * **/
+    private Boolean toBreakerResult(Object channelRes){
+        if(!(channelRes instanceof ChannelRetMsg)){
+            return true;
+        }
+        ChannelRetMsg.ChannelState channelState = ((ChannelRetMsg) channelRes).getChannelState();
+        if(channelState == ChannelRetMsg.ChannelState.SYS_ERROR){
+            return null;
+        }
+        return channelState != ChannelRetMsg.ChannelState.UNKNOWN;
+    }
+
+    /** 是否为网络异常（ 连接失败 / 读取超时等， 异常链中包含 IOException ） **/
+    private boolean isIOFailure(Throwable e){
+        for (int i = 0; e != null && i < 10; e = e.getCause(), i++) {
+            if(e instanceof IOException){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** 各支付接口的熔断器状态 **/
+    public List<JSONObject> getBreakerStates(){
+        return breakerMap.values().stream().map(ChannelCircuitBreaker::getStateInfo).collect(Collectors.toList());
+    }
+
+    private ChannelCircuitBreaker getBreaker(String ifCode){
+        return breakerMap.computeIfAbsent(ifCode, key -> new ChannelCircuitBreaker(key, channelBreakerYmlConfig.getRule(key)));
+    }
+
+    /** 执行调用 （ 启用独立线程池时， 线程池已满抛出 RejectedExecutionException ） **/
+    private <T> T execute(String ifCode, Callable<T> channelCall, AtomicBoolean abandoned) throws Exception {
+
+        if(!channelExecYmlConfig.getEnabled()){
+            return channelCall.call();
+        }
+
+        Future<T> future = getExecutor(ifCode).submit(channelCall);
+        try {
+            return future.get(channelExecYmlConfig.getTimeoutSeconds(), TimeUnit.SECONDS);
+
+        } catch (TimeoutException e) {
+            abandon(future, abandoned);
+            log.warn("渠道[{}]调用超时（{}s）， 按照未知状态处理", ifCode, channelExecYmlConfig.getTimeoutSeconds());
+            throw timeout();
+
+        } catch (InterruptedException e) {
+            abandon(future, abandoned);
+            Thread.currentThread().interrupt();
+            throw timeout();
+
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof Exception){
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /** 不再等待结果 （ 阻塞中的socket读写不响应中断， 调用线程可能继续执行 ） **/
+    private void abandon(Future<?> future, AtomicBoolean abandoned){
+        if(abandoned != null){
+            abandoned.set(true);
+        }
+        future.cancel(true);
+    }
+
+    /** 上游可能已受理， 需查单确认 **/
+    private ChannelException timeout(){
+        ChannelException channelException = ChannelException.unknown("请求渠道超时");
+        channelException.getChannelRetMsg().setNeedQuery(true);
+        return channelException;
+    }
+
+    private ThreadPoolExecutor getExecutor(String ifCode){
+
+        return executorMap.computeIfAbsent(ifCode, key -> {
+
+            int maxThreads = channelExecYmlConfig.getMaxThreads();
+            int queueSize = channelExecYmlConfig.getQueueSize();
+            BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : new SynchronousQueue<>();
+
+            AtomicInteger threadNo = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, queue, r -> {
+                Thread thread = new Thread(r, "channel-" + key + "-" + threadNo.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    @PreDestroy
+    public void destroy(){
+        executorMap.values().forEach(ExecutorService::shutdownNow);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.channel;
+
+import cn.hutool.core.util.StrUtil;
+import com.jeequan.jeepay.core.constants.CS;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+* 渠道接口注册表
+*
+* 项目启动时（全部单例bean初始化完成后）一次性扫描所有渠道实现， 按照 [ifCode + 接口类型] 和 [ifCode + apiVersion + wayCode] 建立不可变的索引。
+* 运行期查找仅为两次HashMap读取， 避免每次请求进行 SpringBeansUtil.getBean(ifCode + "XxxService") 查找、 wayCode驼峰转换 以及 Class.forName 反射。
+*
+* 约定与原方式保持一致：
+*   1. 渠道接口bean的名称为： ifCode + 接口后缀， 如： alipayPaymentService, wxpayRefundService
+*   2. 支付方式实现类位于渠道实现包下的 payway / paywayV3 子包， 类名为 wayCode 的驼峰形式， 如： ALI_BAR -> AliBar
+*/
+@Slf4j
+@Component
+public class ChannelServiceRegistry implements SmartInitializingSingleton {
+
+    private static final String PAYWAY_PACKAGE_NAME = "payway";
+    private static final String PAYWAYV3_PACKAGE_NAME = "paywayV3";
+
+    /** 接口类型 与 bean名称后缀 的对应关系 **/
+    private static final Map<Class<?>, String> SERVICE_SUFFIX_MAP = new LinkedHashMap<>();
+    static {
+        SERVICE_SUFFIX_MAP.put(IPaymentService.class, "PaymentService");
+        SERVICE_SUFFIX_MAP.put(IRefundService.class, "RefundService");
+        SERVICE_SUFFIX_MAP.put(IPayOrderQueryService.class, "PayOrderQueryService");
+        SERVICE_SUFFIX_MAP.put(IPayOrderCloseService.class, "PayOrderCloseService");
+        SERVICE_SUFFIX_MAP.put(IChannelNoticeService.class, "ChannelNoticeService");
+        SERVICE_SUFFIX_MAP.put(IChannelRefundNoticeService.class, "ChannelRefundNoticeService");
+        SERVICE_SUFFIX_MAP.put(IChannelUserService.class, "ChannelUserService");
+        SERVICE_SUFFIX_MAP.put(IDivisionService.class, "DivisionService");
+        SERVICE_SUFFIX_MAP.put(AbstractDivisionRecordChannelNotifyService.class, "DivisionRecordChannelNotifyService");
+        SERVICE_SUFFIX_MAP.put(ITransferService.class, "TransferService");
+        SERVICE_SUFFIX_MAP.put(ITransferNoticeService.class, "TransferNoticeService");
+    }
+
+    @Autowired private ApplicationContext applicationContext;
+
+    /** 接口类型 -> ( ifCode -> 接口实现 ) **/
+    private volatile Map<Class<?>, Map<String, Object>> serviceMap = Collections.emptyMap();
+
+    /** apiVersion -> ( ifCode -> ( wayCode -> 支付方式实现 ) ) **/
+    private volatile Map<String, Map<String, Map<String, IPaymentService>>> paywayServiceMap = Collections.emptyMap();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+
+        Map<Class<?>, Map<String, Object>> newServiceMap = new HashMap<>();
+        SERVICE_SUFFIX_MAP.forEach((cls, suffix) -> {
+
+            Map<String, Object> ifCodeMap = new HashMap<>();
+            applicationContext.getBeansOfType(cls).forEach((beanName, bean) -> {
+                if(beanName.endsWith(suffix) && beanName.length() > suffix.length()){
+                    ifCodeMap.put(beanName.substring(0, beanName.length() - suffix.length()), bean);
+                }
+            });
+            newServiceMap.put(cls, Collections.unmodifiableMap(ifCodeMap));
+        });
+
+        Map<String, Map<String, Map<String, IPaymentService>>> newPaywayServiceMap = new HashMap<>();
+        applicationContext.getBeansOfType(IPaymentService.class).values().forEach(bean -> {
+
+            Class<?> targetClass = AopUtils.getTargetClass(bean);
+            String packageName = targetClass.getPackageName();
+            String apiVersion;
+            if(packageName.endsWith("." + PAYWAY_PACKAGE_NAME)){
+                apiVersion = CS.PAY_IF_VERSION.WX_V2;
+            }else if(packageName.endsWith("." + PAYWAYV3_PACKAGE_NAME)){
+                apiVersion = CS.PAY_IF_VERSION.WX_V3;
+            }else{
+                return;
+            }
+
+            // 类名反推wayCode， 并按照 wayCode -> 类名 的转换规则进行校验，  AliBar <-> ALI_BAR
+            String clsName = targetClass.getSimpleName();
+            String wayCode = StrUtil.toUnderlineCase(clsName).toUpperCase();
+            if(!clsName.equals(StrUtil.upperFirst(StrUtil.toCamelCase(wayCode.toLowerCase())))){
+                log.warn("支付方式实现类[{}]命名不规范，无法推导wayCode，已忽略", targetClass.getName());
+                return;
+            }
+
+            newPaywayServiceMap.computeIfAbsent(apiVersion, k -> new HashMap<>())
+                    .computeIfAbsent(bean.getIfCode(), k -> new HashMap<>())
+                    .put(wayCode, bean);
+        });
+
+        this.serviceMap = Collections.unmodifiableMap(newServiceMap);
+        this.paywayServiceMap = Collections.unmodifiableMap(newPaywayServiceMap);
+
+        log.info("渠道接口注册表初始化完成， 接口实现： {}", this.serviceMap.entrySet().stream()
+                .map(e -> e.getKey().getSimpleName() + e.getValue().keySet()).reduce((a, b) -> a + ", " + b).orElse(""));
+    }
+
+    /** 获取渠道接口实现， 不存在返回null  如： getService("alipay", IRefundService.class) **/
+    public <T> T getService(String ifCode, Class<T> cls){
+
+        Map<String, Object> ifCodeMap = serviceMap.get(cls);
+        if(ifCodeMap == null || ifCode == null){
+            return null;
+        }
+        return cls.cast(ifCodeMap.get(ifCode));
+    }
+
+    /** 获取支付接口 **/
+    public IPaymentService getPaymentService(String ifCode){
+        return getService(ifCode, IPaymentService.class);
+    }
+
+    /** 获取真实的支付方式Service （ 默认版本 ） **/
+    public IPaymentService getPaywayService(String ifCode, String wayCode){
+        return getPaywayService(ifCode, wayCode, CS.PAY_IF_VERSION.WX_V2);
+    }
+
+    /** 获取指定接口版本的真实支付方式Service， 如： 微信V3 **/
+    public IPaymentService getPaywayService(String ifCode, String wayCode, String apiVersion){
+
+        Map<String, Map<String, IPaymentService>> versionMap = paywayServiceMap.get(apiVersion);
+        if(versionMap == null || ifCode == null){
+            return null;
+        }
+
+        Map<String, IPaymentService> wayCodeMap = versionMap.get(ifCode);
+        if(wayCodeMap == null || wayCode == null){
+            return null;
+        }
+        return wayCodeMap.get(wayCode);
+    }
+
+}
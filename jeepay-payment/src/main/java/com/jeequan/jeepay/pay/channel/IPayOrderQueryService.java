@@ -18,6 +18,11 @@ package com.jeequan.jeepay.pay.channel;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
 * 查单（渠道侧）接口定义
@@ -34,4 +39,25 @@ public interface IPayOrderQueryService {
     /** 查询订单 **/
     ChannelRetMsg query(PayOrder payOrder, MchAppConfigContext mchAppConfigContext) throws Exception;
 
+    /** 单次批量查询的最大订单数， 大于1时补单任务调用 batchQuery 接口 **/
+    default int getBatchQuerySize(){
+        return 1;
+    }
+
+    /**
+     * 批量查询订单（ 同一商户应用的订单 ）， 返回 支付订单号 -> 查询结果， 未返回的订单在下一次补单时继续查询。
+     * 默认逐笔查询（ 单笔查询异常时跳过该订单， 不影响其他订单 ）， 上游支持多笔查询 或 可并发查询的渠道可覆写。
+     */
+    default Map<String, ChannelRetMsg> batchQuery(List<PayOrder> payOrders, MchAppConfigContext mchAppConfigContext) throws Exception {
+        Map<String, ChannelRetMsg> result = new LinkedHashMap<>();
+        for (PayOrder payOrder : payOrders) {
+            try {
+                result.put(payOrder.getPayOrderId(), query(payOrder, mchAppConfigContext));
+            } catch (Exception e) {
+                LoggerFactory.getLogger(IPayOrderQueryService.class).error("查询订单异常 payOrderId = {}", payOrder.getPayOrderId(), e);
+            }
+        }
+        return result;
+    }
+
 }
@@ -147,7 +147,7 @@ public class AlipayBizController extends AbstractCtrl {
                 }
 
                 // 更新应用配置信息
-                mqSender.send(ResetIsvMchAppInfoConfigMQ.build(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP, null, mchApp.getMchNo(), mchApp.getAppId()));
+                mqSender.send(ResetIsvMchAppInfoConfigMQ.build(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP, null, mchApp.getMchNo(), mchApp.getAppId(), CS.IF_CODE.ALIPAY));
 
             }
         } catch (Exception e) {
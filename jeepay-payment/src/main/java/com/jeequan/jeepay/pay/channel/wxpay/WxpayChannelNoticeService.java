@@ -26,7 +26,6 @@ import com.github.binarywang.wxpay.service.WxPayService;
 import com.github.binarywang.wxpay.v3.auth.AutoUpdateCertificatesVerifier;
 import com.github.binarywang.wxpay.v3.auth.PrivateKeySigner;
 import com.github.binarywang.wxpay.v3.auth.WxPayCredentials;
-import com.github.binarywang.wxpay.v3.util.PemUtils;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.exception.BizException;
@@ -36,6 +35,7 @@ import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.model.WxServiceWrapper;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.util.CertKeyCache;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -46,7 +46,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
-import java.io.FileInputStream;
 import java.math.BigDecimal;
 import java.security.PrivateKey;
 
@@ -216,9 +215,7 @@ public class WxpayChannelNoticeService extends AbstractChannelNoticeService {
 
         if(StringUtils.isEmpty(wxPayConfig.getPublicKeyId())){ // 如果存在wxPublicKeyId, 那么无需自动换取平台证书
             // 自动获取微信平台证书
-            FileInputStream fis = new FileInputStream(wxPayConfig.getPrivateKeyPath());
-            PrivateKey privateKey = PemUtils.loadPrivateKey(fis);
-            fis.close();
+            PrivateKey privateKey = CertKeyCache.getPemPrivateKey(wxPayConfig.getPrivateKeyPath());
             AutoUpdateCertificatesVerifier verifier = new AutoUpdateCertificatesVerifier(
                     new WxPayCredentials(wxPayConfig.getMchId(), new PrivateKeySigner(wxPayConfig.getCertSerialNo(), privateKey)),
                     wxPayConfig.getApiV3Key().getBytes("utf-8"), "https://api.mch.weixin.qq.com");
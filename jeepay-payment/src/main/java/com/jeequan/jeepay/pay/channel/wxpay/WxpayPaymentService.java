@@ -29,7 +29,6 @@ import com.jeequan.jeepay.pay.channel.wxpay.model.WxpayV3OrderRequestModel;
 import com.jeequan.jeepay.pay.model.WxServiceWrapper;
 import com.jeequan.jeepay.pay.rqrs.AbstractRS;
 import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRQ;
-import com.jeequan.jeepay.pay.util.PaywayUtil;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
@@ -57,7 +56,7 @@ public class WxpayPaymentService extends AbstractPaymentService {
 
     @Override
     public String preCheck(UnifiedOrderRQ rq, PayOrder payOrder) {
-        return PaywayUtil.getRealPaywayService(this, payOrder.getWayCode()).preCheck(rq, payOrder);
+        return channelServiceRegistry.getPaywayService(getIfCode(), payOrder.getWayCode()).preCheck(rq, payOrder);
     }
 
     @Override
@@ -69,9 +68,9 @@ public class WxpayPaymentService extends AbstractPaymentService {
 
         String apiVersion = wxServiceWrapper.getApiVersion();
         if (CS.PAY_IF_VERSION.WX_V2.equals(apiVersion)) {
-            return PaywayUtil.getRealPaywayService(this, payOrder.getWayCode()).pay(rq, payOrder, mchAppConfigContext);
+            return channelServiceRegistry.getPaywayService(getIfCode(), payOrder.getWayCode()).pay(rq, payOrder, mchAppConfigContext);
         } else if (CS.PAY_IF_VERSION.WX_V3.equals(apiVersion)) {
-            return PaywayUtil.getRealPaywayV3Service(this, payOrder.getWayCode()).pay(rq, payOrder, mchAppConfigContext);
+            return channelServiceRegistry.getPaywayService(getIfCode(), payOrder.getWayCode(), CS.PAY_IF_VERSION.WX_V3).pay(rq, payOrder, mchAppConfigContext);
         } else {
             throw new BizException("不支持的微信支付API版本");
         }
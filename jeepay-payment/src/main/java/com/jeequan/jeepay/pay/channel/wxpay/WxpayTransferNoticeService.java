@@ -23,7 +23,6 @@ import com.github.binarywang.wxpay.service.WxPayService;
 import com.github.binarywang.wxpay.v3.auth.AutoUpdateCertificatesVerifier;
 import com.github.binarywang.wxpay.v3.auth.PrivateKeySigner;
 import com.github.binarywang.wxpay.v3.auth.WxPayCredentials;
-import com.github.binarywang.wxpay.v3.util.PemUtils;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.TransferOrder;
 import com.jeequan.jeepay.core.exception.BizException;
@@ -31,6 +30,7 @@ import com.jeequan.jeepay.core.exception.ResponseException;
 import com.jeequan.jeepay.pay.channel.AbstractTransferNoticeService;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
+import com.jeequan.jeepay.pay.util.CertKeyCache;
 import com.jeequan.jeepay.service.impl.TransferOrderService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
@@ -40,7 +40,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.math.BigDecimal;
 import java.security.PrivateKey;
 
@@ -152,9 +151,7 @@ public class WxpayTransferNoticeService extends AbstractTransferNoticeService {
 
         if(StringUtils.isEmpty(wxPayConfig.getPublicKeyId())){ // 如果存在wxPublicKeyId, 那么无需自动换取平台证书
             // 自动获取微信平台证书
-            FileInputStream fis = new FileInputStream(wxPayConfig.getPrivateKeyPath());
-            PrivateKey privateKey = PemUtils.loadPrivateKey(fis);
-            fis.close();
+            PrivateKey privateKey = CertKeyCache.getPemPrivateKey(wxPayConfig.getPrivateKeyPath());
 
             AutoUpdateCertificatesVerifier verifier = new AutoUpdateCertificatesVerifier(
                     new WxPayCredentials(wxPayConfig.getMchId(), new PrivateKeySigner(wxPayConfig.getCertSerialNo(), privateKey)),
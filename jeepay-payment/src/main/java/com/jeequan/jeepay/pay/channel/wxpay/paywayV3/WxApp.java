@@ -22,7 +22,6 @@ import com.github.binarywang.wxpay.bean.result.enums.TradeTypeEnum;
 import com.github.binarywang.wxpay.constant.WxPayConstants;
 import com.github.binarywang.wxpay.exception.WxPayException;
 import com.github.binarywang.wxpay.service.WxPayService;
-import com.github.binarywang.wxpay.v3.util.PemUtils;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.model.params.wxpay.WxpayIsvsubMchParams;
 import com.jeequan.jeepay.core.model.params.wxpay.WxpayNormalMchParams;
@@ -37,12 +36,12 @@ import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.payorder.payway.WxAppOrderRS;
 import com.jeequan.jeepay.pay.util.ApiResBuilder;
+import com.jeequan.jeepay.pay.util.CertKeyCache;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.security.PrivateKey;
 
 /*
  * 微信 app支付
@@ -93,21 +92,16 @@ public class WxApp extends WxpayPaymentService {
 
                         try {
 
-                            FileInputStream fis = new FileInputStream(wxPayService.getConfig().getPrivateKeyPath());
+                            PrivateKey privateKey = CertKeyCache.getPemPrivateKey(wxPayService.getConfig().getPrivateKeyPath());
 
                             WxPayUnifiedOrderV3Result.AppResult appResult =
                                     wxPayUnifiedOrderV3Result.getPayInfo(TradeTypeEnum.APP, resultAppId, resultMchId,
-                                            PemUtils.loadPrivateKey(fis));
+                                            privateKey);
 
                             JSONObject jsonRes = (JSONObject) JSON.toJSON(appResult);
                             jsonRes.put("package", jsonRes.getString("packageValue"));
                             jsonRes.remove("packageValue");
 
-                            try {
-                                fis.close();
-                            } catch (IOException e) {
-                            }
-
                             return JSON.toJSONString(jsonRes);
 
                         } catch (FileNotFoundException e) {
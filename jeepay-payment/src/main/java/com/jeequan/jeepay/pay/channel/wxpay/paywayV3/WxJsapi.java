@@ -22,7 +22,6 @@ import com.github.binarywang.wxpay.bean.result.enums.TradeTypeEnum;
 import com.github.binarywang.wxpay.constant.WxPayConstants;
 import com.github.binarywang.wxpay.exception.WxPayException;
 import com.github.binarywang.wxpay.service.WxPayService;
-import com.github.binarywang.wxpay.v3.util.PemUtils;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.model.params.wxpay.WxpayIsvsubMchParams;
@@ -38,12 +37,12 @@ import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.payorder.payway.WxJsapiOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.payorder.payway.WxJsapiOrderRS;
 import com.jeequan.jeepay.pay.util.ApiResBuilder;
+import com.jeequan.jeepay.pay.util.CertKeyCache;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.IOException;
+import java.security.PrivateKey;
 
 /*
  * 微信 jsapi支付
@@ -112,21 +111,16 @@ public class WxJsapi extends WxpayPaymentService {
                         wxPayUnifiedOrderV3Result.setPrepayId(wxRes.getString("prepay_id"));
                         try {
 
-                            FileInputStream fis = new FileInputStream(wxPayService.getConfig().getPrivateKeyPath());
+                            PrivateKey privateKey = CertKeyCache.getPemPrivateKey(wxPayService.getConfig().getPrivateKeyPath());
 
                             WxPayUnifiedOrderV3Result.JsapiResult jsapiResult =
                                     wxPayUnifiedOrderV3Result.getPayInfo(TradeTypeEnum.JSAPI, resultAppId, null,
-                                            PemUtils.loadPrivateKey(fis));
+                                            privateKey);
 
                             JSONObject jsonRes = (JSONObject)JSON.toJSON(jsapiResult);
                             jsonRes.put("package", jsonRes.getString("packageValue"));
                             jsonRes.remove("packageValue");
 
-                            try {
-                                fis.close();
-                            } catch (IOException e) {
-                            }
-
                             return JSON.toJSONString(jsonRes);
 
                         } catch (FileNotFoundException e) {
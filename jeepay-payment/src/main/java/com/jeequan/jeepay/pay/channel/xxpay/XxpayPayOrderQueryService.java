@@ -15,12 +15,12 @@
  */
 package com.jeequan.jeepay.pay.channel.xxpay;
 
-import cn.hutool.http.HttpUtil;
 import com.alibaba.fastjson.JSONObject;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.model.params.xxpay.XxpayNormalMchParams;
 import com.jeequan.jeepay.core.utils.JeepayKit;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
 import com.jeequan.jeepay.pay.channel.IPayOrderQueryService;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
@@ -45,6 +45,7 @@ import java.util.TreeMap;
 public class XxpayPayOrderQueryService implements IPayOrderQueryService {
 
     @Autowired private ConfigContextQueryService configContextQueryService;
+    @Autowired private ChannelHttpClient channelHttpClient;
 
     @Override
     public String getIfCode() {
@@ -64,7 +65,7 @@ public class XxpayPayOrderQueryService implements IPayOrderQueryService {
         String queryPayOrderUrl = XxpayKit.getQueryPayOrderUrl(xxpayParams.getPayUrl()) + "?" + JeepayKit.genUrlParams(paramMap);
         try {
             log.info("支付查询[{}]参数：{}", getIfCode(), queryPayOrderUrl);
-            resStr = HttpUtil.createPost(queryPayOrderUrl).timeout(60 * 1000).execute().body();
+            resStr = channelHttpClient.post(getIfCode(), queryPayOrderUrl, ChannelHttpClient.CONTENT_TYPE_FORM, null);
             log.info("支付查询[{}]结果：{}", getIfCode(), resStr);
         } catch (Exception e) {
             log.error("http error", e);
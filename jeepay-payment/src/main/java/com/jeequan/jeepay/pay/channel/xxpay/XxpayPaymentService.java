@@ -15,18 +15,17 @@
  */
 package com.jeequan.jeepay.pay.channel.xxpay;
 
-import cn.hutool.http.HttpUtil;
 import com.alibaba.fastjson.JSONObject;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.model.params.xxpay.XxpayNormalMchParams;
 import com.jeequan.jeepay.core.utils.JeepayKit;
 import com.jeequan.jeepay.pay.channel.AbstractPaymentService;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.AbstractRS;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRQ;
-import com.jeequan.jeepay.pay.util.PaywayUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
@@ -57,12 +56,12 @@ public class XxpayPaymentService extends AbstractPaymentService {
 
     @Override
     public String preCheck(UnifiedOrderRQ rq, PayOrder payOrder) {
-        return PaywayUtil.getRealPaywayService(this, payOrder.getWayCode()).preCheck(rq, payOrder);
+        return channelServiceRegistry.getPaywayService(getIfCode(), payOrder.getWayCode()).preCheck(rq, payOrder);
     }
 
     @Override
     public AbstractRS pay(UnifiedOrderRQ rq, PayOrder payOrder, MchAppConfigContext mchAppConfigContext) throws Exception {
-        return PaywayUtil.getRealPaywayService(this, payOrder.getWayCode()).pay(rq, payOrder, mchAppConfigContext);
+        return channelServiceRegistry.getPaywayService(getIfCode(), payOrder.getWayCode()).pay(rq, payOrder, mchAppConfigContext);
     }
 
     /**
@@ -82,7 +81,7 @@ public class XxpayPaymentService extends AbstractPaymentService {
         String resStr = "";
         try {
             log.info("发起支付[{}]参数：{}", getIfCode(), payUrl);
-            resStr = HttpUtil.createPost(payUrl).timeout(60 * 1000).execute().body();
+            resStr = channelHttpClient.post(getIfCode(), payUrl, ChannelHttpClient.CONTENT_TYPE_FORM, null);
             log.info("发起支付[{}]结果：{}", getIfCode(), resStr);
         } catch (Exception e) {
             log.error("http error", e);
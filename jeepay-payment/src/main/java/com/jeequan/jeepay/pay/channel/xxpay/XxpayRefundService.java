@@ -15,7 +15,6 @@
  */
 package com.jeequan.jeepay.pay.channel.xxpay;
 
-import cn.hutool.http.HttpUtil;
 import com.alibaba.fastjson.JSONObject;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
@@ -23,6 +22,7 @@ import com.jeequan.jeepay.core.entity.RefundOrder;
 import com.jeequan.jeepay.core.model.params.xxpay.XxpayNormalMchParams;
 import com.jeequan.jeepay.core.utils.JeepayKit;
 import com.jeequan.jeepay.pay.channel.AbstractRefundService;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.refund.RefundOrderRQ;
@@ -80,7 +80,7 @@ public class XxpayRefundService extends AbstractRefundService {
         String resStr = "";
         try {
             log.info("发起退款[{}]参数：{}", getIfCode(), refundUrl);
-            resStr = HttpUtil.createPost(refundUrl).timeout(60 * 1000).execute().body();
+            resStr = channelHttpClient.post(getIfCode(), refundUrl, ChannelHttpClient.CONTENT_TYPE_FORM, null);
             log.info("发起退款[{}]结果：{}", getIfCode(), resStr);
         } catch (Exception e) {
             log.error("http error", e);
@@ -145,7 +145,7 @@ public class XxpayRefundService extends AbstractRefundService {
         String resStr = "";
         try {
             log.info("查询退款[{}]参数：{}", getIfCode(), queryRefundOrderUrl);
-            resStr = HttpUtil.createPost(queryRefundOrderUrl).timeout(60 * 1000).execute().body();
+            resStr = channelHttpClient.post(getIfCode(), queryRefundOrderUrl, ChannelHttpClient.CONTENT_TYPE_FORM, null);
             log.info("查询退款[{}]结果：{}", getIfCode(), resStr);
         } catch (Exception e) {
             log.error("http error", e);
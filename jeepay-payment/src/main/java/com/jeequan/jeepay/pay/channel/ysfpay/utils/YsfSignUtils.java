@@ -16,6 +16,7 @@
 package com.jeequan.jeepay.pay.channel.ysfpay.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.jeequan.jeepay.pay.util.CertKeyCache;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -25,7 +26,6 @@ import org.slf4j.LoggerFactory;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.security.*;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Enumeration;
 import java.util.TreeMap;
 
@@ -54,6 +54,18 @@ public class YsfSignUtils {
         }
     }
 
+    /** 线程内复用的签名/验签对象 （ initSign/initVerify 会重置状态 ） **/
+    private static final ThreadLocal<Signature> SIGN_SIGNATURE = ThreadLocal.withInitial(() -> newSignature(KEYSTORE_PROVIDER_BC));
+    private static final ThreadLocal<Signature> VERIFY_SIGNATURE = ThreadLocal.withInitial(() -> newSignature(null));
+
+    private static Signature newSignature(String provider){
+        try {
+            return provider == null ? Signature.getInstance(ALGORITHM_SHA256WITHRSA) : Signature.getInstance(ALGORITHM_SHA256WITHRSA, provider);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     /** 签名
      * 注意事项： 签名需商户申请 5.1.0版本证书；
      * 文档： https://open.unionpay.com/tjweb/acproduct/list?apiSvcId=468&index=2
@@ -76,7 +88,7 @@ public class YsfSignUtils {
             PrivateKey privateKey = getSignCertPrivateKey(privateKeyFilePath, certPwd);
 
             //3. 使用 SHA-256算法 进行签名
-            Signature st = Signature.getInstance(ALGORITHM_SHA256WITHRSA, KEYSTORE_PROVIDER_BC);
+            Signature st = SIGN_SIGNATURE.get();
             st.initSign(privateKey);
             st.update(signDigest);
             byte[] result = st.sign();
@@ -106,11 +118,9 @@ public class YsfSignUtils {
             byte[] signDigest = sha256X16(stringData, "UTF-8");
 
             //构造公钥证书
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            byte[] encodedKey = Base64.decodeBase64(ysfpayPublicKey);
-            PublicKey pubKey = keyFactory.generatePublic(new X509EncodedKeySpec(encodedKey));
+            PublicKey pubKey = CertKeyCache.getRsaPublicKey(ysfpayPublicKey);
 
-            Signature st = Signature.getInstance(ALGORITHM_SHA256WITHRSA);
+            Signature st = VERIFY_SIGNATURE.get();
             st.initVerify(pubKey); //公钥
             st.update(signDigest);
             return st.verify(Base64.decodeBase64(signature.getBytes("UTF-8")));
@@ -135,11 +145,9 @@ public class YsfSignUtils {
             byte[] signDigest = sha256X16(stringData, "UTF-8");
 
             //构造公钥证书
-            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
-            byte[] encodedKey = Base64.decodeBase64(ysfpayPublicKey);
-            PublicKey pubKey = keyFactory.generatePublic(new X509EncodedKeySpec(encodedKey));
+            PublicKey pubKey = CertKeyCache.getRsaPublicKey(ysfpayPublicKey);
 
-            Signature st = Signature.getInstance(ALGORITHM_SHA256WITHRSA);
+            Signature st = VERIFY_SIGNATURE.get();
             st.initVerify(pubKey); //公钥
             st.update(signDigest);
             return st.verify(Base64.decodeBase64(signature.getBytes("UTF-8")));
@@ -249,8 +257,13 @@ public class YsfSignUtils {
         return sha256StrBuff.toString().toLowerCase().getBytes(encoding);
     }
 
-    /** 获取证书私钥 **/
+    /** 获取证书私钥 （ 按照文件路径、修改时间及密码缓存 ） **/
     private static PrivateKey getSignCertPrivateKey(String pfxkeyfile, String keypwd) {
+        return CertKeyCache.getPrivateKey(KEYSTORE_TYPE_PKCS12, pfxkeyfile, keypwd, () -> loadSignCertPrivateKey(pfxkeyfile, keypwd));
+    }
+
+    /** 读取证书私钥 **/
+    private static PrivateKey loadSignCertPrivateKey(String pfxkeyfile, String keypwd) {
         FileInputStream fis = null;
 
         try {
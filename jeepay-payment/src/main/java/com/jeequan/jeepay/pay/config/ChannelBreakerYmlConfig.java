@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+* 上游渠道 并发隔离 & 熔断 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.channel-breaker")
+public class ChannelBreakerYmlConfig {
+
+	/** 是否启用 **/
+	private Boolean enabled = false;
+
+	/** 是否开放熔断状态查询接口 /api/channelBreaker/state （ 无鉴权， 仅限内网排查时开启 ） **/
+	private Boolean stateEndpoint = false;
+
+	/** 默认规则 **/
+	private Rule defaultRule = new Rule(100, 50, 20, 50, 30, 3);
+
+	/** 按照支付接口(ifCode)单独配置的规则， 未配置的参数使用默认规则 **/
+	private Map<String, Rule> ifCodes = new HashMap<>();
+
+	/** 获取支付接口的规则 **/
+	public Rule getRule(String ifCode){
+
+		Rule rule = ifCodes.get(ifCode);
+		if(rule == null){
+			return defaultRule;
+		}
+
+		return new Rule(
+				rule.getMaxConcurrent() != null ? rule.getMaxConcurrent() : defaultRule.getMaxConcurrent(),
+				rule.getWindowSize() != null ? rule.getWindowSize() : defaultRule.getWindowSize(),
+				rule.getMinCalls() != null ? rule.getMinCalls() : defaultRule.getMinCalls(),
+				rule.getFailureRate() != null ? rule.getFailureRate() : defaultRule.getFailureRate(),
+				rule.getOpenSeconds() != null ? rule.getOpenSeconds() : defaultRule.getOpenSeconds(),
+				rule.getHalfOpenCalls() != null ? rule.getHalfOpenCalls() : defaultRule.getHalfOpenCalls()
+		);
+	}
+
+	@Data
+	public static class Rule {
+
+		/** 最大并发调用数 **/
+		private Integer maxConcurrent;
+
+		/** 统计窗口： 最近的调用次数 **/
+		private Integer windowSize;
+
+		/** 窗口内至少达到该调用次数才计算失败率 **/
+		private Integer minCalls;
+
+		/** 失败率阈值（百分比）， 达到后熔断 **/
+		private Integer failureRate;
+
+		/** 熔断时长， 单位：秒。 到期后进入半开状态 **/
+		private Integer openSeconds;
+
+		/** 半开状态下允许的试探调用次数， 全部成功后恢复 **/
+		private Integer halfOpenCalls;
+
+		public Rule(){}
+
+		public Rule(Integer maxConcurrent, Integer windowSize, Integer minCalls, Integer failureRate, Integer openSeconds, Integer halfOpenCalls) {
+			this.maxConcurrent = maxConcurrent;
+			this.windowSize = windowSize;
+			this.minCalls = minCalls;
+			this.failureRate = failureRate;
+			this.openSeconds = openSeconds;
+			this.halfOpenCalls = halfOpenCalls;
+		}
+	}
+
+}
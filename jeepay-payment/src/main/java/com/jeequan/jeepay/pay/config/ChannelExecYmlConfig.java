@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 上游渠道调用（下单/退款/查单/关单/转账） 独立线程池执行 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.channel-exec")
+public class ChannelExecYmlConfig {
+
+	/** 是否启用： 启用后每个支付接口(ifCode)使用独立的有界线程池调用上游（ 请求线程仍同步等待结果， 最多 timeoutSeconds ），
+	 * 单个渠道响应缓慢时， 同时等待该渠道的web容器线程数不超过 maxThreads + queueSize， 超出的请求直接返回渠道繁忙；  false表示在请求线程中直接调用  **/
+	private Boolean enabled = false;
+
+	/** 每个支付接口的最大并发调用数 **/
+	private Integer maxThreads = 50;
+
+	/** 每个支付接口的等待队列长度， 线程与队列均已满时直接返回渠道繁忙 **/
+	private Integer queueSize = 0;
+
+	/** 等待上游返回的最长时间， 单位：秒。 超时后订单按照未知状态处理（进入补单查询） **/
+	private Integer timeoutSeconds = 30;
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 渠道HTTP客户端 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.channel-http")
+public class ChannelHttpYmlConfig {
+
+	/** 建立连接超时时长， 单位：毫秒 **/
+	private Integer connectTimeoutMillis = 5000;
+
+	/** 读取响应超时时长（ 发送请求后等待响应的最长时间 ）， 单位：毫秒 **/
+	private Integer readTimeoutMillis = 60000;
+
+	/** 是否启用HTTP/2（ 服务端不支持时自动降级为HTTP/1.1 ） **/
+	private Boolean http2 = false;
+
+	/** 每个连接池（ 支付接口 ）的最大并发请求数 **/
+	private Integer maxConcurrent = 200;
+
+	/** 是否开放连接池统计查询接口 /api/channelHttp/stats （ 无鉴权， 仅限内网排查时开启 ） **/
+	private Boolean statsEndpoint = false;
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 配置信息缓存同步 的yml配置参数 （ 仅 isys.cache-config=true 时生效 ）
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.config-sync")
+public class ConfigSyncYmlConfig {
+
+	/** 是否启用定时对账： 定时比较配置表的 max(updated_at)， 有变更时仅重新加载变更的记录， 用于补偿遗漏的MQ广播 **/
+	private Boolean reconcileEnabled = false;
+
+	/** 对账间隔， 单位：秒 **/
+	private Integer reconcileIntervalSeconds = 60;
+
+	/** 按照变更对象记录的已处理版本号的最大数量， 超出时淘汰最久未使用的记录 **/
+	private Integer keyVersionMaxSize = 10000;
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 配置信息 有效期缓存 的yml配置参数 （ 仅 isys.cache-config=false 时生效 ）
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.config-ttl-cache")
+public class ConfigTtlCacheYmlConfig {
+
+	/** 是否启用： 启用后商户应用信息、支付参数、渠道client 在有效期内从本地缓存读取， 无需依赖MQ广播； false表示每次查询DB **/
+	private Boolean enabled = false;
+
+	/** 最大缓存条数 （ 超出后淘汰最近最少使用的条目 ） **/
+	private Integer maxSize = 10000;
+
+	/** 有效期， 单位：秒。 过期后同步重新加载 **/
+	private Integer expireSeconds = 300;
+
+	/** 提前刷新， 单位：秒。 缓存加载超过该时长后被访问时异步重新加载（ 0表示不提前刷新 ） **/
+	private Integer refreshAfterSeconds = 240;
+
+}
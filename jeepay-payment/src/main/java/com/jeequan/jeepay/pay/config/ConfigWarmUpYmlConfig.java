@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 配置信息缓存预热 的yml配置参数 （ 仅 isys.cache-config=true 时生效 ）
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.config-warm-up")
+public class ConfigWarmUpYmlConfig {
+
+	/** 是否启用： 启用后服务启动时加载全部启用状态的 服务商 & 商户应用 配置， 预热完成后才对外就绪 **/
+	private Boolean enabled = false;
+
+	/** 并行加载的线程数 **/
+	private Integer threads = 8;
+
+	/** 每批查询的商户应用数量 **/
+	private Integer batchSize = 500;
+
+	/** 最长等待时长， 单位：秒。 超时后不再等待（剩余配置在首次请求时加载） **/
+	private Integer timeoutSeconds = 300;
+
+}
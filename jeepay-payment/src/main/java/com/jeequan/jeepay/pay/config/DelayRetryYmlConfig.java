@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* 延迟重试（ 商户通知 / 轮询查单 ） 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.delay-retry")
+public class DelayRetryYmlConfig {
+
+	/** 是否启用进程内时间轮： 启用后短延迟的重试不再发送MQ延迟消息， 由定时扫描通知记录表兜底（ 进程重启不丢失 ）；  false表示全部使用MQ延迟消息 **/
+	private Boolean localEnabled = false;
+
+	/** 时间轮每格时长， 单位：毫秒 **/
+	private Integer tickMillis = 100;
+
+	/** 时间轮每层格数 **/
+	private Integer wheelSize = 64;
+
+	/** 进程内延迟的最长时间， 单位：秒。 超出时仍使用MQ延迟消息 **/
+	private Integer maxLocalDelaySeconds = 600;
+
+	/** 时间轮最大任务数， 超出时仍使用MQ延迟消息 **/
+	private Integer maxLocalTasks = 100000;
+
+	/** 到期任务的执行线程数 **/
+	private Integer executeThreads = 8;
+
+	/** 到期任务的执行队列长度， 队列已满时改为立即发送MQ消息 **/
+	private Integer executeQueueSize = 10000;
+
+	/** 兜底扫描的间隔时间， 单位：秒 **/
+	private Integer fallbackScanIntervalSeconds = 60;
+
+	/** 通知记录超过预期重试时间多久未发送时由兜底扫描重新发送， 单位：秒 **/
+	private Integer fallbackGraceSeconds = 120;
+
+	/** 兜底扫描每批查询的记录数 **/
+	private Integer fallbackScanPageSize = 500;
+
+	/** 商户通知延迟时间的随机抖动比例（0-1）， 例如0.2表示 ±20%， 避免同一商户大量订单同时重试。 商户应用配置了通知重试策略时以应用配置为准 **/
+	private Double notifyJitter = 0.2;
+
+	/** 商户通知延迟时间（含抖动）的上限， 单位：秒。 商户应用配置的通知重试策略 maxDelaySeconds 超出时按照该值执行 **/
+	private Integer notifyMaxDelaySeconds = 7200;
+
+	/** 支付订单商户通知 第N次通知失败后的延迟时间（秒）， 次数超出列表长度时使用最后一个值 **/
+	private List<Integer> payNotifyDelays = Arrays.asList(30, 60, 90, 120, 150);
+
+	/** 退款订单商户通知 第N次通知失败后的延迟时间（秒） **/
+	private List<Integer> refundNotifyDelays = Arrays.asList(30, 60, 90, 120, 150);
+
+	/** 转账订单商户通知 第N次通知失败后的延迟时间（秒） **/
+	private List<Integer> transferNotifyDelays = Arrays.asList(30, 60, 90, 120, 150);
+
+	/** 支付订单轮询查单 第N次查询未得到结果后的延迟时间（秒） **/
+	private List<Integer> payReissueDelays = Arrays.asList(5);
+
+}
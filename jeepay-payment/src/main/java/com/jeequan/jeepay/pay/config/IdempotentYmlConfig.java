@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 商户订单号幂等校验 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.idempotent")
+public class IdempotentYmlConfig {
+
+	/** 幂等键存储方式： 【 db: 查询DB（默认）  redis: Redis SETNX  local: 进程内缓存（仅适用单节点部署） 】 **/
+	private String store = "db";
+
+	/** 幂等键保留时长， 单位：秒。  过期后由数据库唯一索引兜底 **/
+	private Long expireSeconds = 60 * 60 * 24L;
+
+	/** 进程内缓存 最大保存数量 **/
+	private Integer localMaxSize = 100000;
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 商户通知地址熔断 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.mch-notify-breaker")
+public class MchNotifyBreakerYmlConfig {
+
+	/** 是否启用： 启用后同一通知地址（host:port）连续连接失败达到阈值时熔断， 熔断期间的通知暂存， 试探成功后批量重发 **/
+	private Boolean enabled = false;
+
+	/** 连续连接失败（ 超时 / 拒绝连接等 ）次数阈值 **/
+	private Integer failureThreshold = 5;
+
+	/** 熔断时长（ 到期后发送一条试探通知 ）， 单位：秒 **/
+	private Integer openSeconds = 60;
+
+	/** 试探通知未返回结果的最长等待时间， 超时后视为试探失败， 单位：秒 **/
+	private Integer probeTimeoutSeconds = 60;
+
+	/** 每个通知地址最多暂存的通知数， 超出后按照通知失败处理（ 进入延迟重试 ） **/
+	private Integer maxParkedPerHost = 10000;
+
+	/** 熔断状态上报间隔（ 供运营平台查看 ）， 单位：秒 **/
+	private Integer reportIntervalSeconds = 30;
+
+	/** 上报时使用的节点标识， 需保证各节点不重复； 为空表示使用 主机名:服务端口 **/
+	private String nodeId;
+
+	/** 超过该时长未上报的节点状态视为已下线并删除， 单位：秒 **/
+	private Integer staleNodeSeconds = 600;
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 商户通知 异步发送 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.mch-notify")
+public class MchNotifyYmlConfig {
+
+	/** 是否启用异步发送： 启用后MQ消费线程仅负责提交通知任务， 由非阻塞HTTP客户端发送并回调处理结果；  false表示在MQ消费线程中同步发送 **/
+	private Boolean asyncEnabled = false;
+
+	/** 同一商户通知地址（host:port）的最大并发请求数 **/
+	private Integer maxPerHost = 20;
+
+	/** 全部商户的最大并发请求数 **/
+	private Integer maxInFlight = 2000;
+
+	/** 等待发送的最大任务数， 超出后本次通知按照失败处理（ 进入延迟重试 ） **/
+	private Integer maxPending = 20000;
+
+	/** HTTP客户端IO线程数 **/
+	private Integer ioThreads = 4;
+
+	/** 处理通知结果（ 更新通知记录 ）的线程数 **/
+	private Integer callbackThreads = 4;
+
+	/** 建立连接超时时间， 单位：毫秒 **/
+	private Integer connectTimeoutMillis = 5000;
+
+	/** 等待商户响应超时时间， 单位：毫秒 **/
+	private Integer readTimeoutMillis = 20000;
+
+	/** 停机时等待已提交的通知发送完成的最长时间， 单位：秒 **/
+	private Integer shutdownAwaitSeconds = 15;
+
+}
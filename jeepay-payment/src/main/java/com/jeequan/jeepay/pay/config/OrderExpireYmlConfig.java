@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 订单过期关闭（ 支付订单 / 退款订单 ） 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.order-expire")
+public class OrderExpireYmlConfig {
+
+	/** 每批关闭的订单数（ 每批为独立的短事务 ） **/
+	private Integer chunkSize = 500;
+
+	/** 是否启用进程内过期调度： 本节点创建的支付订单到达过期时间时单独关闭， 过期扫描任务降低频率作为兜底 **/
+	private Boolean localEnabled = false;
+
+	/** 进程内最多跟踪的支付订单数， 超出后由过期扫描任务关闭 **/
+	private Integer localMaxTasks = 200000;
+
+	/** 启用进程内过期调度时， 支付订单过期扫描任务的执行间隔， 单位：秒 **/
+	private Integer localSweepIntervalSeconds = 600;
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 支付订单 合并批量入库 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.pay-order-batch-insert")
+public class PayOrderBatchInsertYmlConfig {
+
+	/** 是否启用： 启用后并发的下单请求合并为JDBC批量INSERT（同一事务提交）， 减少高并发下的事务提交次数 **/
+	private Boolean enabled = false;
+
+	/** 单批次最大订单数 **/
+	private Integer maxBatchSize = 50;
+
+	/** 收到首个订单后最多等待的时长， 单位：毫秒 **/
+	private Integer lingerMillis = 5;
+
+	/** 请求线程等待被入库线程取出的最长时间， 超时后仍未取出时直接入库， 单位：毫秒 **/
+	private Integer waitTimeoutMillis = 10000;
+
+}
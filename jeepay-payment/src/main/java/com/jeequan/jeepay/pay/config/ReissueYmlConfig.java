@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 补单任务（ 查询上游订单状态 ） 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.reissue")
+public class ReissueYmlConfig {
+
+	/** 每批查询的订单数 **/
+	private Integer pageSize = 200;
+
+	/** 查询上游的线程数 **/
+	private Integer threads = 16;
+
+	/** 每个支付接口(ifCode)的最大并发查询数 **/
+	private Integer maxPerIfCode = 4;
+
+	/** 支付订单补单的分片数（ 启用定时任务租约时按照 crc32(支付订单号) % 分片数 分配给各节点 ）， 各节点需配置一致 **/
+	private Integer payShardCount = 16;
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+* 定时任务租约（ 多节点分配执行节点 / 分片 ） 的yml配置参数
+*/
+@Data
+@Component
+@ConfigurationProperties(prefix="isys.schedule-lease")
+public class ScheduleLeaseYmlConfig {
+
+	/** 是否启用： 启用后各节点通过数据库租约表（ t_sys_task_lease ）选举执行节点 / 划分任务分片， false表示每个节点均执行任务 & 处理全部数据 **/
+	private Boolean enabled = false;
+
+	/** 租约时长（ 每次执行任务时续期， 需大于任务执行间隔； 节点宕机后最长经过该时间由其他节点接管 ）， 单位：秒 **/
+	private Integer leaseSeconds = 180;
+
+	/** 是否开放任务归属状态查询接口 /api/schedule/state  **/
+	private Boolean stateEndpoint = false;
+
+}
@@ -37,4 +37,7 @@ public class SystemYmlConfig {
 	/** 是否内存缓存配置信息: true表示开启如支付网关地址/商户应用配置/服务商配置等， 开启后需检查MQ的广播模式是否正常； false表示直接查询DB.  **/
 	private Boolean cacheConfig;
 
+	/** 是否打印接口签名串日志（签名串包含商户秘钥， 仅限排查签名问题时开启） **/
+	private Boolean signLog = false;
+
 }
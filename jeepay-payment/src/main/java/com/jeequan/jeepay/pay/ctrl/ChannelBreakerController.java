@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.ctrl;
+
+import com.jeequan.jeepay.core.ctrls.AbstractCtrl;
+import com.jeequan.jeepay.core.model.ApiRes;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+* 上游渠道熔断状态查询 （ 需配置 isys.channel-breaker.state-endpoint=true ， 默认不注册 ）
+* 与 ScheduleController 相同， 该接口无鉴权， 仅用于内网排查， 不可对外网开放。
+*/
+@RestController
+@RequestMapping("/api/channelBreaker")
+@ConditionalOnProperty(name = "isys.channel-breaker.state-endpoint", havingValue = "true")
+public class ChannelBreakerController extends AbstractCtrl {
+
+    @Autowired private ChannelInvoker channelInvoker;
+
+    /** 各支付接口的熔断器状态 **/
+    @GetMapping("/state")
+    public ApiRes state(){
+        return ApiRes.ok(channelInvoker.getBreakerStates());
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.ctrl;
+
+import com.jeequan.jeepay.core.ctrls.AbstractCtrl;
+import com.jeequan.jeepay.core.model.ApiRes;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/*
+* 定时任务归属状态查询 （ 需配置 isys.schedule-lease.state-endpoint=true ）
+*/
+@RestController
+@RequestMapping("/api/schedule")
+@ConditionalOnProperty(name = "isys.schedule-lease.state-endpoint", havingValue = "true")
+public class ScheduleController extends AbstractCtrl {
+
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+
+    /** 当前节点持有的执行租约 / 分片， 以及全部节点未过期的租约 **/
+    @GetMapping("/state")
+    public ApiRes state(){
+        return ApiRes.ok(scheduleCoordinator.getState());
+    }
+
+}
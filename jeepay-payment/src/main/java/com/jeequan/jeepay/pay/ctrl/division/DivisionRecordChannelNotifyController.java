@@ -19,7 +19,7 @@ import com.jeequan.jeepay.core.ctrls.AbstractCtrl;
 import com.jeequan.jeepay.core.entity.PayOrderDivisionRecord;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.exception.ResponseException;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.AbstractDivisionRecordChannelNotifyService;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
@@ -54,6 +54,7 @@ public class DivisionRecordChannelNotifyController extends AbstractCtrl {
     @Autowired private PayOrderDivisionRecordService payOrderDivisionRecordService;
     @Autowired private ConfigContextQueryService configContextQueryService;
     @Autowired private PayOrderProcessService payOrderProcessService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
 
 
     /** 异步回调入口 **/
@@ -73,7 +74,7 @@ public class DivisionRecordChannelNotifyController extends AbstractCtrl {
             }
 
             //查询支付接口是否存在
-            AbstractDivisionRecordChannelNotifyService divisionNotifyService = SpringBeansUtil.getBean(ifCode + "DivisionRecordChannelNotifyService", AbstractDivisionRecordChannelNotifyService.class);
+            AbstractDivisionRecordChannelNotifyService divisionNotifyService = channelServiceRegistry.getService(ifCode, AbstractDivisionRecordChannelNotifyService.class);
 
             // 支付通道接口实现不存在
             if(divisionNotifyService == null){
@@ -21,7 +21,7 @@ import com.jeequan.jeepay.core.entity.MchDivisionReceiverGroup;
 import com.jeequan.jeepay.core.entity.MchInfo;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiRes;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IDivisionService;
 import com.jeequan.jeepay.pay.ctrl.ApiController;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
@@ -58,6 +58,7 @@ public class MchDivisionReceiverBindController extends ApiController {
     @Autowired private PayInterfaceConfigService payInterfaceConfigService;
     @Autowired private MchDivisionReceiverService mchDivisionReceiverService;
     @Autowired private MchDivisionReceiverGroupService mchDivisionReceiverGroupService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
 
     /** 分账账号绑定 **/
     @PostMapping("/api/division/receiver/bind")
@@ -100,7 +101,7 @@ public class MchDivisionReceiverBindController extends ApiController {
 
             //调起上游接口
 
-            IDivisionService divisionService = SpringBeansUtil.getBean(ifCode + "DivisionService", IDivisionService.class);
+            IDivisionService divisionService = channelServiceRegistry.getService(ifCode, IDivisionService.class);
             if(divisionService == null){
                 throw new BizException("系统不支持该分账接口");
             }
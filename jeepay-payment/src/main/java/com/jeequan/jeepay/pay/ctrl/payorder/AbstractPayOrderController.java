@@ -29,8 +29,9 @@ import com.jeequan.jeepay.core.model.DBApplicationConfig;
 import com.jeequan.jeepay.core.model.QRCodeParams;
 import com.jeequan.jeepay.core.utils.AmountUtil;
 import com.jeequan.jeepay.core.utils.SeqKit;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import com.jeequan.jeepay.core.utils.StringKit;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IPaymentService;
 import com.jeequan.jeepay.pay.ctrl.ApiController;
 import com.jeequan.jeepay.pay.exception.ChannelException;
@@ -41,6 +42,9 @@ import com.jeequan.jeepay.pay.rqrs.payorder.UnifiedOrderRS;
 import com.jeequan.jeepay.pay.rqrs.payorder.payway.QrCashierOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.payorder.payway.QrCashierOrderRS;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.service.IdempotentKeyService;
+import com.jeequan.jeepay.pay.service.PayOrderBatchInsertService;
+import com.jeequan.jeepay.pay.service.PayOrderExpireScheduler;
 import com.jeequan.jeepay.pay.service.PayOrderProcessService;
 import com.jeequan.jeepay.service.impl.MchPayPassageService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
@@ -69,6 +73,11 @@ public abstract class AbstractPayOrderController extends ApiController {
     @Autowired private PayOrderProcessService payOrderProcessService;
     @Autowired private SysConfigService sysConfigService;
     @Autowired private IMQSender mqSender;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ChannelInvoker channelInvoker;
+    @Autowired private IdempotentKeyService idempotentKeyService;
+    @Autowired private PayOrderBatchInsertService payOrderBatchInsertService;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
 
 
     /** 统一下单 (新建订单模式) **/
@@ -113,8 +122,8 @@ public abstract class AbstractPayOrderController extends ApiController {
             String mchNo = bizRQ.getMchNo();
             String appId = bizRQ.getAppId();
 
-            // 只有新订单模式，进行校验
-            if(isNewOrder && payOrderService.count(PayOrder.gw().eq(PayOrder::getMchNo, mchNo).eq(PayOrder::getMchOrderNo, bizRQ.getMchOrderNo())) > 0){
+            // 只有新订单模式，进行校验 （ 启用幂等键存储时， 在订单入库时原子占用， 无需查询DB ）
+            if(isNewOrder && !idempotentKeyService.isEnabled() && payOrderService.count(PayOrder.gw().eq(PayOrder::getMchNo, mchNo).eq(PayOrder::getMchOrderNo, bizRQ.getMchOrderNo())) > 0){
                 throw new BizException("商户订单["+bizRQ.getMchOrderNo()+"]已存在");
             }
 
@@ -145,7 +154,7 @@ public abstract class AbstractPayOrderController extends ApiController {
                 payOrder = genPayOrder(bizRQ, mchInfo, mchApp, null, null);
                 String payOrderId = payOrder.getPayOrderId();
                 //订单入库 订单状态： 生成状态  此时没有和任何上游渠道产生交互。
-                payOrderService.save(payOrder);
+                savePayOrder(payOrder);
 
                 QrCashierOrderRS qrCashierOrderRS = new QrCashierOrderRS();
                 QrCashierOrderRQ qrCashierOrderRQ = (QrCashierOrderRQ)bizRQ;
@@ -198,11 +207,11 @@ public abstract class AbstractPayOrderController extends ApiController {
                     payOrder.setPayOrderId(newPayOrderId);
                 }
                 //订单入库 订单状态： 生成状态  此时没有和任何上游渠道产生交互。
-                payOrderService.save(payOrder);
+                savePayOrder(payOrder);
             }
 
-            //调起上游支付接口
-            bizRS = (UnifiedOrderRS) paymentService.pay(bizRQ, payOrder, mchAppConfigContext);
+            //调起上游支付接口 （ 渠道接口使用订单副本， 调用完成后写回payOrder ）
+            bizRS = (UnifiedOrderRS) channelInvoker.invoke(ifCode, payOrder, channelPayOrder -> paymentService.pay(bizRQ, channelPayOrder, mchAppConfigContext));
 
             //处理上游返回数据
             this.processChannelMsg(bizRS.getChannelRetMsg(), payOrder);
@@ -221,6 +230,12 @@ public abstract class AbstractPayOrderController extends ApiController {
                 return ApiRes.customFail(e.getMessage());
             }
 
+            // 上游未返回数据（如： 请求超时）
+            if(bizRS == null){
+                bizRS = new UnifiedOrderRS();
+                bizRS.setChannelRetMsg(e.getChannelRetMsg());
+            }
+
             return this.packageApiResByPayOrder(bizRQ, bizRS, payOrder);
 
 
@@ -230,6 +245,15 @@ public abstract class AbstractPayOrderController extends ApiController {
         }
     }
 
+    /** 订单入库 （ 占用商户订单号幂等键 ） **/
+    private void savePayOrder(PayOrder payOrder){
+        idempotentKeyService.saveWithReserve(IdempotentKeyService.BIZ_TYPE_PAY_ORDER, payOrder.getMchNo(), payOrder.getMchOrderNo(),
+                "商户订单["+payOrder.getMchOrderNo()+"]已存在", () -> payOrderBatchInsertService.save(payOrder));
+
+        // 到达过期时间时关闭订单
+        payOrderExpireScheduler.add(payOrder.getPayOrderId(), payOrder.getExpiredTime());
+    }
+
     private PayOrder genPayOrder(UnifiedOrderRQ rq, MchInfo mchInfo, MchApp mchApp, String ifCode, MchPayPassage mchPayPassage){
 
         PayOrder payOrder = new PayOrder();
@@ -288,7 +312,7 @@ public abstract class AbstractPayOrderController extends ApiController {
 
         // 接口代码
         String ifCode = mchPayPassage.getIfCode();
-        IPaymentService paymentService = SpringBeansUtil.getBean(ifCode + "PaymentService", IPaymentService.class);
+        IPaymentService paymentService = channelServiceRegistry.getPaymentService(ifCode);
         if(paymentService == null){
             throw new BizException("无此支付通道接口");
         }
@@ -342,6 +366,7 @@ public abstract class AbstractPayOrderController extends ApiController {
         }else if(ChannelRetMsg.ChannelState.CONFIRM_FAIL == channelRetMsg.getChannelState()) {
 
             this.updateInitOrderStateThrowException(PayOrder.STATE_FAIL, payOrder, channelRetMsg);
+            payOrderExpireScheduler.remove(payOrderId);
 
         // 上游处理中 || 未知 || 上游接口返回异常  订单为支付中状态
         }else if( ChannelRetMsg.ChannelState.WAITING == channelRetMsg.getChannelState() ||
@@ -20,13 +20,14 @@ import com.jeequan.jeepay.core.ctrls.AbstractCtrl;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.exception.ResponseException;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IChannelNoticeService;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
 import com.jeequan.jeepay.pay.service.ConfigContextService;
 import com.jeequan.jeepay.pay.service.PayMchNotifyService;
+import com.jeequan.jeepay.pay.service.PayOrderExpireScheduler;
 import com.jeequan.jeepay.pay.service.PayOrderProcessService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
@@ -57,6 +58,8 @@ public class ChannelNoticeController extends AbstractCtrl {
     @Autowired private ConfigContextQueryService configContextQueryService;
     @Autowired private PayMchNotifyService payMchNotifyService;
     @Autowired private PayOrderProcessService payOrderProcessService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
 
     /**
      * 同步通知入口
@@ -78,7 +81,7 @@ public class ChannelNoticeController extends AbstractCtrl {
             }
 
             //查询支付接口是否存在
-            IChannelNoticeService payNotifyService = SpringBeansUtil.getBean(ifCode + "ChannelNoticeService", IChannelNoticeService.class);
+            IChannelNoticeService payNotifyService = channelServiceRegistry.getService(ifCode, IChannelNoticeService.class);
 
             // 支付通道接口实现不存在
             if(payNotifyService == null){
@@ -178,7 +181,7 @@ public class ChannelNoticeController extends AbstractCtrl {
             }
 
             //查询支付接口是否存在
-            IChannelNoticeService payNotifyService = SpringBeansUtil.getBean(ifCode + "ChannelNoticeService", IChannelNoticeService.class);
+            IChannelNoticeService payNotifyService = channelServiceRegistry.getService(ifCode, IChannelNoticeService.class);
 
             // 支付通道接口实现不存在
             if(payNotifyService == null){
@@ -237,6 +240,7 @@ public class ChannelNoticeController extends AbstractCtrl {
                 }else if(ChannelRetMsg.ChannelState.CONFIRM_FAIL == notifyResult.getChannelState()) {
 
                     updateOrderSuccess = payOrderService.updateIng2Fail(payOrderId, notifyResult.getChannelOrderId(), notifyResult.getChannelUserId(), notifyResult.getChannelErrCode(), notifyResult.getChannelErrMsg());
+                    payOrderExpireScheduler.remove(payOrderId);
                 }
             }
 
@@ -18,7 +18,8 @@ package com.jeequan.jeepay.pay.ctrl.payorder;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiRes;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IPayOrderCloseService;
 import com.jeequan.jeepay.pay.ctrl.ApiController;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
@@ -26,6 +27,7 @@ import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.payorder.ClosePayOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.payorder.ClosePayOrderRS;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.service.PayOrderExpireScheduler;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -46,6 +48,9 @@ public class CloseOrderController extends ApiController {
 
     @Autowired private PayOrderService payOrderService;
     @Autowired private ConfigContextQueryService configContextQueryService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ChannelInvoker channelInvoker;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
 
     /**
      * @author: xiaoyu
@@ -76,6 +81,7 @@ public class CloseOrderController extends ApiController {
         // 订单生成状态  直接修改订单状态
         if (payOrder.getState() == PayOrder.STATE_INIT) {
             payOrderService.updateInit2Close(payOrder.getPayOrderId());
+            payOrderExpireScheduler.remove(payOrder.getPayOrderId());
             bizRes.setChannelRetMsg(ChannelRetMsg.confirmSuccess(null));
             return ApiRes.okWithSign(bizRes, configContextQueryService.queryMchApp(rq.getMchNo(), rq.getAppId()).getAppSecret());
         }
@@ -85,7 +91,7 @@ public class CloseOrderController extends ApiController {
             String payOrderId = payOrder.getPayOrderId();
 
             //查询支付接口是否存在
-            IPayOrderCloseService closeService = SpringBeansUtil.getBean(payOrder.getIfCode() + "PayOrderCloseService", IPayOrderCloseService.class);
+            IPayOrderCloseService closeService = channelServiceRegistry.getService(payOrder.getIfCode(), IPayOrderCloseService.class);
 
             // 支付通道接口实现不存在
             if(closeService == null){
@@ -96,7 +102,7 @@ public class CloseOrderController extends ApiController {
             //查询出商户应用的配置信息
             MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(payOrder.getMchNo(), payOrder.getAppId());
 
-            ChannelRetMsg channelRetMsg = closeService.close(payOrder, mchAppConfigContext);
+            ChannelRetMsg channelRetMsg = channelInvoker.invoke(payOrder.getIfCode(), () -> closeService.close(payOrder, mchAppConfigContext));
             if(channelRetMsg == null){
                 log.error("channelRetMsg is null");
                 return null;
@@ -107,6 +113,7 @@ public class CloseOrderController extends ApiController {
             // 关闭订单 成功
             if(channelRetMsg.getChannelState() == ChannelRetMsg.ChannelState.CONFIRM_SUCCESS) {
                 payOrderService.updateIng2Close(payOrderId);
+                payOrderExpireScheduler.remove(payOrderId);
             }else {
                 return ApiRes.customFail(channelRetMsg.getChannelErrMsg());
             }
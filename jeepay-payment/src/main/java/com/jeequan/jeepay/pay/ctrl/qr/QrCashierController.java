@@ -25,6 +25,7 @@ import com.jeequan.jeepay.core.service.IMchQrcodeManager;
 import com.jeequan.jeepay.core.utils.JeepayKit;
 import com.jeequan.jeepay.core.utils.SeqKit;
 import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IChannelUserService;
 import com.jeequan.jeepay.pay.ctrl.payorder.AbstractPayOrderController;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
@@ -56,6 +57,7 @@ public class QrCashierController extends AbstractPayOrderController {
     @Autowired private ConfigContextQueryService configContextQueryService;
     @Autowired private SysConfigService sysConfigService;
     @Autowired private PayMchNotifyService payMchNotifyService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
 
     /**
      * 返回 oauth2【获取uerId跳转地址】
@@ -70,7 +72,7 @@ public class QrCashierController extends AbstractPayOrderController {
         String redirectUrlEncode = sysConfigService.getDBApplicationConfig().genOauth2RedirectUrlEncode(this.getToken());
 
         //获取接口并返回数据
-        IChannelUserService channelUserService = getServiceByWayCode(getWayCode(), "ChannelUserService", IChannelUserService.class);
+        IChannelUserService channelUserService = getServiceByWayCode(getWayCode(), IChannelUserService.class);
         return ApiRes.ok(channelUserService.buildUserRedirectUrl(redirectUrlEncode, mchAppConfigContext));
 
     }
@@ -86,7 +88,7 @@ public class QrCashierController extends AbstractPayOrderController {
 
         String wayCode = getWayCode();
 
-        IChannelUserService channelUserService = getServiceByWayCode(wayCode, "ChannelUserService", IChannelUserService.class);
+        IChannelUserService channelUserService = getServiceByWayCode(wayCode, IChannelUserService.class);
         return ApiRes.ok(channelUserService.getChannelUserId(getReqParamJSON(), mchAppConfigContext));
 
     }
@@ -187,12 +189,12 @@ public class QrCashierController extends AbstractPayOrderController {
 
 
 
-    private <T> T getServiceByWayCode(String wayCode, String serviceSuffix, Class<T> cls){
+    private <T> T getServiceByWayCode(String wayCode, Class<T> cls){
 
         if(CS.PAY_WAY_CODE.ALI_JSAPI.equals(wayCode)){
-            return SpringBeansUtil.getBean(CS.IF_CODE.ALIPAY + serviceSuffix, cls);
+            return channelServiceRegistry.getService(CS.IF_CODE.ALIPAY, cls);
         }else if(CS.PAY_WAY_CODE.WX_JSAPI.equals(wayCode)){
-            return SpringBeansUtil.getBean(CS.IF_CODE.WXPAY + serviceSuffix, cls);
+            return channelServiceRegistry.getService(CS.IF_CODE.WXPAY, cls);
         }
 
         return null;
@@ -23,8 +23,9 @@ import com.jeequan.jeepay.core.entity.RefundOrder;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiRes;
 import com.jeequan.jeepay.core.utils.SeqKit;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import com.jeequan.jeepay.core.utils.StringKit;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IRefundService;
 import com.jeequan.jeepay.pay.ctrl.ApiController;
 import com.jeequan.jeepay.pay.exception.ChannelException;
@@ -33,6 +34,7 @@ import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.refund.RefundOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.refund.RefundOrderRS;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.service.IdempotentKeyService;
 import com.jeequan.jeepay.pay.service.ConfigContextService;
 import com.jeequan.jeepay.pay.service.PayMchNotifyService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
@@ -60,6 +62,9 @@ public class RefundOrderController extends ApiController {
     @Autowired private RefundOrderService refundOrderService;
     @Autowired private PayMchNotifyService payMchNotifyService;
     @Autowired private ConfigContextQueryService configContextQueryService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ChannelInvoker channelInvoker;
+    @Autowired private IdempotentKeyService idempotentKeyService;
 
 
     /** 申请退款 **/
@@ -116,8 +121,8 @@ public class RefundOrderController extends ApiController {
             String mchNo = rq.getMchNo();
             String appId = rq.getAppId();
 
-            // 校验退款单号是否重复
-            if(refundOrderService.count(RefundOrder.gw().eq(RefundOrder::getMchNo, mchNo).eq(RefundOrder::getMchRefundNo, rq.getMchRefundNo())) > 0){
+            // 校验退款单号是否重复 （ 启用幂等键存储时， 在退款单入库时原子占用， 无需查询DB ）
+            if(!idempotentKeyService.isEnabled() && refundOrderService.count(RefundOrder.gw().eq(RefundOrder::getMchNo, mchNo).eq(RefundOrder::getMchRefundNo, rq.getMchRefundNo())) > 0){
                 throw new BizException("商户退款订单号["+rq.getMchRefundNo()+"]已存在");
             }
 
@@ -131,7 +136,7 @@ public class RefundOrderController extends ApiController {
             MchApp mchApp = mchAppConfigContext.getMchApp();
 
             //获取退款接口
-            IRefundService refundService = SpringBeansUtil.getBean(payOrder.getIfCode() + "RefundService", IRefundService.class);
+            IRefundService refundService = channelServiceRegistry.getService(payOrder.getIfCode(), IRefundService.class);
             if(refundService == null){
                 throw new BizException("当前通道不支持退款！");
             }
@@ -139,10 +144,13 @@ public class RefundOrderController extends ApiController {
             refundOrder = genRefundOrder(rq, payOrder, mchInfo, mchApp);
 
             //退款单入库 退款单状态：生成状态  此时没有和任何上游渠道产生交互。
-            refundOrderService.save(refundOrder);
+            RefundOrder saveRefundOrder = refundOrder;
+            idempotentKeyService.saveWithReserve(IdempotentKeyService.BIZ_TYPE_REFUND_ORDER, mchNo, rq.getMchRefundNo(),
+                    "商户退款订单号["+rq.getMchRefundNo()+"]已存在", () -> refundOrderService.save(saveRefundOrder));
 
             // 调起退款接口
-            ChannelRetMsg channelRetMsg = refundService.refund(rq, refundOrder, payOrder, mchAppConfigContext);
+            ChannelRetMsg channelRetMsg = channelInvoker.invoke(payOrder.getIfCode(), refundOrder,
+                    channelRefundOrder -> refundService.refund(rq, channelRefundOrder, payOrder, mchAppConfigContext));
 
 
             //处理退款单状态
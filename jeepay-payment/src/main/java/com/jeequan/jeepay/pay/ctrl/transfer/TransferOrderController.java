@@ -21,8 +21,9 @@ import com.jeequan.jeepay.core.entity.TransferOrder;
 import com.jeequan.jeepay.core.exception.BizException;
 import com.jeequan.jeepay.core.model.ApiRes;
 import com.jeequan.jeepay.core.utils.SeqKit;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import com.jeequan.jeepay.core.utils.StringKit;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.ITransferService;
 import com.jeequan.jeepay.pay.ctrl.ApiController;
 import com.jeequan.jeepay.pay.exception.ChannelException;
@@ -31,6 +32,7 @@ import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.rqrs.transfer.TransferOrderRQ;
 import com.jeequan.jeepay.pay.rqrs.transfer.TransferOrderRS;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.service.IdempotentKeyService;
 import com.jeequan.jeepay.pay.service.ConfigContextService;
 import com.jeequan.jeepay.pay.service.PayMchNotifyService;
 import com.jeequan.jeepay.service.impl.PayInterfaceConfigService;
@@ -58,6 +60,9 @@ public class TransferOrderController extends ApiController {
     @Autowired private TransferOrderService transferOrderService;
     @Autowired private PayInterfaceConfigService payInterfaceConfigService;
     @Autowired private PayMchNotifyService payMchNotifyService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ChannelInvoker channelInvoker;
+    @Autowired private IdempotentKeyService idempotentKeyService;
 
     /**
      * 转账
@@ -77,8 +82,8 @@ public class TransferOrderController extends ApiController {
             String appId = bizRQ.getAppId();
             String ifCode = bizRQ.getIfCode();
 
-            // 商户订单号是否重复
-            if(transferOrderService.count(TransferOrder.gw().eq(TransferOrder::getMchNo, mchNo).eq(TransferOrder::getMchOrderNo, bizRQ.getMchOrderNo())) > 0){
+            // 商户订单号是否重复 （ 启用幂等键存储时， 在转账订单入库时原子占用， 无需查询DB ）
+            if(!idempotentKeyService.isEnabled() && transferOrderService.count(TransferOrder.gw().eq(TransferOrder::getMchNo, mchNo).eq(TransferOrder::getMchOrderNo, bizRQ.getMchOrderNo())) > 0){
                 throw new BizException("商户订单["+bizRQ.getMchOrderNo()+"]已存在");
             }
 
@@ -101,7 +106,7 @@ public class TransferOrderController extends ApiController {
             }
 
 
-            ITransferService transferService = SpringBeansUtil.getBean(ifCode + "TransferService", ITransferService.class);
+            ITransferService transferService = channelServiceRegistry.getService(ifCode, ITransferService.class);
             if(transferService == null){
                 throw new BizException("无此转账通道接口");
             }
@@ -119,10 +124,13 @@ public class TransferOrderController extends ApiController {
             }
 
             // 入库
-            transferOrderService.save(transferOrder);
+            TransferOrder saveTransferOrder = transferOrder;
+            idempotentKeyService.saveWithReserve(IdempotentKeyService.BIZ_TYPE_TRANSFER_ORDER, mchNo, bizRQ.getMchOrderNo(),
+                    "商户订单["+bizRQ.getMchOrderNo()+"]已存在", () -> transferOrderService.save(saveTransferOrder));
 
             // 调起上游接口
-            ChannelRetMsg channelRetMsg = transferService.transfer(bizRQ, transferOrder, mchAppConfigContext);
+            ChannelRetMsg channelRetMsg = channelInvoker.invoke(ifCode, transferOrder,
+                    channelTransferOrder -> transferService.transfer(bizRQ, channelTransferOrder, mchAppConfigContext));
 
             //处理退款单状态
             this.processChannelMsg(channelRetMsg, transferOrder);
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.idempotent;
+
+/**
+* 幂等键存储 接口定义
+*/
+public interface IIdempotentKeyStore {
+
+    String YML_STORE_KEY = "isys.idempotent.store";
+
+    String STORE_REDIS = "redis";
+    String STORE_LOCAL = "local";
+
+    /** 占用幂等键（原子操作）， 返回true表示占用成功， false表示该键已存在 **/
+    boolean reserve(String key, long expireSeconds);
+
+    /** 释放幂等键 **/
+    void release(String key);
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.idempotent;
+
+import com.jeequan.jeepay.pay.config.IdempotentYmlConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+* 幂等键存储： 进程内有界缓存实现， 仅适用于单节点部署
+*
+* 按照插入顺序淘汰， 超出 localMaxSize 时淘汰最早的键（淘汰后由数据库唯一索引兜底）。
+*/
+@Component
+@ConditionalOnProperty(name = IIdempotentKeyStore.YML_STORE_KEY, havingValue = IIdempotentKeyStore.STORE_LOCAL)
+public class LocalIdempotentKeyStore implements IIdempotentKeyStore {
+
+    @Autowired private IdempotentYmlConfig idempotentYmlConfig;
+
+    /** key -> 过期时间戳（ms） **/
+    private final Map<String, Long> keyMap = new LinkedHashMap<String, Long>(){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > idempotentYmlConfig.getLocalMaxSize();
+        }
+    };
+
+    @Override
+    public synchronized boolean reserve(String key, long expireSeconds) {
+
+        long now = System.currentTimeMillis();
+        Long expireTime = keyMap.get(key);
+        if(expireTime != null && expireTime > now){
+            return false;
+        }
+
+        // 已过期的键需要先删除， 保证重新放入后处于队尾
+        if(expireTime != null){
+            keyMap.remove(key);
+        }
+        keyMap.put(key, now + expireSeconds * 1000);
+        return true;
+    }
+
+    @Override
+    public synchronized void release(String key) {
+        keyMap.remove(key);
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.idempotent;
+
+import com.jeequan.jeepay.core.cache.RedisUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+* 幂等键存储： Redis实现 （ SET NX EX ）， 适用于多节点部署
+*/
+@Component
+@ConditionalOnProperty(name = IIdempotentKeyStore.YML_STORE_KEY, havingValue = IIdempotentKeyStore.STORE_REDIS)
+public class RedisIdempotentKeyStore implements IIdempotentKeyStore {
+
+    @Override
+    public boolean reserve(String key, long expireSeconds) {
+        return RedisUtil.setIfAbsent(key, "1", expireSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void release(String key) {
+        RedisUtil.del(key);
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.jeequan.jeepay.pay.model;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import com.alipay.api.*;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.model.params.alipay.AlipayConfig;
@@ -23,9 +24,11 @@ import com.jeequan.jeepay.core.model.params.alipay.AlipayNormalMchParams;
 import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import com.jeequan.jeepay.pay.exception.ChannelException;
 import com.jeequan.jeepay.pay.util.ChannelCertConfigKitBean;
+import com.jeequan.jeepay.pay.util.ChannelClientPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
 /*
 * 支付宝Client 包装类
@@ -86,6 +89,27 @@ public class AlipayClientWrapper {
     public static AlipayClientWrapper buildAlipayClientWrapper(Byte useCert, Byte sandbox, String appId, String privateKey, String alipayPublicKey, String signType, String appCert,
                                                          String alipayPublicCert, String alipayRootCert){
 
+        boolean isCert = useCert != null && useCert == CS.YES;
+
+        // 凭证相同的配置共享同一个client
+        AlipayClientWrapper wrapper = ChannelClientPool.getOrCreate(CS.IF_CODE.ALIPAY,
+                () -> {
+                    AlipayClientWrapper created = createAlipayClientWrapper(useCert, sandbox, appId, privateKey, alipayPublicKey, signType, appCert, alipayPublicCert, alipayRootCert);
+                    return created.getAlipayClient() == null ? null : created;
+                },
+                useCert, sandbox, appId, DigestUtil.sha256Hex(StringUtils.defaultString(privateKey)), alipayPublicKey, signType,
+                isCert ? ChannelClientPool.certFingerprint(appCert) : null,
+                isCert ? ChannelClientPool.certFingerprint(alipayPublicCert) : null,
+                isCert ? ChannelClientPool.certFingerprint(alipayRootCert) : null
+        );
+
+        return wrapper != null ? wrapper : new AlipayClientWrapper(useCert, null);
+    }
+
+    /** 创建支付宝client 包装类 **/
+    private static AlipayClientWrapper createAlipayClientWrapper(Byte useCert, Byte sandbox, String appId, String privateKey, String alipayPublicKey, String signType, String appCert,
+                                                         String alipayPublicCert, String alipayRootCert){
+
         //避免空值
         sandbox = sandbox == null ? CS.NO : sandbox;
 
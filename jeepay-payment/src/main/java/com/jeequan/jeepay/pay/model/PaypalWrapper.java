@@ -1,10 +1,13 @@
 package com.jeequan.jeepay.pay.model;
 
 import cn.hutool.json.JSONObject;
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.json.JSONUtil;
+import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.model.params.pppay.PppayNormalMchParams;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
+import com.jeequan.jeepay.pay.util.ChannelClientPool;
 import com.paypal.core.PayPalEnvironment;
 import com.paypal.core.PayPalHttpClient;
 import com.paypal.http.HttpResponse;
@@ -193,6 +196,14 @@ public class PaypalWrapper {
     }
 
     public static PaypalWrapper buildPaypalWrapper(PppayNormalMchParams ppPayNormalMchParams){
+
+        // 凭证相同的配置共享同一个client
+        return ChannelClientPool.getOrCreate(CS.IF_CODE.PPPAY, () -> createPaypalWrapper(ppPayNormalMchParams),
+                ppPayNormalMchParams.getClientId(), DigestUtil.sha256Hex(String.valueOf(ppPayNormalMchParams.getSecret())),
+                ppPayNormalMchParams.getSandbox(), ppPayNormalMchParams.getNotifyWebhook(), ppPayNormalMchParams.getRefundWebhook());
+    }
+
+    private static PaypalWrapper createPaypalWrapper(PppayNormalMchParams ppPayNormalMchParams){
         PaypalWrapper paypalWrapper = new PaypalWrapper();
         PayPalEnvironment environment = new PayPalEnvironment.Live(ppPayNormalMchParams.getClientId(), ppPayNormalMchParams.getSecret());
         if (ppPayNormalMchParams.getSandbox() == 1) {
@@ -15,6 +15,7 @@
  */
 package com.jeequan.jeepay.pay.model;
 
+import cn.hutool.crypto.digest.DigestUtil;
 import com.github.binarywang.wxpay.config.WxPayConfig;
 import com.github.binarywang.wxpay.constant.WxPayConstants;
 import com.github.binarywang.wxpay.service.WxPayService;
@@ -24,6 +25,7 @@ import com.jeequan.jeepay.core.model.params.wxpay.WxpayIsvParams;
 import com.jeequan.jeepay.core.model.params.wxpay.WxpayNormalMchParams;
 import com.jeequan.jeepay.core.utils.SpringBeansUtil;
 import com.jeequan.jeepay.pay.util.ChannelCertConfigKitBean;
+import com.jeequan.jeepay.pay.util.ChannelClientPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import me.chanjar.weixin.mp.api.WxMpService;
@@ -56,6 +58,24 @@ public class WxServiceWrapper {
                                                    String serialNo, String cert, String apiClientCert, String apiClientKey,
                                                          String wxpayPublicKeyId, String wxpayPublicKey){
 
+        // 凭证相同的配置共享同一个client
+        return ChannelClientPool.getOrCreate(CS.IF_CODE.WXPAY,
+                () -> createWxServiceWrapper(mchId, appId, appSecret, mchKey, apiVersion, apiV3Key, serialNo, cert, apiClientCert, apiClientKey, wxpayPublicKeyId, wxpayPublicKey),
+                mchId, appId, digest(appSecret), digest(mchKey), apiVersion, digest(apiV3Key), serialNo,
+                ChannelClientPool.certFingerprint(cert), ChannelClientPool.certFingerprint(apiClientCert), ChannelClientPool.certFingerprint(apiClientKey),
+                wxpayPublicKeyId, ChannelClientPool.certFingerprint(wxpayPublicKey)
+        );
+    }
+
+    private static String digest(String secret){
+        return secret == null ? null : DigestUtil.sha256Hex(secret);
+    }
+
+    /** 创建 wxService 包装类 **/
+    private static WxServiceWrapper createWxServiceWrapper(String mchId, String appId, String appSecret, String mchKey, String apiVersion, String apiV3Key,
+                                                   String serialNo, String cert, String apiClientCert, String apiClientKey,
+                                                         String wxpayPublicKeyId, String wxpayPublicKey){
+
         WxPayConfig wxPayConfig = new WxPayConfig();
         wxPayConfig.setMchId(mchId);
         wxPayConfig.setAppId(appId);
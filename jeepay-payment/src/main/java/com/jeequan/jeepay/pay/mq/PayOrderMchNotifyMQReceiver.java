@@ -20,16 +20,21 @@ import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.HttpUtil;
 import com.jeequan.jeepay.components.mq.model.PayOrderMchNotifyMQ;
-import com.jeequan.jeepay.components.mq.vender.IMQSender;
 import com.jeequan.jeepay.core.entity.MchNotifyRecord;
 import com.jeequan.jeepay.core.exception.BizException;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
+import com.jeequan.jeepay.pay.service.DelayRetryService;
+import com.jeequan.jeepay.pay.service.MchNotifyDispatcher;
+import com.jeequan.jeepay.pay.service.MchNotifyHostBreaker;
 import com.jeequan.jeepay.service.impl.MchNotifyRecordService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 接收MQ消息
@@ -42,12 +47,21 @@ import java.util.Map;
 @Component
 public class PayOrderMchNotifyMQReceiver implements PayOrderMchNotifyMQ.IMQReceiver {
 
+    /** 商户通知使用独立的连接池 **/
+    private static final String MCH_NOTIFY_POOL = "MCH_NOTIFY";
+
     @Autowired
     private PayOrderService payOrderService;
     @Autowired
     private MchNotifyRecordService mchNotifyRecordService;
     @Autowired
-    private IMQSender mqSender;
+    private ChannelHttpClient channelHttpClient;
+    @Autowired
+    private MchNotifyDispatcher mchNotifyDispatcher;
+    @Autowired
+    private DelayRetryService delayRetryService;
+    @Autowired
+    private MchNotifyHostBreaker mchNotifyHostBreaker;
 
     @Override
     public void receive(PayOrderMchNotifyMQ.MsgPayload payload) {
@@ -59,10 +73,12 @@ public class PayOrderMchNotifyMQReceiver implements PayOrderMchNotifyMQ.IMQRecei
             MchNotifyRecord record = mchNotifyRecordService.getById(notifyId);
             if(record == null || record.getState() != MchNotifyRecord.STATE_ING){
                 log.info("查询通知记录不存在或状态不是通知中");
+                mchNotifyHostBreaker.onSkip(notifyId);
                 return;
             }
             if( record.getNotifyCount() >= record.getNotifyCountLimit() ){
                 log.info("已达到最大发送次数");
+                mchNotifyHostBreaker.onSkip(notifyId);
                 return;
             }
 
@@ -70,47 +86,101 @@ public class PayOrderMchNotifyMQReceiver implements PayOrderMchNotifyMQ.IMQRecei
             Integer currentCount = record.getNotifyCount() + 1;
 
             String notifyUrl = record.getNotifyUrl();
-            String res = "";
+            String targetUrl;
+            byte[] formBody;
             try {
-                // res = HttpUtil.createPost(notifyUrl).timeout(20000).execute().body();
-
-                String host = notifyUrl.split("\\?")[0];
-                Map bodyMap = HttpUtil.decodeParamMap(notifyUrl, CharsetUtil.CHARSET_UTF_8);
-                res = HttpUtil.post(host, bodyMap, 20000);
-
+                if(record.getNotifyBody() != null){ // 通知参数已预先编码为请求体
+                    targetUrl = notifyUrl;
+                    formBody = record.getNotifyBody().getBytes(StandardCharsets.UTF_8);
+                }else{ // 兼容历史记录： 通知参数拼接在通知地址中
+                    targetUrl = notifyUrl.split("\\?")[0];
+                    Map bodyMap = HttpUtil.decodeParamMap(notifyUrl, CharsetUtil.CHARSET_UTF_8);
+                    formBody = ChannelHttpClient.buildForm(bodyMap).getBytes(StandardCharsets.UTF_8);
+                }
             } catch (Exception e) {
-                log.error("http error", e);
-                res = "连接["+ UrlBuilder.of(notifyUrl).getHost() +"]异常:【" + e.getMessage() + "】";
+                onNotifyResult(record, currentCount, notifyErrorMsg(notifyUrl, e));
+                return;
             }
 
-            //支付订单 & 第一次通知: 更新为已通知
-            if(currentCount == 1 && MchNotifyRecord.TYPE_PAY_ORDER == record.getOrderType()){
-                payOrderService.updateNotifySent(record.getOrderId());
+            // 通知地址熔断中： 暂存， 不消耗通知次数
+            String hostKey = MchNotifyHostBreaker.getHostKey(targetUrl);
+            MchNotifyHostBreaker.Admit admit = mchNotifyHostBreaker.tryAcquire(hostKey, notifyId);
+            if(admit == MchNotifyHostBreaker.Admit.PARKED){
+                log.info("商户通知地址[{}]熔断中， 暂存通知， notifyId={}", hostKey, notifyId);
+                mchNotifyRecordService.updateLastNotifyTime(notifyId); // 避免其他节点的兜底扫描立即重发
+                return;
             }
-
-            //通知成功
-            if("SUCCESS".equalsIgnoreCase(res)){
-                mchNotifyRecordService.updateNotifyResult(notifyId, MchNotifyRecord.STATE_SUCCESS, res);
+            if(admit == MchNotifyHostBreaker.Admit.FULL){
+                onNotifyResult(record, currentCount, "连接["+ hostKey +"]熔断中， 暂存通知数已达上限");
                 return;
             }
 
-            //通知次数 >= 最大通知次数时， 更新响应结果为异常， 不在继续延迟发送消息
-            if( currentCount >= record.getNotifyCountLimit() ){
-                mchNotifyRecordService.updateNotifyResult(notifyId, MchNotifyRecord.STATE_FAIL, res);
+            // 异步发送： 消费线程直接返回， 请求完成后在回调线程中处理结果
+            if(mchNotifyDispatcher.isEnabled()){
+
+                // 更新最后通知时间， 避免排队期间被兜底任务判定为超时而重复发送
+                mchNotifyRecordService.updateLastNotifyTime(notifyId);
+
+                boolean accepted = mchNotifyDispatcher.dispatch(notifyId, targetUrl, formBody, (res, e) -> {
+                    if(!(e instanceof RejectedExecutionException)){ // 本地队列已满， 未发起请求
+                        mchNotifyHostBreaker.onResult(hostKey, notifyId, e == null);
+                    }
+                    onNotifyResult(record, currentCount, e == null ? res : notifyErrorMsg(notifyUrl, e));
+                });
+                if(!accepted){
+                    log.info("商户通知[{}]已在发送队列中， 忽略本次消息", notifyId);
+                }
                 return;
             }
 
-            // 继续发送MQ 延迟发送
-            mchNotifyRecordService.updateNotifyResult(notifyId, MchNotifyRecord.STATE_ING, res);
-            // 通知延时次数
-            //        1   2  3  4   5   6
-            //        0  30 60 90 120 150
-            mqSender.send(PayOrderMchNotifyMQ.build(notifyId), currentCount * 30);
+            String res;
+            try {
+                res = channelHttpClient.post(MCH_NOTIFY_POOL, targetUrl, ChannelHttpClient.CONTENT_TYPE_FORM, formBody, 20000);
+                mchNotifyHostBreaker.onResult(hostKey, notifyId, true);
+            } catch (Exception e) {
+                mchNotifyHostBreaker.onResult(hostKey, notifyId, false);
+                res = notifyErrorMsg(notifyUrl, e);
+            }
+            onNotifyResult(record, currentCount, res);
 
-            return;
         }catch (Exception e) {
             log.error(e.getMessage(), e);
             return;
         }
     }
+
+    /** 处理通知结果： 更新通知记录， 未成功且未达到最大通知次数时延迟重发 **/
+    private void onNotifyResult(MchNotifyRecord record, Integer currentCount, String res){
+
+        //支付订单 & 第一次通知: 更新为已通知
+        if(currentCount == 1 && MchNotifyRecord.TYPE_PAY_ORDER == record.getOrderType()){
+            payOrderService.updateNotifySent(record.getOrderId());
+        }
+
+        //通知成功
+        if("SUCCESS".equalsIgnoreCase(res)){
+            mchNotifyRecordService.updateNotifyResult(record.getNotifyId(), MchNotifyRecord.STATE_SUCCESS, res);
+            return;
+        }
+
+        //通知次数 >= 最大通知次数时， 更新响应结果为异常， 不在继续延迟发送消息
+        if( currentCount >= record.getNotifyCountLimit() ){
+            mchNotifyRecordService.updateNotifyResult(record.getNotifyId(), MchNotifyRecord.STATE_FAIL, res);
+            return;
+        }
+
+        // 继续发送MQ 延迟发送
+        mchNotifyRecordService.updateNotifyResult(record.getNotifyId(), MchNotifyRecord.STATE_ING, res);
+        // 通知延时时间按照商户应用的通知重试策略（ 未配置时按照订单类型的系统配置 ）计算并随机抖动， 系统默认为：
+        //        1   2  3  4   5   6
+        //        0  30 60 90 120 150
+        Long notifyId = record.getNotifyId();
+        delayRetryService.send(PayOrderMchNotifyMQ.build(notifyId), delayRetryService.getNotifyDelaySeconds(record, currentCount),
+                () -> receive(new PayOrderMchNotifyMQ.MsgPayload(notifyId)));
+    }
+
+    private String notifyErrorMsg(String notifyUrl, Throwable e){
+        log.error("http error", e);
+        return "连接["+ UrlBuilder.of(notifyUrl).getHost() +"]异常:【" + e.getMessage() + "】";
+    }
 }
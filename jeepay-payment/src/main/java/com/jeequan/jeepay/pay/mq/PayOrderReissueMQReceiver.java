@@ -16,10 +16,10 @@
 package com.jeequan.jeepay.pay.mq;
 
 import com.jeequan.jeepay.components.mq.model.PayOrderReissueMQ;
-import com.jeequan.jeepay.components.mq.vender.IMQSender;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.pay.service.ChannelOrderReissueService;
+import com.jeequan.jeepay.pay.service.DelayRetryService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,12 +36,12 @@ import org.springframework.stereotype.Component;
 @Component
 public class PayOrderReissueMQReceiver implements PayOrderReissueMQ.IMQReceiver {
 
-    @Autowired
-    private IMQSender mqSender;
     @Autowired
     private PayOrderService payOrderService;
     @Autowired
     private ChannelOrderReissueService channelOrderReissueService;
+    @Autowired
+    private DelayRetryService delayRetryService;
 
 
     @Override
@@ -70,7 +70,9 @@ public class PayOrderReissueMQReceiver implements PayOrderReissueMQ.IMQReceiver
 
                 //最多查询6次
                 if(currentCount <= 6){
-                    mqSender.send(PayOrderReissueMQ.build(payOrderId, currentCount), 5); //延迟5s再次查询
+                    //延迟（默认5s）再次查询， 进程内延迟时由补单定时任务兜底
+                    PayOrderReissueMQ mqModel = PayOrderReissueMQ.build(payOrderId, currentCount);
+                    delayRetryService.send(mqModel, delayRetryService.getPayReissueDelaySeconds(currentCount), () -> receive(mqModel.getPayload()));
                 }else{
 
                     //TODO 调用【撤销订单】接口
@@ -16,7 +16,7 @@
 package com.jeequan.jeepay.pay.mq;
 
 import com.jeequan.jeepay.components.mq.model.ResetIsvMchAppInfoConfigMQ;
-import com.jeequan.jeepay.pay.service.ConfigContextService;
+import com.jeequan.jeepay.pay.service.ConfigSyncService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -33,40 +33,17 @@ import org.springframework.stereotype.Component;
 public class ResetIsvMchAppInfoMQReceiver implements ResetIsvMchAppInfoConfigMQ.IMQReceiver {
 
     @Autowired
-    private ConfigContextService configContextService;
+    private ConfigSyncService configSyncService;
 
     @Override
     public void receive(ResetIsvMchAppInfoConfigMQ.MsgPayload payload) {
 
-        if(payload.getResetType() == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_ISV_INFO){
-            this.modifyIsvInfo(payload.getIsvNo());
-        }else if(payload.getResetType() == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_INFO){
-            this.modifyMchInfo(payload.getMchNo());
-        }else if(payload.getResetType() == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP){
-            this.modifyMchApp(payload.getMchNo(), payload.getAppId());
-        }
+        log.info("成功接收 [服务商/商户/商户应用配置信息] 变更的消息, resetType={}, isvNo={}, mchNo={}, appId={}, ifCode={}, version={}",
+                payload.getResetType(), payload.getIsvNo(), payload.getMchNo(), payload.getAppId(), payload.getIfCode(), payload.getVersion());
 
-    }
-
-    /** 接收 [商户配置信息] 的消息 **/
-    private void modifyMchInfo(String mchNo) {
-        log.info("成功接收 [商户配置信息] 的消息, msg={}", mchNo);
-        configContextService.initMchInfoConfigContext(mchNo);
-        log.info(" [商户配置信息] 已重置");
-    }
-
-    /** 接收 [商户应用支付参数配置信息] 的消息 **/
-    private void modifyMchApp(String mchNo, String appId) {
-        log.info("成功接收 [商户应用支付参数配置信息] 的消息, mchNo={}, appId={}", mchNo, appId);
-        configContextService.initMchAppConfigContext(mchNo, appId);
-        log.info(" [商户应用支付参数配置信息] 已重置");
-    }
+        configSyncService.onChange(payload);
 
-    /** 重置ISV信息 **/
-    private void modifyIsvInfo(String isvNo) {
-        log.info("成功接收 [ISV信息] 重置, msg={}", isvNo);
-        configContextService.initIsvConfigContext(isvNo);
-        log.info("[ISV信息] 已重置");
+        log.info(" [服务商/商户/商户应用配置信息] 已重置");
     }
 
 }
@@ -17,9 +17,11 @@ package com.jeequan.jeepay.pay.service;
 
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.entity.RefundOrder;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelInvoker;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IPayOrderQueryService;
 import com.jeequan.jeepay.pay.channel.IRefundService;
+import com.jeequan.jeepay.pay.config.ReissueYmlConfig;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
 import com.jeequan.jeepay.service.impl.PayOrderService;
@@ -27,6 +29,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
 /*
 * 查询上游订单， &  补单服务实现类
 *
@@ -43,6 +52,84 @@ public class ChannelOrderReissueService {
     @Autowired private PayOrderService payOrderService;
     @Autowired private PayOrderProcessService payOrderProcessService;
     @Autowired private RefundOrderProcessService refundOrderProcessService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ChannelInvoker channelInvoker;
+    @Autowired private ReissueYmlConfig reissueYmlConfig;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
+
+    /** 批量补单的查询线程池 **/
+    private volatile ExecutorService reissueExecutor;
+
+    /**
+     * 批量处理订单： 按照 （支付接口, 商户应用） 分组， 支持批量查询的渠道按照 getBatchQuerySize 合并为一次查询；
+     * 每个支付接口(ifCode)的并发数不超过 maxPerIfCode， 全部线程数不超过 threads。  全部订单处理完成后返回。
+     */
+    public void processPayOrders(List<PayOrder> payOrders){
+
+        Map<String, List<List<PayOrder>>> ifCodeBatchMap = new HashMap<>();
+
+        Map<String, List<PayOrder>> mchAppMap = payOrders.stream().collect(Collectors.groupingBy(
+                payOrder -> payOrder.getIfCode() + "_" + payOrder.getMchNo() + "_" + payOrder.getAppId(), LinkedHashMap::new, Collectors.toList()));
+
+        for (List<PayOrder> mchAppOrders : mchAppMap.values()) {
+
+            String ifCode = mchAppOrders.get(0).getIfCode();
+            IPayOrderQueryService queryService = channelServiceRegistry.getService(ifCode, IPayOrderQueryService.class);
+            int batchSize = queryService == null ? 1 : Math.max(queryService.getBatchQuerySize(), 1);
+
+            List<List<PayOrder>> batchList = ifCodeBatchMap.computeIfAbsent(String.valueOf(ifCode), key -> new ArrayList<>());
+            for (int i = 0; i < mchAppOrders.size(); i += batchSize) {
+                batchList.add(mchAppOrders.subList(i, Math.min(i + batchSize, mchAppOrders.size())));
+            }
+        }
+
+        executeGrouped(ifCodeBatchMap, batch -> {
+            if(batch.size() == 1){
+                processPayOrder(batch.get(0));
+            }else{
+                processPayOrderBatch(batch);
+            }
+        });
+    }
+
+    /**
+     * 分组并发执行（ 分组一般为支付接口ifCode ）： 同一分组的任务由多个工作任务共同消费， 工作任务数即为该分组的并发数（ 不超过 maxPerIfCode ），
+     * 全部线程数不超过 threads。  全部任务执行完成后返回。
+     */
+    public <T> void executeGrouped(Map<String, List<T>> groupMap, Consumer<T> action){
+
+        int maxPerIfCode = Math.max(reissueYmlConfig.getMaxPerIfCode(), 1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<T> items : groupMap.values()) {
+
+            Queue<T> queue = new ConcurrentLinkedQueue<>(items);
+            int workers = Math.min(maxPerIfCode, items.size());
+            for (int i = 0; i < workers; i++) {
+                futures.add(getReissueExecutor().submit(() -> {
+                    T item;
+                    while ((item = queue.poll()) != null){
+                        try {
+                            action.accept(item);
+                        } catch (Exception e) {
+                            log.error("补单任务执行异常", e);
+                        }
+                    }
+                }));
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("补单任务执行异常", e.getCause());
+            }
+        }
+    }
 
 
     /** 处理订单 **/
@@ -50,10 +137,8 @@ public class ChannelOrderReissueService {
 
         try {
 
-            String payOrderId = payOrder.getPayOrderId();
-
             //查询支付接口是否存在
-            IPayOrderQueryService queryService = SpringBeansUtil.getBean(payOrder.getIfCode() + "PayOrderQueryService", IPayOrderQueryService.class);
+            IPayOrderQueryService queryService = channelServiceRegistry.getService(payOrder.getIfCode(), IPayOrderQueryService.class);
 
             // 支付通道接口实现不存在
             if(queryService == null){
@@ -64,35 +149,80 @@ public class ChannelOrderReissueService {
             //查询出商户应用的配置信息
             MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(payOrder.getMchNo(), payOrder.getAppId());
 
-            ChannelRetMsg channelRetMsg = queryService.query(payOrder, mchAppConfigContext);
+            ChannelRetMsg channelRetMsg = channelInvoker.invoke(payOrder.getIfCode(), () -> queryService.query(payOrder, mchAppConfigContext));
             if(channelRetMsg == null){
                 log.error("channelRetMsg is null");
                 return null;
             }
 
-            log.info("补单[{}]查询结果为：{}", payOrderId, channelRetMsg);
+            processPayOrderQueryResult(payOrder, channelRetMsg);
+            return channelRetMsg;
+
+        } catch (Exception e) {  //继续下一次迭代查询
+            log.error("error payOrderId = {}", payOrder.getPayOrderId(), e);
+            return null;
+        }
 
-            // 查询成功
-            if(channelRetMsg.getChannelState() == ChannelRetMsg.ChannelState.CONFIRM_SUCCESS) {
-                if (payOrderService.updateIng2Success(payOrderId, channelRetMsg.getChannelOrderId(), channelRetMsg.getChannelUserId())) {
+    }
 
-                    //订单支付成功，其他业务逻辑
-                    payOrderProcessService.confirmSuccess(payOrder);
-                }
-            }else if(channelRetMsg.getChannelState() == ChannelRetMsg.ChannelState.CONFIRM_FAIL){  //确认失败
+    /** 批量处理同一商户应用的订单 （ 一次调用渠道批量查询接口 ） **/
+    private void processPayOrderBatch(List<PayOrder> payOrders){
 
-                //1. 更新支付订单表为失败状态
-                payOrderService.updateIng2Fail(payOrderId, channelRetMsg.getChannelOrderId(), channelRetMsg.getChannelUserId(), channelRetMsg.getChannelErrCode(), channelRetMsg.getChannelErrMsg());
+        PayOrder first = payOrders.get(0);
 
+        Map<String, ChannelRetMsg> resultMap;
+        try {
+            IPayOrderQueryService queryService = channelServiceRegistry.getService(first.getIfCode(), IPayOrderQueryService.class);
+            MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(first.getMchNo(), first.getAppId());
+
+            resultMap = channelInvoker.invoke(first.getIfCode(), () -> queryService.batchQuery(payOrders, mchAppConfigContext));
+            if(resultMap == null){
+                log.error("批量补单[{}] resultMap is null", first.getIfCode());
+                return;
             }
 
-            return channelRetMsg;
+        } catch (Exception e) {  // 批量查询异常， 改为逐笔查询
+            log.error("批量补单异常， 改为逐笔查询。 ifCode = {}, size = {}", first.getIfCode(), payOrders.size(), e);
+            payOrders.forEach(this::processPayOrder);
+            return;
+        }
 
-        } catch (Exception e) {  //继续下一次迭代查询
-            log.error("error payOrderId = {}", payOrder.getPayOrderId(), e);
-            return null;
+        for (PayOrder payOrder : payOrders) {
+
+            ChannelRetMsg channelRetMsg = resultMap.get(payOrder.getPayOrderId());
+            if(channelRetMsg == null){
+                continue;
+            }
+
+            try {
+                processPayOrderQueryResult(payOrder, channelRetMsg);
+            } catch (Exception e) {
+                log.error("error payOrderId = {}", payOrder.getPayOrderId(), e);
+            }
         }
+    }
+
+    /** 根据上游查询结果更新订单 **/
+    private void processPayOrderQueryResult(PayOrder payOrder, ChannelRetMsg channelRetMsg){
 
+        String payOrderId = payOrder.getPayOrderId();
+
+        log.info("补单[{}]查询结果为：{}", payOrderId, channelRetMsg);
+
+        // 查询成功
+        if(channelRetMsg.getChannelState() == ChannelRetMsg.ChannelState.CONFIRM_SUCCESS) {
+            if (payOrderService.updateIng2Success(payOrderId, channelRetMsg.getChannelOrderId(), channelRetMsg.getChannelUserId())) {
+
+                //订单支付成功，其他业务逻辑
+                payOrderProcessService.confirmSuccess(payOrder);
+            }
+        }else if(channelRetMsg.getChannelState() == ChannelRetMsg.ChannelState.CONFIRM_FAIL){  //确认失败
+
+            //1. 更新支付订单表为失败状态
+            payOrderService.updateIng2Fail(payOrderId, channelRetMsg.getChannelOrderId(), channelRetMsg.getChannelUserId(), channelRetMsg.getChannelErrCode(), channelRetMsg.getChannelErrMsg());
+            payOrderExpireScheduler.remove(payOrderId);
+
+        }
     }
 
     /** 处理退款订单 **/
@@ -103,7 +233,7 @@ public class ChannelOrderReissueService {
             String refundOrderId = refundOrder.getRefundOrderId();
 
             //查询支付接口是否存在
-            IRefundService queryService = SpringBeansUtil.getBean(refundOrder.getIfCode() + "RefundService", IRefundService.class);
+            IRefundService queryService = channelServiceRegistry.getService(refundOrder.getIfCode(), IRefundService.class);
 
             // 支付通道接口实现不存在
             if(queryService == null){
@@ -114,7 +244,7 @@ public class ChannelOrderReissueService {
             //查询出商户应用的配置信息
             MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(refundOrder.getMchNo(), refundOrder.getAppId());
 
-            ChannelRetMsg channelRetMsg = queryService.query(refundOrder, mchAppConfigContext);
+            ChannelRetMsg channelRetMsg = channelInvoker.invoke(refundOrder.getIfCode(), () -> queryService.query(refundOrder, mchAppConfigContext));
             if(channelRetMsg == null){
                 log.error("退款补单：channelRetMsg is null");
                 return null;
@@ -133,5 +263,28 @@ public class ChannelOrderReissueService {
 
     }
 
+    private ExecutorService getReissueExecutor(){
+
+        if(reissueExecutor == null){
+            synchronized (this){
+                if(reissueExecutor == null){
+                    AtomicInteger threadNo = new AtomicInteger();
+                    reissueExecutor = Executors.newFixedThreadPool(Math.max(reissueYmlConfig.getThreads(), 1), r -> {
+                        Thread thread = new Thread(r, "reissue-" + threadNo.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return reissueExecutor;
+    }
+
+    @PreDestroy
+    public void destroy(){
+        if(reissueExecutor != null){
+            reissueExecutor.shutdownNow();
+        }
+    }
 
 }
@@ -15,6 +15,7 @@
  */
 package com.jeequan.jeepay.pay.service;
 
+import cn.hutool.core.lang.func.Func0;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.MchApp;
 import com.jeequan.jeepay.core.entity.MchInfo;
@@ -37,7 +38,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /*
-* 配置信息查询服务 （兼容 缓存 和 直接查询方式）
+* 配置信息查询服务 （兼容 缓存、 有效期缓存 和 直接查询方式）
 *
 * @author terrfly
 * @site https://www.jeequan.com
@@ -51,22 +52,33 @@ public class ConfigContextQueryService {
     @Autowired private MchInfoService mchInfoService;
     @Autowired private MchAppService mchAppService;
     @Autowired private PayInterfaceConfigService payInterfaceConfigService;
+    @Autowired private ConfigTtlCacheService configTtlCacheService;
 
     private boolean isCache(){
         return SysConfigService.IS_USE_CACHE;
     }
 
+    /** 未开启全局缓存时： 启用有效期缓存则从缓存读取， 否则直接加载 **/
+    private <T> T ttlCacheOrLoad(String key, Func0<T> loader){
+
+        if(configTtlCacheService.isEnabled()){
+            return configTtlCacheService.get(key, loader);
+        }
+        return loader.callWithRuntimeException();
+    }
+
     public MchApp queryMchApp(String mchNo, String mchAppId){
 
         if(isCache()){
             return configContextService.getMchAppConfigContext(mchNo, mchAppId).getMchApp();
         }
 
-        return mchAppService.getOneByMch(mchNo, mchAppId);
+        return ttlCacheOrLoad("MCH_APP_" + mchNo + "_" + mchAppId, () -> mchAppService.getOneByMch(mchNo, mchAppId));
     }
 
     public MchAppConfigContext queryMchInfoAndAppInfo(String mchAppId) {
-        return queryMchInfoAndAppInfo(mchAppService.getById(mchAppId).getMchNo(), mchAppId);
+        MchApp mchApp = ttlCacheOrLoad("MCH_APP_" + mchAppId, () -> mchAppService.getById(mchAppId));
+        return queryMchInfoAndAppInfo(mchApp.getMchNo(), mchAppId);
     }
 
     public MchAppConfigContext queryMchInfoAndAppInfo(String mchNo, String mchAppId){
@@ -75,7 +87,7 @@ public class ConfigContextQueryService {
             return configContextService.getMchAppConfigContext(mchNo, mchAppId);
         }
 
-        MchInfo mchInfo = mchInfoService.getById(mchNo);
+        MchInfo mchInfo = ttlCacheOrLoad("MCH_INFO_" + mchNo, () -> mchInfoService.getById(mchNo));
         MchApp mchApp = queryMchApp(mchNo, mchAppId);
 
         if(mchInfo == null || mchApp == null){
@@ -100,20 +112,23 @@ public class ConfigContextQueryService {
             return configContextService.getMchAppConfigContext(mchNo, mchAppId).getNormalMchParamsByIfCode(ifCode);
         }
 
-        // 查询商户的所有支持的参数配置
-        PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
-                .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
-                .eq(PayInterfaceConfig::getState, CS.YES)
-                .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
-                .eq(PayInterfaceConfig::getInfoId, mchAppId)
-                .eq(PayInterfaceConfig::getIfCode, ifCode)
-        );
+        return ttlCacheOrLoad("NORMAL_MCH_PARAMS_" + mchAppId + "_" + ifCode, () -> {
 
-        if(payInterfaceConfig == null){
-            return null;
-        }
+            // 查询商户的所有支持的参数配置
+            PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
+                    .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
+                    .eq(PayInterfaceConfig::getState, CS.YES)
+                    .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
+                    .eq(PayInterfaceConfig::getInfoId, mchAppId)
+                    .eq(PayInterfaceConfig::getIfCode, ifCode)
+            );
+
+            if(payInterfaceConfig == null){
+                return null;
+            }
 
-        return NormalMchParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+            return NormalMchParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+        });
     }
 
 
@@ -123,20 +138,23 @@ public class ConfigContextQueryService {
             return configContextService.getMchAppConfigContext(mchNo, mchAppId).getIsvsubMchParamsByIfCode(ifCode);
         }
 
-        // 查询商户的所有支持的参数配置
-        PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
-                .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
-                .eq(PayInterfaceConfig::getState, CS.YES)
-                .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
-                .eq(PayInterfaceConfig::getInfoId, mchAppId)
-                .eq(PayInterfaceConfig::getIfCode, ifCode)
-        );
+        return ttlCacheOrLoad("ISVSUB_MCH_PARAMS_" + mchAppId + "_" + ifCode, () -> {
 
-        if(payInterfaceConfig == null){
-            return null;
-        }
+            // 查询商户的所有支持的参数配置
+            PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
+                    .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
+                    .eq(PayInterfaceConfig::getState, CS.YES)
+                    .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
+                    .eq(PayInterfaceConfig::getInfoId, mchAppId)
+                    .eq(PayInterfaceConfig::getIfCode, ifCode)
+            );
+
+            if(payInterfaceConfig == null){
+                return null;
+            }
 
-        return IsvsubMchParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+            return IsvsubMchParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+        });
     }
 
 
@@ -148,20 +166,23 @@ public class ConfigContextQueryService {
             return isvConfigContext == null ? null : isvConfigContext.getIsvParamsByIfCode(ifCode);
         }
 
-        // 查询商户的所有支持的参数配置
-        PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
-                .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
-                .eq(PayInterfaceConfig::getState, CS.YES)
-                .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_ISV)
-                .eq(PayInterfaceConfig::getInfoId, isvNo)
-                .eq(PayInterfaceConfig::getIfCode, ifCode)
-        );
+        return ttlCacheOrLoad("ISV_PARAMS_" + isvNo + "_" + ifCode, () -> {
 
-        if(payInterfaceConfig == null){
-            return null;
-        }
+            // 查询商户的所有支持的参数配置
+            PayInterfaceConfig payInterfaceConfig = payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
+                    .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
+                    .eq(PayInterfaceConfig::getState, CS.YES)
+                    .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_ISV)
+                    .eq(PayInterfaceConfig::getInfoId, isvNo)
+                    .eq(PayInterfaceConfig::getIfCode, ifCode)
+            );
+
+            if(payInterfaceConfig == null){
+                return null;
+            }
 
-        return IsvParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+            return IsvParams.factory(payInterfaceConfig.getIfCode(), payInterfaceConfig.getIfParams());
+        });
 
     }
 
@@ -174,12 +195,17 @@ public class ConfigContextQueryService {
 
         if(mchAppConfigContext.isIsvsubMch()){
 
-            AlipayIsvParams alipayParams = (AlipayIsvParams)queryIsvParams(mchAppConfigContext.getMchInfo().getIsvNo(), CS.IF_CODE.ALIPAY);
-            return AlipayClientWrapper.buildAlipayClientWrapper(alipayParams);
+            String isvNo = mchAppConfigContext.getMchInfo().getIsvNo();
+            return ttlCacheOrLoad("ALIPAY_CLIENT_ISV_" + isvNo, () -> {
+                AlipayIsvParams alipayParams = (AlipayIsvParams)queryIsvParams(isvNo, CS.IF_CODE.ALIPAY);
+                return AlipayClientWrapper.buildAlipayClientWrapper(alipayParams);
+            });
         }else{
 
-            AlipayNormalMchParams alipayParams = (AlipayNormalMchParams)queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.ALIPAY);
-            return AlipayClientWrapper.buildAlipayClientWrapper(alipayParams);
+            return ttlCacheOrLoad("ALIPAY_CLIENT_APP_" + mchAppConfigContext.getAppId(), () -> {
+                AlipayNormalMchParams alipayParams = (AlipayNormalMchParams)queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.ALIPAY);
+                return AlipayClientWrapper.buildAlipayClientWrapper(alipayParams);
+            });
         }
 
     }
@@ -193,12 +219,17 @@ public class ConfigContextQueryService {
 
         if(mchAppConfigContext.isIsvsubMch()){
 
-            WxpayIsvParams wxParams = (WxpayIsvParams)queryIsvParams(mchAppConfigContext.getMchInfo().getIsvNo(), CS.IF_CODE.WXPAY);
-            return WxServiceWrapper.buildWxServiceWrapper(wxParams);
+            String isvNo = mchAppConfigContext.getMchInfo().getIsvNo();
+            return ttlCacheOrLoad("WX_SERVICE_ISV_" + isvNo, () -> {
+                WxpayIsvParams wxParams = (WxpayIsvParams)queryIsvParams(isvNo, CS.IF_CODE.WXPAY);
+                return WxServiceWrapper.buildWxServiceWrapper(wxParams);
+            });
         }else{
 
-            WxpayNormalMchParams wxParams = (WxpayNormalMchParams)queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.WXPAY);
-            return WxServiceWrapper.buildWxServiceWrapper(wxParams);
+            return ttlCacheOrLoad("WX_SERVICE_APP_" + mchAppConfigContext.getAppId(), () -> {
+                WxpayNormalMchParams wxParams = (WxpayNormalMchParams)queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.WXPAY);
+                return WxServiceWrapper.buildWxServiceWrapper(wxParams);
+            });
         }
 
     }
@@ -208,8 +239,10 @@ public class ConfigContextQueryService {
             return
                     configContextService.getMchAppConfigContext(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId()).getPaypalWrapper();
         }
-        PppayNormalMchParams ppPayNormalMchParams = (PppayNormalMchParams) queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.PPPAY);;
-        return PaypalWrapper.buildPaypalWrapper(ppPayNormalMchParams);
+        return ttlCacheOrLoad("PAYPAL_CLIENT_APP_" + mchAppConfigContext.getAppId(), () -> {
+            PppayNormalMchParams ppPayNormalMchParams = (PppayNormalMchParams) queryNormalMchParams(mchAppConfigContext.getMchNo(), mchAppConfigContext.getAppId(), CS.IF_CODE.PPPAY);
+            return PaypalWrapper.buildPaypalWrapper(ppPayNormalMchParams);
+        });
 
     }
 
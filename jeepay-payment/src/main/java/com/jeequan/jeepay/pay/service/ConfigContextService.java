@@ -34,14 +34,19 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /*
 * 商户/服务商 配置信息上下文服务
 *
+* 按照 商户号/应用ID/服务商号 分别加载（ single-flight ）： 不同的key并行加载， 相同key的并发加载合并为一次；
+* 加载过程中读取方继续使用旧的配置对象， 新对象构建完成后整体替换。
+*
 * @author terrfly
 * @site https://www.jeequan.com
 * @date 2021/6/8 17:41
@@ -59,6 +64,13 @@ public class ConfigContextService {
     /** <服务商号, 服务商配置上下文>  **/
     private static final Map<String, IsvConfigContext> isvConfigContextMap = new ConcurrentHashMap<>();
 
+    /** <加载key, 正在进行的加载任务>  **/
+    private static final Map<String, LoadFlight> loadingMap = new ConcurrentHashMap<>();
+
+    private static final String LOAD_KEY_MCH_INFO = "MCH_INFO_";
+    private static final String LOAD_KEY_MCH_APP = "MCH_APP_";
+    private static final String LOAD_KEY_ISV = "ISV_";
+
     @Autowired private MchInfoService mchInfoService;
     @Autowired private MchAppService mchAppService;
     @Autowired private IsvInfoService isvInfoService;
@@ -72,7 +84,7 @@ public class ConfigContextService {
 
         //无此数据， 需要初始化
         if(mchInfoConfigContext == null){
-            initMchInfoConfigContext(mchNo);
+            singleFlightLoad(LOAD_KEY_MCH_INFO + mchNo, false, () -> loadMchInfoConfigContext(mchNo));
         }
 
         return mchInfoConfigContextMap.get(mchNo);
@@ -85,7 +97,7 @@ public class ConfigContextService {
 
         //无此数据， 需要初始化
         if(mchAppConfigContext == null){
-            initMchAppConfigContext(mchNo, appId);
+            singleFlightLoad(LOAD_KEY_MCH_APP + appId, false, () -> loadMchAppConfigContext(mchNo, appId, null, null));
         }
 
         return mchAppConfigContextMap.get(appId);
@@ -98,7 +110,7 @@ public class ConfigContextService {
 
         //无此数据， 需要初始化
         if(isvConfigContext == null){
-            initIsvConfigContext(isvNo);
+            singleFlightLoad(LOAD_KEY_ISV + isvNo, false, () -> loadIsvConfigContext(isvNo));
         }
 
         return isvConfigContextMap.get(isvNo);
@@ -106,7 +118,88 @@ public class ConfigContextService {
 
 
     /** 初始化 [商户配置信息] **/
-    public synchronized void initMchInfoConfigContext(String mchNo){
+    public void initMchInfoConfigContext(String mchNo){
+
+        if(!isCache()){ // 当前系统不进行缓存
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_MCH_INFO + mchNo, true, () -> loadMchInfoConfigContext(mchNo));
+    }
+
+    /** 初始化 [商户应用支付参数配置信息] **/
+    public void initMchAppConfigContext(String mchNo, String appId){
+
+        if(!isCache()){ // 当前系统不进行缓存
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_MCH_APP + appId, true, () -> loadMchAppConfigContext(mchNo, appId, null, null));
+    }
+
+    /** 初始化 [ISV支付参数配置信息]  **/
+    public void initIsvConfigContext(String isvNo){
+
+        if(!isCache()){ // 当前系统不进行缓存
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_ISV + isvNo, true, () -> loadIsvConfigContext(isvNo));
+    }
+
+
+    /** 更新 [ISV单个支付接口的参数]， 未缓存该服务商时无需处理 **/
+    public void refreshIsvParams(String isvNo, String ifCode){
+
+        if(!isCache() || !isvConfigContextMap.containsKey(isvNo)){
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_ISV + isvNo, true, () -> loadIsvParams(isvNo, ifCode));
+    }
+
+    /** 更新 [商户应用单个支付接口的参数]， 未缓存该应用时无需处理 **/
+    public void refreshMchAppParams(String appId, String ifCode){
+
+        if(!isCache() || !mchAppConfigContextMap.containsKey(appId)){
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_MCH_APP + appId, true, () -> loadMchAppParams(appId, ifCode));
+    }
+
+    /** 是否已缓存 [商户配置信息] **/
+    public boolean isMchInfoCached(String mchNo){
+        return mchInfoConfigContextMap.containsKey(mchNo);
+    }
+
+    /** 是否已缓存 [商户应用支付参数配置信息] **/
+    public boolean isMchAppCached(String appId){
+        return mchAppConfigContextMap.containsKey(appId);
+    }
+
+    /** 是否已缓存 [ISV支付参数配置信息] **/
+    public boolean isIsvCached(String isvNo){
+        return isvConfigContextMap.containsKey(isvNo);
+    }
+
+    /**
+     * 预热 [商户应用支付参数配置信息]， 使用调用方批量查询出的 商户应用 & 支付参数配置， 无需逐个查询
+     * 已缓存的应用不再重复加载。
+     * **/
+    public void warmUpMchAppConfigContext(MchApp mchApp, List<PayInterfaceConfig> ifConfigList){
+
+        if(!isCache() || mchAppConfigContextMap.containsKey(mchApp.getAppId())){
+            return ;
+        }
+
+        singleFlightLoad(LOAD_KEY_MCH_APP + mchApp.getAppId(), false,
+                () -> loadMchAppConfigContext(mchApp.getMchNo(), mchApp.getAppId(), mchApp, ifConfigList));
+    }
+
+
+    /** 加载 [商户配置信息] **/
+    private void loadMchInfoConfigContext(String mchNo){
 
         if(!isCache()){ // 当前系统不进行缓存
             return ;
@@ -138,20 +231,22 @@ public class ConfigContextService {
             //1. 更新商户内appId集合
             mchInfoConfigContext.putMchApp(mchApp);
 
-            MchAppConfigContext mchAppConfigContext = mchAppConfigContextMap.get(mchApp.getAppId());
-            if(mchAppConfigContext != null){
+            // 2. 已缓存的商户应用： 复制后整体替换， 不修改读取方正在使用的对象
+            mchAppConfigContextMap.computeIfPresent(mchApp.getAppId(), (appId, old) -> {
+                MchAppConfigContext mchAppConfigContext = copyMchAppConfigContext(old);
                 mchAppConfigContext.setMchApp(mchApp);
                 mchAppConfigContext.setMchNo(mchInfo.getMchNo());
                 mchAppConfigContext.setMchType(mchInfo.getType());
                 mchAppConfigContext.setMchInfo(mchInfo);
-            }
+                return mchAppConfigContext;
+            });
         });
 
         mchInfoConfigContextMap.put(mchNo, mchInfoConfigContext);
     }
 
-    /** 初始化 [商户应用支付参数配置信息] **/
-    public synchronized void initMchAppConfigContext(String mchNo, String appId){
+    /** 加载 [商户应用支付参数配置信息]， preloadMchApp & preloadConfigList 为null时查询DB **/
+    private void loadMchAppConfigContext(String mchNo, String appId, MchApp preloadMchApp, List<PayInterfaceConfig> preloadConfigList){
 
         if(!isCache()){ // 当前系统不进行缓存
             return ;
@@ -164,7 +259,7 @@ public class ConfigContextService {
         }
 
         // 查询商户应用信息主体
-        MchApp dbMchApp = mchAppService.getById(appId);
+        MchApp dbMchApp = preloadMchApp != null ? preloadMchApp : mchAppService.getById(appId);
 
         //DB已经删除
         if(dbMchApp == null){
@@ -194,7 +289,7 @@ public class ConfigContextService {
         mchAppConfigContext.setMchApp(dbMchApp);
 
         // 查询商户的所有支持的参数配置
-        List<PayInterfaceConfig> allConfigList = payInterfaceConfigService.list(PayInterfaceConfig.gw()
+        List<PayInterfaceConfig> allConfigList = preloadConfigList != null ? preloadConfigList : payInterfaceConfigService.list(PayInterfaceConfig.gw()
                 .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
                 .eq(PayInterfaceConfig::getState, CS.YES)
                 .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
@@ -245,37 +340,39 @@ public class ConfigContextService {
         }
 
         mchAppConfigContextMap.put(appId, mchAppConfigContext);
+
+        // 构建期间 商户主体/服务商 可能已被并行刷新（ 刷新时本应用尚未放入缓存 ）， 发布后再次校准为最新的对象
+        MchInfoConfigContext latestMchInfo = mchInfoConfigContextMap.get(mchNo);
+        if(latestMchInfo != null && latestMchInfo.getMchInfo() != mchInfo){
+            mchAppConfigContextMap.computeIfPresent(appId, (k, old) -> {
+                MchAppConfigContext result = copyMchAppConfigContext(old);
+                result.setMchInfo(latestMchInfo.getMchInfo());
+                result.setMchType(latestMchInfo.getMchType());
+                return result;
+            });
+        }
+        if(mchInfo.getType() != CS.MCH_TYPE_NORMAL){
+            IsvConfigContext latestIsv = isvConfigContextMap.get(mchInfo.getIsvNo());
+            if(latestIsv != mchAppConfigContext.getIsvConfigContext()){
+                replaceIsvConfigContext(appId, latestIsv);
+            }
+        }
     }
 
 
-    /** 初始化 [ISV支付参数配置信息]  **/
-    public synchronized void initIsvConfigContext(String isvNo){
+    /** 加载 [ISV支付参数配置信息]  **/
+    private void loadIsvConfigContext(String isvNo){
 
         if(!isCache()){ // 当前系统不进行缓存
             return ;
         }
 
-        //查询出所有商户的配置信息并更新
-        List<String> mchNoList = new ArrayList<>();
-        mchInfoService.list(MchInfo.gw().select(MchInfo::getMchNo).eq(MchInfo::getIsvNo, isvNo)).forEach(r -> mchNoList.add(r.getMchNo()));
-
-        // 查询出所有 所属当前服务商的所有应用集合
-        List<String> mchAppIdList = new ArrayList<>();
-        if(!mchNoList.isEmpty()){
-            mchAppService.list(MchApp.gw().select(MchApp::getAppId).in(MchApp::getMchNo, mchNoList)).forEach(r -> mchAppIdList.add(r.getAppId()));
-        }
-
         IsvConfigContext isvConfigContext = new IsvConfigContext();
         IsvInfo isvInfo = isvInfoService.getById(isvNo);
         if(isvInfo == null){
 
-            for (String appId : mchAppIdList) {
-                //将更新已存在缓存的商户配置信息 （每个商户下存储的为同一个 服务商配置的对象指针）
-                MchAppConfigContext mchAppConfigContext = mchAppConfigContextMap.get(appId);
-                if(mchAppConfigContext != null){
-                    mchAppConfigContext.setIsvConfigContext(null);
-                }
-            }
+            //将更新已存在缓存的商户配置信息 （每个商户下存储的为同一个 服务商配置的对象指针）
+            relinkIsvConfigContext(isvNo, null);
 
             isvConfigContextMap.remove(isvNo); // 服务商有商户不可删除， 此处不再更新商户下的配置信息
             return ;
@@ -314,16 +411,195 @@ public class ConfigContextService {
 
         isvConfigContextMap.put(isvNo, isvConfigContext);
 
-        //查询出所有商户的配置信息并更新
-        for (String appId : mchAppIdList) {
-            //将更新已存在缓存的商户配置信息 （每个商户下存储的为同一个 服务商配置的对象指针）
-            MchAppConfigContext mchAppConfigContext = mchAppConfigContextMap.get(appId);
-            if(mchAppConfigContext != null){
-                mchAppConfigContext.setIsvConfigContext(isvConfigContext);
+        //将更新已存在缓存的商户配置信息 （每个商户下存储的为同一个 服务商配置的对象指针）
+        relinkIsvConfigContext(isvNo, isvConfigContext);
+    }
+
+    /** 加载 [ISV单个支付接口的参数]， 仅替换该接口的参数及client **/
+    private void loadIsvParams(String isvNo, String ifCode){
+
+        IsvConfigContext old = isvConfigContextMap.get(isvNo);
+        if(old == null){ // 未缓存， 首次使用时全量加载
+            return ;
+        }
+
+        PayInterfaceConfig payInterfaceConfig = getEnabledInterfaceConfig(CS.INFO_TYPE_ISV, isvNo, ifCode);
+
+        IsvConfigContext isvConfigContext = new IsvConfigContext();
+        isvConfigContext.setIsvNo(old.getIsvNo());
+        isvConfigContext.setIsvInfo(old.getIsvInfo());
+        isvConfigContext.setIsvParamsMap(new HashMap<>(old.getIsvParamsMap()));
+        isvConfigContext.setAlipayClientWrapper(old.getAlipayClientWrapper());
+        isvConfigContext.setWxServiceWrapper(old.getWxServiceWrapper());
+
+        if(payInterfaceConfig == null){
+            isvConfigContext.getIsvParamsMap().remove(ifCode);
+        }else{
+            isvConfigContext.getIsvParamsMap().put(ifCode, IsvParams.factory(ifCode, payInterfaceConfig.getIfParams()));
+        }
+
+        if(CS.IF_CODE.ALIPAY.equals(ifCode)){
+            AlipayIsvParams alipayParams = isvConfigContext.getIsvParamsByIfCode(CS.IF_CODE.ALIPAY, AlipayIsvParams.class);
+            isvConfigContext.setAlipayClientWrapper(alipayParams == null ? null : AlipayClientWrapper.buildAlipayClientWrapper(alipayParams));
+        }else if(CS.IF_CODE.WXPAY.equals(ifCode)){
+            WxpayIsvParams wxpayParams = isvConfigContext.getIsvParamsByIfCode(CS.IF_CODE.WXPAY, WxpayIsvParams.class);
+            isvConfigContext.setWxServiceWrapper(wxpayParams == null ? null : WxServiceWrapper.buildWxServiceWrapper(wxpayParams));
+        }
+
+        isvConfigContextMap.put(isvNo, isvConfigContext);
+        relinkIsvConfigContext(isvNo, isvConfigContext);
+    }
+
+    /** 加载 [商户应用单个支付接口的参数]， 仅替换该接口的参数及client **/
+    private void loadMchAppParams(String appId, String ifCode){
+
+        PayInterfaceConfig payInterfaceConfig = getEnabledInterfaceConfig(CS.INFO_TYPE_MCH_APP, appId, ifCode);
+
+        // 商户/服务商刷新时会并行替换该应用的配置对象， 替换失败时基于最新对象重新构建
+        while (true){
+
+            MchAppConfigContext old = mchAppConfigContextMap.get(appId);
+            if(old == null){ // 未缓存， 首次使用时全量加载
+                return ;
+            }
+
+            MchAppConfigContext mchAppConfigContext = copyMchAppConfigContext(old);
+
+            if(old.isIsvsubMch()){
+
+                Map<String, IsvsubMchParams> paramsMap = new HashMap<>(old.getIsvsubMchParamsMap());
+                if(payInterfaceConfig == null){
+                    paramsMap.remove(ifCode);
+                }else{
+                    paramsMap.put(ifCode, IsvsubMchParams.factory(ifCode, payInterfaceConfig.getIfParams()));
+                }
+                mchAppConfigContext.setIsvsubMchParamsMap(paramsMap);
+
+            }else{
+
+                Map<String, NormalMchParams> paramsMap = new HashMap<>(old.getNormalMchParamsMap());
+                if(payInterfaceConfig == null){
+                    paramsMap.remove(ifCode);
+                }else{
+                    paramsMap.put(ifCode, NormalMchParams.factory(ifCode, payInterfaceConfig.getIfParams()));
+                }
+                mchAppConfigContext.setNormalMchParamsMap(paramsMap);
+
+                if(CS.IF_CODE.ALIPAY.equals(ifCode)){
+                    AlipayNormalMchParams alipayParams = mchAppConfigContext.getNormalMchParamsByIfCode(CS.IF_CODE.ALIPAY, AlipayNormalMchParams.class);
+                    mchAppConfigContext.setAlipayClientWrapper(alipayParams == null ? null : AlipayClientWrapper.buildAlipayClientWrapper(alipayParams));
+                }else if(CS.IF_CODE.WXPAY.equals(ifCode)){
+                    WxpayNormalMchParams wxpayParams = mchAppConfigContext.getNormalMchParamsByIfCode(CS.IF_CODE.WXPAY, WxpayNormalMchParams.class);
+                    mchAppConfigContext.setWxServiceWrapper(wxpayParams == null ? null : WxServiceWrapper.buildWxServiceWrapper(wxpayParams));
+                }else if(CS.IF_CODE.PPPAY.equals(ifCode)){
+                    PppayNormalMchParams ppPayMchParams = mchAppConfigContext.getNormalMchParamsByIfCode(CS.IF_CODE.PPPAY, PppayNormalMchParams.class);
+                    mchAppConfigContext.setPaypalWrapper(ppPayMchParams == null ? null : PaypalWrapper.buildPaypalWrapper(ppPayMchParams));
+                }
+            }
+
+            if(mchAppConfigContextMap.replace(appId, old, mchAppConfigContext)){
+                return ;
             }
         }
     }
 
+    /** 查询单个启用状态的支付接口配置 **/
+    private PayInterfaceConfig getEnabledInterfaceConfig(Byte infoType, String infoId, String ifCode){
+        return payInterfaceConfigService.getOne(PayInterfaceConfig.gw()
+                .select(PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
+                .eq(PayInterfaceConfig::getState, CS.YES)
+                .eq(PayInterfaceConfig::getInfoType, infoType)
+                .eq(PayInterfaceConfig::getInfoId, infoId)
+                .eq(PayInterfaceConfig::getIfCode, ifCode)
+        );
+    }
+
+    /** 已缓存的所属该服务商的商户应用， 替换为新的服务商配置（ 仅遍历内存， 无需查询服务商下的全部商户 ） **/
+    private void relinkIsvConfigContext(String isvNo, IsvConfigContext isvConfigContext){
+        mchAppConfigContextMap.forEach((appId, mchAppConfigContext) -> {
+            if(mchAppConfigContext.isIsvsubMch() && isvNo.equals(mchAppConfigContext.getMchInfo().getIsvNo())){
+                replaceIsvConfigContext(appId, isvConfigContext);
+            }
+        });
+    }
+
+    /** 替换已缓存商户应用的服务商配置（复制后整体替换） **/
+    private void replaceIsvConfigContext(String appId, IsvConfigContext isvConfigContext){
+        mchAppConfigContextMap.computeIfPresent(appId, (k, old) -> {
+            MchAppConfigContext mchAppConfigContext = copyMchAppConfigContext(old);
+            mchAppConfigContext.setIsvConfigContext(isvConfigContext);
+            return mchAppConfigContext;
+        });
+    }
+
+    /** 浅复制商户应用配置（ 参数map在发布后不再修改， 可共用 ） **/
+    private MchAppConfigContext copyMchAppConfigContext(MchAppConfigContext old){
+        MchAppConfigContext result = new MchAppConfigContext();
+        result.setMchNo(old.getMchNo());
+        result.setAppId(old.getAppId());
+        result.setMchType(old.getMchType());
+        result.setMchInfo(old.getMchInfo());
+        result.setMchApp(old.getMchApp());
+        result.setNormalMchParamsMap(old.getNormalMchParamsMap());
+        result.setIsvsubMchParamsMap(old.getIsvsubMchParamsMap());
+        result.setIsvConfigContext(old.getIsvConfigContext());
+        result.setPaypalWrapper(old.getPaypalWrapper());
+        result.setAlipayClientWrapper(old.getAlipayClientWrapper());
+        result.setWxServiceWrapper(old.getWxServiceWrapper());
+        return result;
+    }
+
+    /**
+     * 按key合并加载：
+     * 当前key无加载任务时由本线程执行；  已有加载任务时等待其完成，
+     * forceReload=true（配置变更通知） 时等待该任务完成后再执行本次加载， 避免读取到变更前的数据。
+     * **/
+    private void singleFlightLoad(String loadKey, boolean forceReload, Runnable loader){
+
+        while (true){
+
+            LoadFlight flight = new LoadFlight();
+            LoadFlight existed = loadingMap.putIfAbsent(loadKey, flight);
+
+            if(existed == null){
+                runFlight(loadKey, flight, loader);
+                return;
+            }
+
+            try {
+                existed.future.join();
+            } catch (CompletionException e) {
+                if(!forceReload){
+                    throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+                }
+            }
+
+            if(!forceReload){
+                return;
+            }
+        }
+    }
+
+    private void runFlight(String loadKey, LoadFlight flight, Runnable loader){
+
+        try {
+            loader.run();
+            flight.future.complete(null);
+
+        } catch (RuntimeException e) {
+            flight.future.completeExceptionally(e);
+            throw e;
+
+        } finally {
+            loadingMap.remove(loadKey, flight);
+        }
+    }
+
+    /** 加载任务 **/
+    private static class LoadFlight {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+
     private boolean isCache(){
         return SysConfigService.IS_USE_CACHE;
     }
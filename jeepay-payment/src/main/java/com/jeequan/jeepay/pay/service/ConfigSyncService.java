@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.jeequan.jeepay.components.mq.model.ResetIsvMchAppInfoConfigMQ;
+import com.jeequan.jeepay.core.constants.CS;
+import com.jeequan.jeepay.core.entity.IsvInfo;
+import com.jeequan.jeepay.core.entity.MchApp;
+import com.jeequan.jeepay.core.entity.MchInfo;
+import com.jeequan.jeepay.core.entity.PayInterfaceConfig;
+import com.jeequan.jeepay.pay.config.ConfigSyncYmlConfig;
+import com.jeequan.jeepay.service.impl.*;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+* 配置信息缓存同步服务
+*
+* 1. 配置变更消息： 按照版本号来源（ 各系统使用不同的redis库生成版本号 ）分别比较版本号， 丢弃重复/过期的消息，
+*    同一来源的版本号不连续时（ 遗漏了广播 ）立即触发一次对账；
+*    消息指定了ifCode时仅更新该支付接口的参数， 未缓存的对象无需处理（ 首次使用时加载 ）。
+* 2. 定时对账： 比较配置表的 max(updated_at) 与上次对账的水位， 有变更时仅查询并重新加载变更的记录， 水位在启动时初始化。
+*    注意： 物理删除的记录无法通过 updated_at 识别， 依赖MQ广播。
+*/
+@Slf4j
+@Service
+public class ConfigSyncService {
+
+    @Autowired private ConfigSyncYmlConfig configSyncYmlConfig;
+    @Autowired private ConfigContextService configContextService;
+    @Autowired private MchInfoService mchInfoService;
+    @Autowired private MchAppService mchAppService;
+    @Autowired private IsvInfoService isvInfoService;
+    @Autowired private PayInterfaceConfigService payInterfaceConfigService;
+
+    /** <版本号来源, 已处理的最大版本号> **/
+    private final Map<String, Long> sourceVersionMap = new ConcurrentHashMap<>();
+
+    /** <版本号来源_变更对象key, 已处理的版本号>， 按照访问顺序淘汰， 最多保留 keyVersionMaxSize 个  **/
+    private final Map<String, Long> keyVersionMap = new LinkedHashMap<>(256, 0.75f, true){
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > configSyncYmlConfig.getKeyVersionMaxSize();
+        }
+    };
+
+    /** <表名, 对账水位（ 已处理的最大 updated_at ）>  **/
+    private final Map<String, Date> watermarkMap = new ConcurrentHashMap<>();
+
+    /** <表名, 水位时间点已处理的记录ID>， 避免同一毫秒的记录被重复处理 **/
+    private final Map<String, Set<String>> watermarkIdsMap = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean gapReconciling = new AtomicBoolean(false);
+
+    /** 对账线程 （ 版本号不连续时异步对账 ） **/
+    private final ExecutorService reconcileExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "config-reconcile");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 初始化对账水位， 启动之后的变更均可通过对账发现 **/
+    @PostConstruct
+    public void init(){
+
+        if(!configSyncYmlConfig.getReconcileEnabled()){
+            return ;
+        }
+
+        try {
+            initWatermark("t_isv_info", isvInfoService, IsvInfo::getUpdatedAt);
+            initWatermark("t_mch_info", mchInfoService, MchInfo::getUpdatedAt);
+            initWatermark("t_mch_app", mchAppService, MchApp::getUpdatedAt);
+            initWatermark("t_pay_interface_config", payInterfaceConfigService, PayInterfaceConfig::getUpdatedAt);
+        } catch (Exception e) {
+            log.error("初始化配置对账水位异常， 首次对账时初始化", e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy(){
+        reconcileExecutor.shutdownNow();
+    }
+
+    /** 处理配置变更消息 **/
+    public void onChange(ResetIsvMchAppInfoConfigMQ.MsgPayload payload){
+
+        if(!SysConfigService.IS_USE_CACHE){
+            return ;
+        }
+
+        // 版本号仅在同一来源内可比较， 未携带来源的消息（ 旧版本发送方 ）不做版本判断
+        Long version = payload.getVersion();
+        String source = payload.getVersionSource();
+        if(version != null && source != null){
+
+            // 同一对象的重复/过期消息
+            String key = source + "_" + payload.getResetType() + "_" + payload.getIsvNo() + "_" + payload.getMchNo() + "_" + payload.getAppId() + "_" + payload.getIfCode();
+            Long keyVersion;
+            synchronized (keyVersionMap){
+                keyVersion = keyVersionMap.merge(key, version, Math::max);
+            }
+            if(keyVersion > version){
+                log.info("配置变更消息已过期， 忽略。 source={}, version={}, lastVersion={}", source, version, keyVersion);
+                return ;
+            }
+
+            // 同一来源的版本号不连续（ 遗漏广播或乱序到达 ）， 触发对账
+            Long last = sourceVersionMap.get(source);
+            if(last != null && version > last + 1){
+                log.warn("配置变更消息版本号不连续， source={}, lastVersion={}, version={}， 触发对账", source, last, version);
+                reconcileAsync();
+            }
+            sourceVersionMap.merge(source, version, Math::max);
+        }
+
+        apply(payload.getResetType(), payload.getIsvNo(), payload.getMchNo(), payload.getAppId(), payload.getIfCode());
+    }
+
+    /** 定时对账 **/
+    @Scheduled(initialDelayString = "${isys.config-sync.reconcile-interval-seconds:60}",
+            fixedDelayString = "${isys.config-sync.reconcile-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void scheduledReconcile(){
+
+        if(!configSyncYmlConfig.getReconcileEnabled()){
+            return ;
+        }
+        reconcile();
+    }
+
+    /** 对账： 仅重新加载 updated_at 超过水位的记录 **/
+    public synchronized void reconcile(){
+
+        if(!SysConfigService.IS_USE_CACHE){
+            return ;
+        }
+
+        int count = 0;
+
+        count += reconcileTable("t_isv_info", isvInfoService, IsvInfo.gw(), IsvInfo::getUpdatedAt, IsvInfo::getIsvNo,
+                r -> apply(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_ISV_INFO, r.getIsvNo(), null, null, null));
+
+        count += reconcileTable("t_mch_info", mchInfoService, MchInfo.gw(), MchInfo::getUpdatedAt, MchInfo::getMchNo,
+                r -> apply(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_INFO, null, r.getMchNo(), null, null));
+
+        count += reconcileTable("t_mch_app", mchAppService, MchApp.gw(), MchApp::getUpdatedAt, MchApp::getAppId,
+                r -> apply(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP, null, r.getMchNo(), r.getAppId(), null));
+
+        count += reconcileTable("t_pay_interface_config", payInterfaceConfigService, PayInterfaceConfig.gw(), PayInterfaceConfig::getUpdatedAt, r -> String.valueOf(r.getId()),
+                r -> {
+                    if(CS.INFO_TYPE_ISV == r.getInfoType()){
+                        apply(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_ISV_INFO, r.getInfoId(), null, null, r.getIfCode());
+                    }else if(CS.INFO_TYPE_MCH_APP == r.getInfoType()){
+                        apply(ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP, null, null, r.getInfoId(), r.getIfCode());
+                    }
+                });
+
+        if(count > 0){
+            log.info("配置对账完成， 重新加载变更记录{}条", count);
+        }
+    }
+
+    /** 按照变更类型更新缓存 （ 仅处理已缓存的对象 ） **/
+    private void apply(Byte resetType, String isvNo, String mchNo, String appId, String ifCode){
+
+        if(resetType == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_ISV_INFO){
+
+            if(ifCode != null){
+                configContextService.refreshIsvParams(isvNo, ifCode);
+            }else if(configContextService.isIsvCached(isvNo)){
+                configContextService.initIsvConfigContext(isvNo);
+            }
+
+        }else if(resetType == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_INFO){
+
+            if(configContextService.isMchInfoCached(mchNo)){
+                configContextService.initMchInfoConfigContext(mchNo);
+            }
+
+        }else if(resetType == ResetIsvMchAppInfoConfigMQ.RESET_TYPE_MCH_APP){
+
+            if(ifCode != null){
+                configContextService.refreshMchAppParams(appId, ifCode);
+            }else if(configContextService.isMchAppCached(appId)){
+                configContextService.initMchAppConfigContext(mchNo, appId);
+            }
+        }
+    }
+
+    /** 版本号不连续时异步对账， 同一时间仅执行一次 **/
+    private void reconcileAsync(){
+
+        if(!gapReconciling.compareAndSet(false, true)){
+            return ;
+        }
+
+        try {
+            reconcileExecutor.execute(() -> {
+                try {
+                    reconcile();
+                } catch (Exception e) {
+                    log.error("配置对账异常", e);
+                } finally {
+                    gapReconciling.set(false);
+                }
+            });
+        } catch (Exception e) {
+            gapReconciling.set(false);
+            log.error("配置对账任务提交异常", e);
+        }
+    }
+
+    /** 查询 max(updated_at)（ 仅1条记录， 使用 updated_at 索引 ）， 无记录时返回null **/
+    private <T> Date queryMaxUpdatedAt(IService<T> service, SFunction<T, Date> updatedAtColumn){
+
+        List<T> maxRecords = service.page(new Page<>(1, 1, false),
+                new LambdaQueryWrapper<T>().select(updatedAtColumn).orderByDesc(updatedAtColumn)).getRecords();
+        return maxRecords.isEmpty() ? null : updatedAtColumn.apply(maxRecords.get(0));
+    }
+
+    /** 初始化单张表的水位 （ 此前的数据已在首次使用时加载 ） **/
+    private <T> void initWatermark(String table, IService<T> service, SFunction<T, Date> updatedAtColumn){
+
+        Date maxUpdatedAt = queryMaxUpdatedAt(service, updatedAtColumn);
+        watermarkMap.putIfAbsent(table, maxUpdatedAt == null ? new Date(0) : maxUpdatedAt);
+    }
+
+    /**
+     * 对账单张表： 先查询 max(updated_at)（ 仅1条记录 ）， 超过水位时再查询变更的记录。
+     * 水位未初始化时（ 启动时初始化失败 ）仅记录水位。
+     * **/
+    private <T> int reconcileTable(String table, IService<T> service, LambdaQueryWrapper<T> wrapper,
+                                   SFunction<T, Date> updatedAtColumn, Function<T, String> idGetter, Consumer<T> applier){
+
+        Date watermark = watermarkMap.get(table);
+        if(watermark == null){
+            initWatermark(table, service, updatedAtColumn);
+            return 0;
+        }
+
+        Date maxUpdatedAt = queryMaxUpdatedAt(service, updatedAtColumn);
+        if(maxUpdatedAt == null || !maxUpdatedAt.after(watermark)){
+            return 0;
+        }
+
+        // 包含水位时间点的记录（ 同一毫秒内可能存在未处理的记录 ）
+        Set<String> handledIds = watermarkIdsMap.getOrDefault(table, Collections.emptySet());
+        Set<String> newHandledIds = new HashSet<>();
+        Date newWatermark = watermark;
+        int count = 0;
+
+        for (T record : service.list(wrapper.ge(updatedAtColumn, watermark))) {
+
+            Date updatedAt = updatedAtColumn.apply(record);
+            String id = idGetter.apply(record);
+
+            if(updatedAt.after(newWatermark)){
+                newWatermark = updatedAt;
+                newHandledIds.clear();
+            }
+            if(updatedAt.equals(newWatermark)){
+                newHandledIds.add(id);
+            }
+            if(updatedAt.equals(watermark) && handledIds.contains(id)){
+                continue;
+            }
+
+            try {
+                applier.accept(record);
+                count++;
+            } catch (Exception e) {
+                log.error("配置对账， 重新加载异常。 table={}, id={}", table, id, e);
+            }
+        }
+
+        if(newWatermark.equals(watermark)){
+            newHandledIds.addAll(handledIds);
+        }
+        watermarkMap.put(table, newWatermark);
+        watermarkIdsMap.put(table, newHandledIds);
+        return count;
+    }
+
+}
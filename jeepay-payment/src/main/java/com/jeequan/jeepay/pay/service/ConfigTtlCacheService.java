@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.lang.func.Func0;
+import com.jeequan.jeepay.pay.config.ConfigTtlCacheYmlConfig;
+import com.jeequan.jeepay.service.impl.SysConfigService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+* 配置信息 有效期缓存
+*
+* 介于 [ 永久缓存 + MQ广播更新 ] 与 [ 每次查询DB ] 之间的模式：  缓存条数有上限， 条目过期后重新加载，
+* 同一个key并发加载时仅查询一次；  加载时长超过 refreshAfterSeconds 的条目被访问时异步刷新， 请求线程直接返回当前值。
+* 空值同样缓存， 避免未配置的参数每次查询DB。
+*/
+@Slf4j
+@Service
+public class ConfigTtlCacheService {
+
+    @Autowired private ConfigTtlCacheYmlConfig configTtlCacheYmlConfig;
+
+    private LRUCache<String, CacheValue> cache;
+
+    /** 异步刷新线程池， 队列已满时放弃刷新（ 条目过期后同步加载 ） **/
+    private ThreadPoolExecutor refreshExecutor;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    @PostConstruct
+    public void init(){
+
+        if(!configTtlCacheYmlConfig.getEnabled()){
+            return;
+        }
+
+        cache = CacheUtil.newLRUCache(configTtlCacheYmlConfig.getMaxSize(), configTtlCacheYmlConfig.getExpireSeconds() * 1000L);
+        refreshExecutor = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), r -> {
+            Thread thread = new Thread(r, "config-ttl-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void destroy(){
+        if(refreshExecutor != null){
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    /** 是否启用 （ 全局缓存模式下不使用 ） **/
+    public boolean isEnabled(){
+        return cache != null && !SysConfigService.IS_USE_CACHE;
+    }
+
+    /** 获取缓存， 不存在或已过期时调用loader加载 **/
+    public <T> T get(String key, Func0<T> loader){
+
+        // 不更新最近访问时间， 有效期从加载时开始计算
+        CacheValue cacheValue = cache.get(key, false, () -> new CacheValue(loader.call()));
+
+        int refreshAfterSeconds = configTtlCacheYmlConfig.getRefreshAfterSeconds();
+        if(refreshAfterSeconds > 0 && System.currentTimeMillis() - cacheValue.loadTime > refreshAfterSeconds * 1000L
+                && cacheValue.refreshing.compareAndSet(false, true)){
+
+            refreshExecutor.execute(() -> {
+                try {
+                    cache.put(key, new CacheValue(loader.call()));
+                    refreshCount.incrementAndGet();
+                } catch (Exception e) {
+                    log.error("配置缓存刷新异常, key={}", key, e);
+                    cacheValue.refreshing.set(false);
+                }
+            });
+        }
+
+        return (T) cacheValue.value;
+    }
+
+    /** 定时输出缓存命中情况 **/
+    @Scheduled(fixedRate = 5 * 60 * 1000)
+    public void logStats(){
+
+        if(!isEnabled()){
+            return;
+        }
+
+        long hit = cache.getHitCount(), miss = cache.getMissCount();
+        log.info("配置缓存统计： size={}, hit={}, miss={}, hitRate={}%, refresh={}", cache.size(), hit, miss,
+                hit + miss == 0 ? 0 : hit * 100 / (hit + miss), refreshCount.get());
+    }
+
+    private static class CacheValue {
+
+        final Object value;
+        final long loadTime = System.currentTimeMillis();
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        CacheValue(Object value) {
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.jeequan.jeepay.core.constants.CS;
+import com.jeequan.jeepay.core.entity.IsvInfo;
+import com.jeequan.jeepay.core.entity.MchApp;
+import com.jeequan.jeepay.core.entity.PayInterfaceConfig;
+import com.jeequan.jeepay.pay.config.ConfigWarmUpYmlConfig;
+import com.jeequan.jeepay.service.impl.IsvInfoService;
+import com.jeequan.jeepay.service.impl.MchAppService;
+import com.jeequan.jeepay.service.impl.PayInterfaceConfigService;
+import com.jeequan.jeepay.service.impl.SysConfigService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/*
+* 配置信息缓存预热服务
+*
+* 启动时按批次查询启用状态的 服务商 & 商户应用 & 支付参数配置， 在有界线程池中并行构建配置上下文（ 包含渠道client ），
+* 避免发布后首批订单承担DB查询及SDK客户端的初始化开销。 由 InitRunner 同步调用， 预热完成后应用才进入就绪状态。
+*/
+@Slf4j
+@Service
+public class ConfigWarmUpService {
+
+    /** 进度日志间隔 **/
+    private static final int PROGRESS_LOG_STEP = 1000;
+
+    @Autowired private ConfigWarmUpYmlConfig configWarmUpYmlConfig;
+    @Autowired private ConfigContextService configContextService;
+    @Autowired private IsvInfoService isvInfoService;
+    @Autowired private MchAppService mchAppService;
+    @Autowired private PayInterfaceConfigService payInterfaceConfigService;
+
+    /** 执行预热 （ 阻塞至完成或超时 ） **/
+    public void warmUp(){
+
+        if(!configWarmUpYmlConfig.getEnabled() || !SysConfigService.IS_USE_CACHE){
+            return ;
+        }
+
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + configWarmUpYmlConfig.getTimeoutSeconds() * 1000L;
+
+        int threads = configWarmUpYmlConfig.getThreads();
+
+        // 有界队列 + 调用方执行， 查询速度快于构建速度时自动限流
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new NamedThreadFactory("config-warm-up-", true), new ThreadPoolExecutor.CallerRunsPolicy());
+
+        AtomicInteger successCount = new AtomicInteger();
+        AtomicInteger failCount = new AtomicInteger();
+        int submitCount = 0;
+
+        try {
+
+            // 1. 服务商配置
+            List<IsvInfo> isvList = isvInfoService.list(IsvInfo.gw().select(IsvInfo::getIsvNo).eq(IsvInfo::getState, CS.YES));
+            List<Future<?>> isvFutures = new ArrayList<>();
+            for (IsvInfo isvInfo : isvList) {
+                isvFutures.add(executor.submit(() -> runTask("ISV_" + isvInfo.getIsvNo(), successCount, failCount,
+                        () -> configContextService.getIsvConfigContext(isvInfo.getIsvNo()))));
+            }
+            awaitAll(isvFutures, deadline);
+            log.info("配置缓存预热： 服务商加载完成， 数量={}， 耗时={}ms", isvList.size(), System.currentTimeMillis() - startTime);
+
+            // 2. 商户应用配置， 按appId顺序分批查询
+            String lastAppId = null;
+            while (System.currentTimeMillis() < deadline){
+
+                List<MchApp> mchAppList = mchAppService.page(new Page<>(1, configWarmUpYmlConfig.getBatchSize(), false),
+                        MchApp.gw().eq(MchApp::getState, CS.YES).gt(lastAppId != null, MchApp::getAppId, lastAppId).orderByAsc(MchApp::getAppId)
+                ).getRecords();
+
+                if(mchAppList.isEmpty()){
+                    break;
+                }
+                lastAppId = mchAppList.get(mchAppList.size() - 1).getAppId();
+
+                // 当前批次应用的全部支付参数
+                Map<String, List<PayInterfaceConfig>> configMap = payInterfaceConfigService.list(PayInterfaceConfig.gw()
+                        .select(PayInterfaceConfig::getInfoId, PayInterfaceConfig::getIfCode, PayInterfaceConfig::getIfParams)
+                        .eq(PayInterfaceConfig::getState, CS.YES)
+                        .eq(PayInterfaceConfig::getInfoType, CS.INFO_TYPE_MCH_APP)
+                        .in(PayInterfaceConfig::getInfoId, mchAppList.stream().map(MchApp::getAppId).collect(Collectors.toList()))
+                ).stream().collect(Collectors.groupingBy(PayInterfaceConfig::getInfoId));
+
+                for (MchApp mchApp : mchAppList) {
+                    List<PayInterfaceConfig> ifConfigList = configMap.getOrDefault(mchApp.getAppId(), Collections.emptyList());
+                    executor.execute(() -> runTask(mchApp.getAppId(), successCount, failCount,
+                            () -> configContextService.warmUpMchAppConfigContext(mchApp, ifConfigList)));
+
+                    if(++submitCount % PROGRESS_LOG_STEP == 0){
+                        log.info("配置缓存预热： 已提交商户应用={}， 成功={}， 失败={}", submitCount, successCount.get(), failCount.get());
+                    }
+                }
+            }
+
+            executor.shutdown();
+            if(!executor.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)){
+                log.warn("配置缓存预热超时（{}s）， 剩余配置将在首次请求时加载", configWarmUpYmlConfig.getTimeoutSeconds());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("配置缓存预热被中断");
+
+        } catch (Exception e) {
+            log.error("配置缓存预热异常， 剩余配置将在首次请求时加载", e);
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("配置缓存预热结束： 服务商及商户应用 成功={}， 失败={}， 耗时={}ms",
+                successCount.get(), failCount.get(), System.currentTimeMillis() - startTime);
+    }
+
+    private void runTask(String key, AtomicInteger successCount, AtomicInteger failCount, Runnable task){
+        try {
+            task.run();
+            successCount.incrementAndGet();
+        } catch (Exception e) {
+            failCount.incrementAndGet();
+            log.error("配置缓存预热失败， key={}", key, e);
+        }
+    }
+
+    private void awaitAll(List<Future<?>> futures, long deadline) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                // 任务内已记录异常； 超时后不再等待
+            }
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import com.jeequan.jeepay.components.mq.model.AbstractMQ;
+import com.jeequan.jeepay.components.mq.vender.IMQSender;
+import com.jeequan.jeepay.core.entity.MchApp;
+import com.jeequan.jeepay.core.entity.MchNotifyRecord;
+import com.jeequan.jeepay.core.model.MchNotifyPolicy;
+import com.jeequan.jeepay.pay.config.DelayRetryYmlConfig;
+import com.jeequan.jeepay.pay.util.HierarchicalTimingWheel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 延迟重试服务 （ 商户通知 / 轮询查单 ）
+*
+* 启用进程内时间轮时， 短延迟的重试在本进程内按照精确时间执行， 不再经过MQ（ RocketMQ仅支持固定的延迟级别 ）；
+* 超出时间轮范围、 时间轮已满或未启用时， 仍发送MQ延迟消息。
+* 到期任务的执行队列有界， 队列已满时改为立即发送MQ消息； MQ发送失败时由定时扫描通知记录兜底。
+*
+* 商户通知的延迟时间： 商户应用配置了通知重试策略时按照指数退避计算， 否则按照订单类型使用系统配置； 最终叠加随机抖动，
+* 且不超过系统配置的最大延迟时间（ notifyMaxDelaySeconds ）。
+*/
+@Slf4j
+@Service
+public class DelayRetryService {
+
+    @Autowired private IMQSender mqSender;
+    @Autowired private DelayRetryYmlConfig delayRetryYmlConfig;
+    @Autowired private ConfigContextQueryService configContextQueryService;
+
+    /** 通知重试策略JSON -> 解析结果 **/
+    private final LRUCache<String, MchNotifyPolicy> policyCache = CacheUtil.newLRUCache(1000);
+
+    private HierarchicalTimingWheel timingWheel;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init(){
+
+        if(!delayRetryYmlConfig.getLocalEnabled()){
+            return;
+        }
+
+        int threads = delayRetryYmlConfig.getExecuteThreads();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(delayRetryYmlConfig.getExecuteQueueSize()), r -> {
+            Thread thread = new Thread(r, "delay-retry-exec");
+            thread.setDaemon(true);
+            return thread;
+        }, (r, e) -> onRejected(r));
+        timingWheel = new HierarchicalTimingWheel("delay-retry-wheel", delayRetryYmlConfig.getTickMillis(), delayRetryYmlConfig.getWheelSize(),
+                delayRetryYmlConfig.getMaxLocalDelaySeconds() * 1000L, delayRetryYmlConfig.getMaxLocalTasks(), executor);
+    }
+
+    @PreDestroy
+    public void destroy(){
+        if(timingWheel != null){
+            timingWheel.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    /** 是否启用进程内时间轮 **/
+    public boolean isLocalEnabled(){
+        return timingWheel != null;
+    }
+
+    /** 时间轮中等待执行的任务数 **/
+    public int getLocalTaskCount(){
+        return timingWheel == null ? 0 : timingWheel.size();
+    }
+
+    /**
+     * 延迟重试： 优先放入进程内时间轮（ 到期后执行localTask ）， 无法放入时发送MQ延迟消息
+     * **/
+    public void send(AbstractMQ mqModel, int delaySeconds, Runnable localTask){
+
+        if(timingWheel != null && delaySeconds <= delayRetryYmlConfig.getMaxLocalDelaySeconds()
+                && timingWheel.schedule(delaySeconds * 1000L, new DelayTask(mqModel, localTask))){
+            return;
+        }
+        mqSender.send(mqModel, delaySeconds);
+    }
+
+    /** 执行队列已满 或 已停止： 到期任务改为立即发送MQ消息 **/
+    private void onRejected(Runnable r){
+
+        if(!(r instanceof DelayTask)){
+            return;
+        }
+
+        DelayTask task = (DelayTask) r;
+        log.warn("延迟重试执行队列已满或已停止， 改为发送MQ消息， executeQueueSize={}", delayRetryYmlConfig.getExecuteQueueSize());
+        try {
+            mqSender.send(task.mqModel);
+        } catch (Exception e) {
+            log.error("延迟重试发送MQ消息失败， 由定时扫描兜底", e);
+        }
+    }
+
+    /** 时间轮中的延迟任务， 保留MQ消息用于执行队列已满时的降级 **/
+    private static class DelayTask implements Runnable {
+
+        final AbstractMQ mqModel;
+        final Runnable localTask;
+
+        DelayTask(AbstractMQ mqModel, Runnable localTask) {
+            this.mqModel = mqModel;
+            this.localTask = localTask;
+        }
+
+        @Override
+        public void run() {
+            localTask.run();
+        }
+    }
+
+    /** 商户通知： 第 currentCount 次通知失败后的延迟时间（秒）， 包含随机抖动 **/
+    public int getNotifyDelaySeconds(MchNotifyRecord record, int currentCount){
+
+        MchNotifyPolicy policy = getNotifyPolicy(record.getMchNo(), record.getAppId());
+        int delay = policy != null ? policy.getDelaySeconds(currentCount) : getDefaultNotifyDelaySeconds(record.getOrderType(), currentCount);
+
+        double jitter = getNotifyJitter(policy);
+        if(jitter > 0){
+            delay = (int) Math.max(1, Math.round(delay * (1 + jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1))));
+        }
+        return Math.min(delay, delayRetryYmlConfig.getNotifyMaxDelaySeconds());
+    }
+
+    /** 商户通知： 第 currentCount 次通知失败后的最大延迟时间（秒）， 即抖动上限， 用于判断是否已超过预期重试时间 **/
+    public int getNotifyMaxDelaySeconds(MchNotifyRecord record, int currentCount){
+
+        MchNotifyPolicy policy = getNotifyPolicy(record.getMchNo(), record.getAppId());
+        int delay = policy != null ? policy.getDelaySeconds(currentCount) : getDefaultNotifyDelaySeconds(record.getOrderType(), currentCount);
+        return (int) Math.min(Math.ceil(delay * (1 + Math.max(0, getNotifyJitter(policy)))), delayRetryYmlConfig.getNotifyMaxDelaySeconds());
+    }
+
+    /** 商户应用的通知重试策略， 未配置或配置错误时返回null **/
+    public MchNotifyPolicy getNotifyPolicy(String mchNo, String appId){
+
+        MchApp mchApp;
+        try {
+            mchApp = configContextQueryService.queryMchApp(mchNo, appId);
+        } catch (Exception e) {
+            return null;
+        }
+        return mchApp == null ? null : getNotifyPolicy(mchApp);
+    }
+
+    /** 商户应用的通知重试策略， 未配置或配置错误时返回null **/
+    public MchNotifyPolicy getNotifyPolicy(MchApp mchApp){
+
+        String json = mchApp.getNotifyPolicy();
+        if(StringUtils.isBlank(json)){
+            return null;
+        }
+
+        try {
+            return policyCache.get(json, () -> MchNotifyPolicy.parse(json));
+        } catch (Exception e) {
+            log.warn("商户应用[{}]通知重试策略配置错误， 使用系统默认策略： {}", mchApp.getAppId(), json);
+            return null;
+        }
+    }
+
+    private double getNotifyJitter(MchNotifyPolicy policy){
+        return policy != null && policy.getJitter() != null ? policy.getJitter() : delayRetryYmlConfig.getNotifyJitter();
+    }
+
+    /** 系统默认： 按照订单类型配置的延迟时间（秒） **/
+    private int getDefaultNotifyDelaySeconds(Byte orderType, int currentCount){
+
+        List<Integer> delays;
+        if(orderType != null && orderType == MchNotifyRecord.TYPE_REFUND_ORDER){
+            delays = delayRetryYmlConfig.getRefundNotifyDelays();
+        }else if(orderType != null && orderType == MchNotifyRecord.TYPE_TRANSFER_ORDER){
+            delays = delayRetryYmlConfig.getTransferNotifyDelays();
+        }else{
+            delays = delayRetryYmlConfig.getPayNotifyDelays();
+        }
+        return getDelay(delays, currentCount, currentCount * 30);
+    }
+
+    /** 轮询查单： 第 currentCount 次查询未得到结果后的延迟时间（秒） **/
+    public int getPayReissueDelaySeconds(int currentCount){
+        return getDelay(delayRetryYmlConfig.getPayReissueDelays(), currentCount, 5);
+    }
+
+    private static int getDelay(List<Integer> delays, int currentCount, int defaultVal){
+        if(delays == null || delays.isEmpty()){
+            return defaultVal;
+        }
+        return delays.get(Math.max(0, Math.min(currentCount, delays.size()) - 1));
+    }
+
+}
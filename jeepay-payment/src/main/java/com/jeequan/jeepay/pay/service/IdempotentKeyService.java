@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.jeequan.jeepay.core.exception.BizException;
+import com.jeequan.jeepay.pay.config.IdempotentYmlConfig;
+import com.jeequan.jeepay.pay.idempotent.IIdempotentKeyStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+/*
+* 商户单号（支付/退款/转账） 幂等校验服务
+*
+* 启用幂等键存储（redis / local）后， 使用原子占用操作替代下单前的 count 查询，
+* 数据库唯一索引（ Uni_MchNo_MchOrderNo 等 ）作为最终兜底。
+*/
+@Slf4j
+@Service
+public class IdempotentKeyService {
+
+    public static final String BIZ_TYPE_PAY_ORDER = "PAY";
+    public static final String BIZ_TYPE_REFUND_ORDER = "REFUND";
+    public static final String BIZ_TYPE_TRANSFER_ORDER = "TRANSFER";
+
+    /** 商户单号唯一索引名称 **/
+    private static final String UNI_KEY_MCH_ORDER_NO = "Uni_MchNo_MchOrderNo";
+    private static final String UNI_KEY_MCH_REFUND_NO = "Uni_MchNo_MchRefundNo";
+
+    @Autowired(required = false) private IIdempotentKeyStore idempotentKeyStore;
+    @Autowired private IdempotentYmlConfig idempotentYmlConfig;
+
+    /** 是否启用幂等键存储， 未启用时需由调用方查询DB校验是否重复 **/
+    public boolean isEnabled(){
+        return idempotentKeyStore != null;
+    }
+
+    /**
+     * 占用幂等键 & 执行入库， 商户单号重复时抛出BizException。
+     * 入库失败时释放幂等键；  商户单号唯一索引冲突时同样视为单号重复， 其他唯一键冲突（ 如： 订单号主键 ）原样抛出。
+     * **/
+    public void saveWithReserve(String bizType, String mchNo, String mchBizNo, String existsMsg, Runnable saveAction){
+
+        String key = isEnabled() ? genKey(bizType, mchNo, mchBizNo) : null;
+        if(key != null && !idempotentKeyStore.reserve(key, idempotentYmlConfig.getExpireSeconds())){
+            throw new BizException(existsMsg);
+        }
+
+        try {
+            saveAction.run();
+
+        } catch (DuplicateKeyException e) {
+
+            // 商户单号唯一索引兜底， 此时幂等键归属于已存在的记录， 无需释放
+            if(isMchBizNoDuplicate(bizType, e)){
+                log.info("商户单号重复， 数据库唯一索引拦截： bizType={}, mchNo={}, mchBizNo={}", bizType, mchNo, mchBizNo);
+                throw new BizException(existsMsg);
+            }
+            if(key != null){
+                idempotentKeyStore.release(key);
+            }
+            throw e;
+
+        } catch (RuntimeException e) {
+            if(key != null){
+                idempotentKeyStore.release(key);
+            }
+            throw e;
+        }
+    }
+
+    /** 是否为商户单号唯一索引冲突 （ 退款订单：Uni_MchNo_MchRefundNo， 支付/转账订单：Uni_MchNo_MchOrderNo ） **/
+    private boolean isMchBizNoDuplicate(String bizType, DuplicateKeyException e){
+        String uniqueKey = BIZ_TYPE_REFUND_ORDER.equals(bizType) ? UNI_KEY_MCH_REFUND_NO : UNI_KEY_MCH_ORDER_NO;
+        return StringUtils.contains(e.getMostSpecificCause().getMessage(), uniqueKey);
+    }
+
+    private String genKey(String bizType, String mchNo, String mchBizNo){
+        return "IDEMPOTENT_" + bizType + "_" + mchNo + "_" + mchBizNo;
+    }
+
+}
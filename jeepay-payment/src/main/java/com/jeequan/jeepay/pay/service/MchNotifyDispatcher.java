@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
+import com.jeequan.jeepay.pay.config.MchNotifyYmlConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/*
+* 商户通知 异步发送调度器
+*
+* 基于非阻塞HTTP客户端发送商户通知， 少量IO线程即可支撑大量并发中的通知请求：
+*   1. 按照商户通知地址（host:port）分组排队， 每组最多 maxPerHost 个并发请求， 单个商户响应缓慢时不影响其他商户；
+*   2. 有待发送任务的分组按照轮询顺序依次发送（ 每次每组一个 ）， 保证各商户间公平调度；
+*   3. 请求完成后在独立的回调线程池中处理结果（ 更新通知记录等DB操作不占用IO线程 ）；
+*   4. 停机时不再接收新任务， 最多等待 shutdownAwaitSeconds 发送完成已提交的任务， 未完成的通知由兜底任务重新发送；
+*   5. 同一通知记录（ notifyId ）在等待发送 或 发送中时， 重复提交（ 如： 兜底任务重发的MQ消息 ）直接丢弃。
+*/
+@Slf4j
+@Service
+public class MchNotifyDispatcher {
+
+    @Autowired private MchNotifyYmlConfig mchNotifyYmlConfig;
+
+    private HttpClient httpClient;
+    private ExecutorService ioExecutor;
+    private ExecutorService callbackExecutor;
+
+    /** host -> 分组， 分组无待发送 & 无发送中的任务时移除 **/
+    private final Map<String, HostQueue> hostMap = new HashMap<>();
+
+    /** 可发送的分组（ 有待发送任务 且 未达到并发上限 ）， 轮询顺序 **/
+    private final ArrayDeque<HostQueue> readyQueue = new ArrayDeque<>();
+
+    /** 等待发送 & 发送中的通知记录ID **/
+    private final Set<Long> activeNotifyIds = new HashSet<>();
+
+    private int inFlight = 0;
+    private int pending = 0;
+
+    /** 停机中， 不再接收新任务 **/
+    private boolean closing = false;
+
+    @PostConstruct
+    public void init(){
+
+        if(!mchNotifyYmlConfig.getAsyncEnabled()){
+            return;
+        }
+
+        ioExecutor = Executors.newFixedThreadPool(mchNotifyYmlConfig.getIoThreads(), new NamedThreadFactory("mch-notify-io-", true));
+        callbackExecutor = Executors.newFixedThreadPool(mchNotifyYmlConfig.getCallbackThreads(), new NamedThreadFactory("mch-notify-callback-", true));
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(mchNotifyYmlConfig.getConnectTimeoutMillis()))
+                .executor(ioExecutor)
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy(){
+
+        if(ioExecutor == null){
+            return;
+        }
+
+        long deadline = System.currentTimeMillis() + mchNotifyYmlConfig.getShutdownAwaitSeconds() * 1000L;
+
+        // 等待待发送 & 发送中的任务完成
+        synchronized (this){
+            closing = true;
+            try {
+                long waitMillis;
+                while ((pending > 0 || inFlight > 0) && (waitMillis = deadline - System.currentTimeMillis()) > 0){
+                    wait(waitMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if(pending > 0 || inFlight > 0){
+                log.warn("商户通知停机等待超时， 未完成的任务由兜底任务重新发送。 pending={}, inFlight={}", pending, inFlight);
+            }
+        }
+
+        // 等待结果处理完成（ 更新通知记录 ）
+        callbackExecutor.shutdown();
+        try {
+            callbackExecutor.awaitTermination(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ioExecutor.shutdownNow();
+    }
+
+    /** 是否启用异步发送 **/
+    public boolean isEnabled(){
+        return httpClient != null;
+    }
+
+    /**
+     * 提交通知任务（ POST 已编码的表单 ）， 立即返回。
+     * 请求完成后在回调线程中调用 callback(响应内容, 异常)， 二者有且仅有一个不为null。
+     * 待发送任务数已达上限 或 停机中时直接回调 RejectedExecutionException（ 未发起请求 ）。
+     * 同一 notifyId 已在等待发送 或 发送中时返回false， 不回调。
+     * **/
+    public boolean dispatch(Long notifyId, String url, byte[] formBody, BiConsumer<String, Throwable> callback){
+
+        NotifyTask task;
+        try {
+            URI uri = URI.create(url);
+            String host = uri.getAuthority();
+            if(host == null){
+                throw new IllegalArgumentException("通知地址缺少host");
+            }
+            task = new NotifyTask(notifyId, host, HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofMillis(mchNotifyYmlConfig.getReadTimeoutMillis()))
+                    .header("Content-Type", ChannelHttpClient.CONTENT_TYPE_FORM)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(formBody))
+                    .build(), callback);
+
+        } catch (IllegalArgumentException e) {
+            callback.accept(null, e);
+            return true;
+        }
+
+        List<NotifyTask> startList;
+        synchronized (this){
+            if(activeNotifyIds.contains(notifyId)){
+                log.info("商户通知[{}]等待发送或发送中， 忽略重复提交", notifyId);
+                return false;
+            }
+            if(closing || pending >= mchNotifyYmlConfig.getMaxPending()){
+                startList = null;
+            }else{
+                activeNotifyIds.add(notifyId);
+                HostQueue hostQueue = hostMap.computeIfAbsent(task.host, k -> new HostQueue());
+                hostQueue.tasks.add(task);
+                pending++;
+                markReady(hostQueue);
+                startList = pollStartable();
+            }
+        }
+
+        if(startList == null){
+            log.warn("商户通知待发送任务数已达上限[{}]或停机中， host={}", mchNotifyYmlConfig.getMaxPending(), task.host);
+            callback.accept(null, new RejectedExecutionException("通知队列已满或停机中"));
+            return true;
+        }
+        startList.forEach(this::send);
+        return true;
+    }
+
+    /** 通知记录是否在等待发送 或 发送中 **/
+    public synchronized boolean isActive(Long notifyId){
+        return activeNotifyIds.contains(notifyId);
+    }
+
+    /** 统计信息 **/
+    public synchronized Map<String, Object> getStats(){
+        return Map.of("inFlight", inFlight, "pending", pending, "hosts", hostMap.size());
+    }
+
+    private void send(NotifyTask task){
+        try {
+            httpClient.sendAsync(task.request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+                    .whenComplete((response, e) -> complete(task, e == null ? response.body() : null, e == null ? null : unwrap(e)));
+        } catch (RuntimeException e) {
+            complete(task, null, e);
+        }
+    }
+
+    private void complete(NotifyTask task, String res, Throwable e){
+        onComplete(task);
+        callbackExecutor.execute(() -> {
+            try {
+                task.callback.accept(res, e);
+            } catch (Exception ex) {
+                log.error("商户通知结果处理异常， host={}", task.host, ex);
+            }
+        });
+    }
+
+    /** 请求完成： 释放并发占用， 继续发送等待中的任务 **/
+    private void onComplete(NotifyTask task){
+
+        List<NotifyTask> startList;
+        synchronized (this){
+            HostQueue hostQueue = hostMap.get(task.host);
+            hostQueue.inFlight--;
+            inFlight--;
+            activeNotifyIds.remove(task.notifyId);
+            if(hostQueue.tasks.isEmpty() && hostQueue.inFlight == 0){
+                hostMap.remove(task.host);
+            }else{
+                markReady(hostQueue);
+            }
+            startList = pollStartable();
+            if(closing && pending == 0 && inFlight == 0){
+                notifyAll();
+            }
+        }
+        startList.forEach(this::send);
+    }
+
+    /** 分组有待发送任务 且 未达到并发上限时， 加入轮询队列 **/
+    private void markReady(HostQueue hostQueue){
+        if(!hostQueue.ready && !hostQueue.tasks.isEmpty() && hostQueue.inFlight < mchNotifyYmlConfig.getMaxPerHost()){
+            hostQueue.ready = true;
+            readyQueue.add(hostQueue);
+        }
+    }
+
+    /** 按照轮询顺序取出可发送的任务（ 每组每轮一个 ）， 需持有锁 **/
+    private List<NotifyTask> pollStartable(){
+
+        List<NotifyTask> result = new ArrayList<>();
+        while (inFlight < mchNotifyYmlConfig.getMaxInFlight() && !readyQueue.isEmpty()){
+
+            HostQueue hostQueue = readyQueue.poll();
+            hostQueue.ready = false;
+
+            result.add(hostQueue.tasks.poll());
+            hostQueue.inFlight++;
+            inFlight++;
+            pending--;
+
+            markReady(hostQueue); // 放入队尾
+        }
+        return result;
+    }
+
+    private static Throwable unwrap(Throwable e){
+        return e.getCause() != null && e instanceof CompletionException ? e.getCause() : e;
+    }
+
+    /** 同一商户通知地址的任务分组 **/
+    private static class HostQueue {
+
+        final ArrayDeque<NotifyTask> tasks = new ArrayDeque<>();
+        int inFlight = 0;
+        boolean ready = false;
+    }
+
+    private static class NotifyTask {
+
+        final Long notifyId;
+        final String host;
+        final HttpRequest request;
+        final BiConsumer<String, Throwable> callback;
+
+        NotifyTask(Long notifyId, String host, HttpRequest request, BiConsumer<String, Throwable> callback){
+            this.notifyId = notifyId;
+            this.host = host;
+            this.request = request;
+            this.callback = callback;
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.net.NetUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.jeequan.jeepay.components.mq.model.PayOrderMchNotifyMQ;
+import com.jeequan.jeepay.components.mq.vender.IMQSender;
+import com.jeequan.jeepay.pay.config.MchNotifyBreakerYmlConfig;
+import com.jeequan.jeepay.pay.mq.PayOrderMchNotifyMQReceiver;
+import com.jeequan.jeepay.service.impl.MchNotifyHostStateService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 商户通知地址（host:port） 熔断器
+*
+* 关闭状态： 连续 failureThreshold 次连接失败后熔断；
+* 熔断状态： 新的通知不再发送， 暂存通知ID（ 不消耗通知次数 ）， openSeconds 到期后取一条暂存的通知作为试探
+*           （ 试探通知在本节点发送， 不经过MQ， 避免被其他节点消费 ）；
+* 半开状态： 仅允许试探通知发送， 连接成功则恢复并批量重发暂存的通知， 失败则重新熔断。
+*
+* 只统计连接层面的失败（ 超时 / 拒绝连接等 ）， 商户返回非SUCCESS说明地址可用， 不计入失败。
+* 试探通知无需发送（ 通知记录已结束 / 已达到最大通知次数 ）时立即改用下一条暂存的通知试探， 不等待试探超时。
+* 暂存的通知仅保存在内存中， 通知记录仍为通知中状态（ 暂存时更新最后通知时间 ）， 本节点暂存的通知兜底扫描不再重发， 进程重启后由兜底扫描重新发送。
+* 各节点按照固定的节点标识上报状态， 超过 staleNodeSeconds 未上报的节点记录将被删除。
+*/
+@Slf4j
+@Service
+public class MchNotifyHostBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** 准入结果： 发送 / 已暂存 / 暂存已满 **/
+    public enum Admit { PASS, PARKED, FULL }
+
+    @Autowired private MchNotifyBreakerYmlConfig mchNotifyBreakerYmlConfig;
+    @Autowired private MchNotifyHostStateService mchNotifyHostStateService;
+    @Autowired private IMQSender mqSender;
+    @Autowired private PayOrderMchNotifyMQReceiver payOrderMchNotifyMQReceiver;
+
+    @Value("${server.port:0}")
+    private String serverPort;
+
+    /** 存在连接失败 或 非关闭状态的通知地址 **/
+    private final Map<String, HostState> hostMap = new ConcurrentHashMap<>();
+
+    /** 试探通知发送线程 （ 同步发送时避免阻塞定时任务线程 ） **/
+    private final ExecutorService probeExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "mch-notify-probe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 节点标识 （ 重启后不变 ） **/
+    private String nodeId;
+
+    @PostConstruct
+    public void init(){
+        nodeId = StringUtils.left(StringUtils.defaultIfBlank(mchNotifyBreakerYmlConfig.getNodeId(), NetUtil.getLocalHostName() + ":" + serverPort), 64);
+    }
+
+    @PreDestroy
+    public void destroy(){
+        probeExecutor.shutdownNow();
+    }
+
+    public boolean isEnabled(){
+        return mchNotifyBreakerYmlConfig.getEnabled();
+    }
+
+    /** 通知地址对应的熔断维度 （ host:port ） **/
+    public static String getHostKey(String url){
+        try {
+            String authority = URI.create(url).getAuthority();
+            return authority == null ? url : authority;
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    /** 发送通知前调用 **/
+    public Admit tryAcquire(String hostKey, Long notifyId){
+
+        if(!isEnabled()){
+            return Admit.PASS;
+        }
+
+        Admit[] result = {Admit.PASS};
+        hostMap.computeIfPresent(hostKey, (k, s) -> {
+            result[0] = s.admit(notifyId);
+            return s;
+        });
+        return result[0];
+    }
+
+    /** 通知发送完成后调用， reachable： 是否成功连接到商户（ 与商户返回内容无关 ） **/
+    public void onResult(String hostKey, Long notifyId, boolean reachable){
+
+        if(!isEnabled()){
+            return;
+        }
+
+        List<Long> releaseList = new ArrayList<>();
+        hostMap.compute(hostKey, (k, s) -> {
+
+            if(reachable){
+                if(s != null && s.state != State.CLOSED){
+                    releaseList.addAll(s.parked);
+                    log.info("商户通知地址[{}]恢复， 重发暂存的通知{}条", k, releaseList.size());
+                }
+                return null; // 恢复正常， 不再记录
+            }
+
+            if(s == null){
+                s = new HostState();
+            }
+            s.onFailure(k, notifyId);
+            return s;
+        });
+
+        releaseList.forEach(id -> mqSender.send(PayOrderMchNotifyMQ.build(id)));
+    }
+
+    /** 熔断到期的通知地址： 取一条暂存的通知作为试探；  试探超时视为失败 **/
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.SECONDS)
+    public void probe(){
+
+        if(!isEnabled()){
+            return;
+        }
+
+        for (String hostKey : hostMap.keySet()) {
+            Long[] probeId = {null};
+            hostMap.computeIfPresent(hostKey, (k, s) -> {
+                probeId[0] = s.nextProbe(k);
+                return s;
+            });
+            sendProbe(probeId[0]);
+        }
+    }
+
+    /** 通知无需发送（ 通知记录不存在 / 已结束 / 已达到最大通知次数 ）时调用： 若为试探通知， 改用下一条暂存的通知试探 **/
+    public void onSkip(Long notifyId){
+
+        if(!isEnabled() || hostMap.isEmpty()){
+            return;
+        }
+
+        for (String hostKey : hostMap.keySet()) {
+            Long[] probeId = {null};
+            hostMap.computeIfPresent(hostKey, (k, s) -> {
+                probeId[0] = s.skipProbe(k, notifyId);
+                return s;
+            });
+            sendProbe(probeId[0]);
+        }
+    }
+
+    /** 是否为本节点暂存 或 试探中的通知 **/
+    public boolean isHeld(Long notifyId){
+
+        if(!isEnabled()){
+            return false;
+        }
+
+        for (HostState s : hostMap.values()) {
+            synchronized (s){
+                if(notifyId.equals(s.probeNotifyId) || s.parked.contains(notifyId)){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** 在本节点发送试探通知 **/
+    private void sendProbe(Long notifyId){
+        if(notifyId != null){
+            probeExecutor.execute(() -> payOrderMchNotifyMQReceiver.receive(new PayOrderMchNotifyMQ.MsgPayload(notifyId)));
+        }
+    }
+
+    /** 上报各通知地址的状态， 供运营平台查看 **/
+    @Scheduled(initialDelayString = "${isys.mch-notify-breaker.report-interval-seconds:30}",
+            fixedDelayString = "${isys.mch-notify-breaker.report-interval-seconds:30}", timeUnit = TimeUnit.SECONDS)
+    public void report(){
+
+        if(!isEnabled()){
+            return;
+        }
+
+        try {
+            mchNotifyHostStateService.report(nodeId, JSON.toJSONString(getHostStates()));
+            mchNotifyHostStateService.removeStale(DateUtil.offsetSecond(new Date(), -mchNotifyBreakerYmlConfig.getStaleNodeSeconds()));
+        } catch (Exception e) {
+            log.error("商户通知地址熔断状态上报失败", e);
+        }
+    }
+
+    /** 各通知地址的状态 **/
+    public List<JSONObject> getHostStates(){
+
+        List<JSONObject> result = new ArrayList<>();
+        hostMap.forEach((hostKey, s) -> {
+            synchronized (s){
+                JSONObject item = new JSONObject();
+                item.put("host", hostKey);
+                item.put("state", s.state);
+                item.put("failureCount", s.failureCount);
+                item.put("parkedCount", s.parked.size());
+                item.put("parkOverflowCount", s.overflowCount);
+                item.put("openUntil", s.state == State.OPEN ? s.openUntil : null);
+                result.add(item);
+            }
+        });
+        Collections.sort(result, (a, b) -> b.getIntValue("parkedCount") - a.getIntValue("parkedCount"));
+        return result;
+    }
+
+    /** 单个通知地址的状态， 仅在 hostMap 的 compute 系列方法中修改 **/
+    private class HostState {
+
+        State state = State.CLOSED;
+        int failureCount = 0;
+        long openUntil = 0;
+
+        Long probeNotifyId;
+        long probeStartTime = 0;
+
+        final LinkedHashSet<Long> parked = new LinkedHashSet<>();
+        long overflowCount = 0;
+
+        synchronized Admit admit(Long notifyId){
+
+            if(state == State.CLOSED){
+                return Admit.PASS;
+            }
+
+            if(notifyId.equals(probeNotifyId)){
+                return Admit.PASS;
+            }
+
+            // 熔断到期且没有试探中的通知： 当前通知作为试探
+            if(state == State.OPEN && probeNotifyId == null && System.currentTimeMillis() >= openUntil){
+                startProbe(notifyId);
+                return Admit.PASS;
+            }
+
+            if(parked.contains(notifyId)){
+                return Admit.PARKED;
+            }
+            if(parked.size() >= mchNotifyBreakerYmlConfig.getMaxParkedPerHost()){
+                overflowCount++;
+                return Admit.FULL;
+            }
+            parked.add(notifyId);
+            return Admit.PARKED;
+        }
+
+        synchronized void onFailure(String hostKey, Long notifyId){
+
+            failureCount++;
+
+            if(state == State.CLOSED){
+                if(failureCount >= mchNotifyBreakerYmlConfig.getFailureThreshold()){
+                    open();
+                    log.warn("商户通知地址[{}]连续{}次连接失败， 熔断{}秒", hostKey, failureCount, mchNotifyBreakerYmlConfig.getOpenSeconds());
+                }
+                return;
+            }
+
+            // 试探失败： 重新熔断
+            if(state == State.HALF_OPEN && notifyId.equals(probeNotifyId)){
+                open();
+            }
+        }
+
+        /** 需要发送的试探通知ID， 无需试探时返回null **/
+        synchronized Long nextProbe(String hostKey){
+
+            long now = System.currentTimeMillis();
+
+            // 试探超时： 视为失败， 试探通知放回暂存队列
+            if(state == State.HALF_OPEN && now - probeStartTime >= mchNotifyBreakerYmlConfig.getProbeTimeoutSeconds() * 1000L){
+                log.warn("商户通知地址[{}]试探通知[{}]超时未返回结果", hostKey, probeNotifyId);
+                parked.add(probeNotifyId);
+                open();
+            }
+
+            if(state != State.OPEN || now < openUntil || parked.isEmpty()){
+                return null;
+            }
+
+            Long notifyId = parked.iterator().next();
+            parked.remove(notifyId);
+            startProbe(notifyId);
+            return notifyId;
+        }
+
+        /** 试探通知无需发送： 结束本次试探（ 不放回暂存队列 ）， 返回下一条试探通知ID， 无暂存的通知时返回null **/
+        synchronized Long skipProbe(String hostKey, Long notifyId){
+
+            if(state != State.HALF_OPEN || !notifyId.equals(probeNotifyId)){
+                return null;
+            }
+
+            log.info("商户通知地址[{}]试探通知[{}]无需发送， 改用下一条暂存的通知", hostKey, notifyId);
+            state = State.OPEN;
+            probeNotifyId = null;
+            openUntil = System.currentTimeMillis(); // 熔断时长保持不变， 立即试探下一条
+            return nextProbe(hostKey);
+        }
+
+        private void startProbe(Long notifyId){
+            state = State.HALF_OPEN;
+            probeNotifyId = notifyId;
+            probeStartTime = System.currentTimeMillis();
+        }
+
+        private void open(){
+            state = State.OPEN;
+            openUntil = System.currentTimeMillis() + mchNotifyBreakerYmlConfig.getOpenSeconds() * 1000L;
+            probeNotifyId = null;
+        }
+    }
+
+}
@@ -18,12 +18,15 @@ package com.jeequan.jeepay.pay.service;
 import com.alibaba.fastjson.JSONObject;
 import com.jeequan.jeepay.components.mq.model.PayOrderMchNotifyMQ;
 import com.jeequan.jeepay.components.mq.vender.IMQSender;
+import com.jeequan.jeepay.core.entity.MchApp;
 import com.jeequan.jeepay.core.entity.MchNotifyRecord;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.entity.RefundOrder;
 import com.jeequan.jeepay.core.entity.TransferOrder;
+import com.jeequan.jeepay.core.model.MchNotifyPolicy;
 import com.jeequan.jeepay.core.utils.JeepayKit;
 import com.jeequan.jeepay.core.utils.StringKit;
+import com.jeequan.jeepay.pay.channel.ChannelHttpClient;
 import com.jeequan.jeepay.pay.rqrs.payorder.QueryPayOrderRS;
 import com.jeequan.jeepay.pay.rqrs.refund.QueryRefundOrderRS;
 import com.jeequan.jeepay.pay.rqrs.transfer.QueryTransferOrderRS;
@@ -47,6 +50,7 @@ public class PayMchNotifyService {
     @Autowired private MchNotifyRecordService mchNotifyRecordService;
     @Autowired private ConfigContextQueryService configContextQueryService;
     @Autowired private IMQSender mqSender;
+    @Autowired private DelayRetryService delayRetryService;
 
 
     /** 商户通知信息， 只有订单是终态，才会发送通知， 如明确成功和明确失败 **/
@@ -68,10 +72,11 @@ public class PayMchNotifyService {
             }
 
             //商户app私钥
-            String appSecret = configContextQueryService.queryMchApp(dbPayOrder.getMchNo(), dbPayOrder.getAppId()).getAppSecret();
+            MchApp mchApp = configContextQueryService.queryMchApp(dbPayOrder.getMchNo(), dbPayOrder.getAppId());
+            String appSecret = mchApp.getAppSecret();
 
-            // 封装通知url
-            String notifyUrl = createNotifyUrl(dbPayOrder, appSecret);
+            // 封装通知请求体
+            String notifyBody = createNotifyBody(dbPayOrder, appSecret);
             mchNotifyRecord = new MchNotifyRecord();
             mchNotifyRecord.setOrderId(dbPayOrder.getPayOrderId());
             mchNotifyRecord.setOrderType(MchNotifyRecord.TYPE_PAY_ORDER);
@@ -79,9 +84,11 @@ public class PayMchNotifyService {
             mchNotifyRecord.setMchOrderNo(dbPayOrder.getMchOrderNo()); //商户订单号
             mchNotifyRecord.setIsvNo(dbPayOrder.getIsvNo());
             mchNotifyRecord.setAppId(dbPayOrder.getAppId());
-            mchNotifyRecord.setNotifyUrl(notifyUrl);
+            mchNotifyRecord.setNotifyUrl(StringUtils.substringBefore(dbPayOrder.getNotifyUrl(), "?"));
+            mchNotifyRecord.setNotifyBody(notifyBody);
             mchNotifyRecord.setResResult("");
             mchNotifyRecord.setNotifyCount(0);
+            mchNotifyRecord.setNotifyCountLimit(getNotifyCountLimit(mchApp)); // 为空时使用数据库默认值
             mchNotifyRecord.setState(MchNotifyRecord.STATE_ING); // 通知中
 
             try {
@@ -119,10 +126,11 @@ public class PayMchNotifyService {
             }
 
             //商户app私钥
-            String appSecret = configContextQueryService.queryMchApp(dbRefundOrder.getMchNo(), dbRefundOrder.getAppId()).getAppSecret();
+            MchApp mchApp = configContextQueryService.queryMchApp(dbRefundOrder.getMchNo(), dbRefundOrder.getAppId());
+            String appSecret = mchApp.getAppSecret();
 
-            // 封装通知url
-            String notifyUrl = createNotifyUrl(dbRefundOrder, appSecret);
+            // 封装通知请求体
+            String notifyBody = createNotifyBody(dbRefundOrder, appSecret);
             mchNotifyRecord = new MchNotifyRecord();
             mchNotifyRecord.setOrderId(dbRefundOrder.getRefundOrderId());
             mchNotifyRecord.setOrderType(MchNotifyRecord.TYPE_REFUND_ORDER);
@@ -130,9 +138,11 @@ public class PayMchNotifyService {
             mchNotifyRecord.setMchOrderNo(dbRefundOrder.getMchRefundNo()); //商户订单号
             mchNotifyRecord.setIsvNo(dbRefundOrder.getIsvNo());
             mchNotifyRecord.setAppId(dbRefundOrder.getAppId());
-            mchNotifyRecord.setNotifyUrl(notifyUrl);
+            mchNotifyRecord.setNotifyUrl(StringUtils.substringBefore(dbRefundOrder.getNotifyUrl(), "?"));
+            mchNotifyRecord.setNotifyBody(notifyBody);
             mchNotifyRecord.setResResult("");
             mchNotifyRecord.setNotifyCount(0);
+            mchNotifyRecord.setNotifyCountLimit(getNotifyCountLimit(mchApp)); // 为空时使用数据库默认值
             mchNotifyRecord.setState(MchNotifyRecord.STATE_ING); // 通知中
 
             try {
@@ -170,10 +180,11 @@ public class PayMchNotifyService {
             }
 
             //商户app私钥
-            String appSecret = configContextQueryService.queryMchApp(dbTransferOrder.getMchNo(), dbTransferOrder.getAppId()).getAppSecret();
+            MchApp mchApp = configContextQueryService.queryMchApp(dbTransferOrder.getMchNo(), dbTransferOrder.getAppId());
+            String appSecret = mchApp.getAppSecret();
 
-            // 封装通知url
-            String notifyUrl = createNotifyUrl(dbTransferOrder, appSecret);
+            // 封装通知请求体
+            String notifyBody = createNotifyBody(dbTransferOrder, appSecret);
             mchNotifyRecord = new MchNotifyRecord();
             mchNotifyRecord.setOrderId(dbTransferOrder.getTransferId());
             mchNotifyRecord.setOrderType(MchNotifyRecord.TYPE_TRANSFER_ORDER);
@@ -181,9 +192,11 @@ public class PayMchNotifyService {
             mchNotifyRecord.setMchOrderNo(dbTransferOrder.getMchOrderNo()); //商户订单号
             mchNotifyRecord.setIsvNo(dbTransferOrder.getIsvNo());
             mchNotifyRecord.setAppId(dbTransferOrder.getAppId());
-            mchNotifyRecord.setNotifyUrl(notifyUrl);
+            mchNotifyRecord.setNotifyUrl(StringUtils.substringBefore(dbTransferOrder.getNotifyUrl(), "?"));
+            mchNotifyRecord.setNotifyBody(notifyBody);
             mchNotifyRecord.setResResult("");
             mchNotifyRecord.setNotifyCount(0);
+            mchNotifyRecord.setNotifyCountLimit(getNotifyCountLimit(mchApp)); // 为空时使用数据库默认值
             mchNotifyRecord.setState(MchNotifyRecord.STATE_ING); // 通知中
 
             try {
@@ -203,10 +216,16 @@ public class PayMchNotifyService {
     }
 
 
+    /** 商户应用通知重试策略中的最大通知次数， 未配置时返回null **/
+    private Integer getNotifyCountLimit(MchApp mchApp){
+        MchNotifyPolicy policy = delayRetryService.getNotifyPolicy(mchApp);
+        return policy == null ? null : policy.getMaxCount();
+    }
+
     /**
-     * 创建响应URL
+     * 创建通知请求体
      */
-    public String createNotifyUrl(PayOrder payOrder, String appSecret) {
+    public String createNotifyBody(PayOrder payOrder, String appSecret) {
 
         QueryPayOrderRS queryPayOrderRS = QueryPayOrderRS.buildByPayOrder(payOrder);
         JSONObject jsonObject = (JSONObject)JSONObject.toJSON(queryPayOrderRS);
@@ -216,14 +235,14 @@ public class PayMchNotifyService {
         jsonObject.put("sign", JeepayKit.getSign(jsonObject, appSecret));
 
         // 生成通知
-        return StringKit.appendUrlQuery(payOrder.getNotifyUrl(), jsonObject);
+        return toNotifyBody(payOrder.getNotifyUrl(), jsonObject);
     }
 
 
     /**
-     * 创建响应URL
+     * 创建通知请求体
      */
-    public String createNotifyUrl(RefundOrder refundOrder, String appSecret) {
+    public String createNotifyBody(RefundOrder refundOrder, String appSecret) {
 
         QueryRefundOrderRS queryRefundOrderRS = QueryRefundOrderRS.buildByRefundOrder(refundOrder);
         JSONObject jsonObject = (JSONObject)JSONObject.toJSON(queryRefundOrderRS);
@@ -233,14 +252,14 @@ public class PayMchNotifyService {
         jsonObject.put("sign", JeepayKit.getSign(jsonObject, appSecret));
 
         // 生成通知
-        return StringKit.appendUrlQuery(refundOrder.getNotifyUrl(), jsonObject);
+        return toNotifyBody(refundOrder.getNotifyUrl(), jsonObject);
     }
 
 
     /**
-     * 创建响应URL
+     * 创建通知请求体
      */
-    public String createNotifyUrl(TransferOrder transferOrder, String appSecret) {
+    public String createNotifyBody(TransferOrder transferOrder, String appSecret) {
 
         QueryTransferOrderRS rs = QueryTransferOrderRS.buildByRecord(transferOrder);
         JSONObject jsonObject = (JSONObject)JSONObject.toJSON(rs);
@@ -250,10 +269,21 @@ public class PayMchNotifyService {
         jsonObject.put("sign", JeepayKit.getSign(jsonObject, appSecret));
 
         // 生成通知
-        return StringKit.appendUrlQuery(transferOrder.getNotifyUrl(), jsonObject);
+        return toNotifyBody(transferOrder.getNotifyUrl(), jsonObject);
     }
 
 
+    /**
+     * 通知请求体（ application/x-www-form-urlencoded ）： 商户通知地址中的query参数 + 签名后的通知参数，
+     * 与通知参数拼接在地址中时商户收到的参数一致。
+     */
+    private String toNotifyBody(String notifyUrl, JSONObject jsonObject){
+
+        String form = ChannelHttpClient.buildForm(jsonObject);
+        String query = StringUtils.substringAfter(notifyUrl, "?");
+        return StringUtils.isEmpty(query) ? form : query + "&" + form;
+    }
+
     /**
      * 创建响应URL
      */
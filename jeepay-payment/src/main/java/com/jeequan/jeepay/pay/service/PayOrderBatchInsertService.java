@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.jeequan.jeepay.core.entity.PayOrder;
+import com.jeequan.jeepay.core.exception.BizException;
+import com.jeequan.jeepay.pay.config.PayOrderBatchInsertYmlConfig;
+import com.jeequan.jeepay.service.impl.PayOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/*
+* 支付订单入库服务
+*
+* 启用 isys.pay-order-batch-insert.enabled 后， 并发的入库请求由单个线程合并为JDBC批量INSERT并在同一事务中提交
+* （ 数据库连接参数 rewriteBatchedStatements=true 时， MySQL驱动将其改写为多行INSERT ），
+* 请求线程阻塞等待所在批次提交完成（ 订单仍然在调用上游渠道前入库 ）： 等待 waitTimeoutMillis 后仍未被入库线程取出时改为直接入库，
+* 已被取出时继续等待所在批次的结果（ 与直接入库相同， 不再另设超时 ）， 不返回可能与实际结果不一致的失败。
+* 批次入库失败（如： 商户订单号重复）时逐条重试， 异常仅返回给对应的请求。
+* 停机时等待入库线程退出后处理剩余的订单， 停机后的入库请求直接逐条入库。
+*/
+@Slf4j
+@Service
+public class PayOrderBatchInsertService {
+
+    @Autowired private PayOrderService payOrderService;
+    @Autowired private PayOrderBatchInsertYmlConfig payOrderBatchInsertYmlConfig;
+
+    private final BlockingQueue<InsertTask> queue = new LinkedBlockingQueue<>();
+
+    private volatile boolean running = false;
+    private Thread flushThread;
+
+    /** 订单入库 **/
+    public void save(PayOrder payOrder){
+
+        if(!running){
+            payOrderService.save(payOrder);
+            return;
+        }
+
+        InsertTask task = new InsertTask(payOrder);
+        queue.add(task);
+
+        // 入队时恰好停机（ 剩余订单已处理完成 ）， 取回后直接入库； 取回失败说明已被入库线程处理
+        if(!running && queue.remove(task)){
+            payOrderService.save(payOrder);
+            return;
+        }
+
+        try {
+            task.future.get(payOrderBatchInsertYmlConfig.getWaitTimeoutMillis(), TimeUnit.MILLISECONDS);
+            return;
+        } catch (TimeoutException e) {
+            if(queue.remove(task)){ // 仍未被处理， 直接入库
+                payOrderService.save(payOrder);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("订单入库异常");
+        } catch (ExecutionException e) {
+            throw toRuntimeException(e);
+        }
+
+        // 已被入库线程取出， 所在批次可能已提交： 等待批次的结果， 避免返回失败后订单实际已入库
+        log.warn("支付订单入库等待超过{}ms， 继续等待所在批次提交， payOrderId={}", payOrderBatchInsertYmlConfig.getWaitTimeoutMillis(), payOrder.getPayOrderId());
+        try {
+            task.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizException("订单入库异常");
+        } catch (ExecutionException e) {
+            throw toRuntimeException(e);
+        }
+    }
+
+    private static RuntimeException toRuntimeException(ExecutionException e){
+        if(e.getCause() instanceof RuntimeException){
+            return (RuntimeException) e.getCause();
+        }
+        return new BizException("订单入库异常");
+    }
+
+    @PostConstruct
+    public void start(){
+
+        if(!payOrderBatchInsertYmlConfig.getEnabled()){
+            return;
+        }
+
+        running = true;
+        flushThread = new Thread(this::flushLoop, "pay-order-batch-insert");
+        flushThread.setDaemon(true);
+        flushThread.start();
+    }
+
+    @PreDestroy
+    public void stop(){
+
+        if(!running){
+            return;
+        }
+
+        // 入库线程最多1秒检查一次运行状态， 等待当前批次提交完成后退出 （ 不中断， 避免中断正在执行的事务 ）
+        running = false;
+        try {
+            flushThread.join(payOrderBatchInsertYmlConfig.getWaitTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 处理剩余的订单
+        List<InsertTask> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if(!batch.isEmpty()){
+            flush(batch);
+        }
+    }
+
+    private void flushLoop(){
+
+        int maxBatchSize = payOrderBatchInsertYmlConfig.getMaxBatchSize();
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(payOrderBatchInsertYmlConfig.getLingerMillis());
+
+        while (running) {
+            try {
+
+                InsertTask first = queue.poll(1, TimeUnit.SECONDS);
+                if(first == null){
+                    continue;
+                }
+
+                List<InsertTask> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    InsertTask task = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if(task == null){
+                        break;
+                    }
+                    batch.add(task);
+                }
+
+                flush(batch);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("支付订单批量入库异常", e);
+            }
+        }
+    }
+
+    /** 入库一个批次， 保证每个任务都有结果（ 请求线程可能在等待批次结果 ） **/
+    private void flush(List<InsertTask> batch){
+        try {
+            doFlush(batch);
+        } finally {
+            batch.forEach(task -> task.future.completeExceptionally(new BizException("订单入库异常")));
+        }
+    }
+
+    private void doFlush(List<InsertTask> batch){
+
+        List<PayOrder> payOrders = new ArrayList<>(batch.size());
+        batch.forEach(task -> payOrders.add(task.payOrder));
+
+        try {
+            payOrderService.saveBatch(payOrders, payOrders.size());
+            batch.forEach(task -> task.future.complete(null));
+            return;
+        } catch (Exception e) { // 批次事务已回滚
+            log.warn("支付订单批量入库失败， 逐条重试。 size={}, error={}", batch.size(), e.getMessage());
+        }
+
+        for (InsertTask task : batch) {
+            try {
+                payOrderService.save(task.payOrder);
+                task.future.complete(null);
+            } catch (Exception e) {
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class InsertTask {
+
+        final PayOrder payOrder;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        InsertTask(PayOrder payOrder) {
+            this.payOrder = payOrder;
+        }
+    }
+
+}
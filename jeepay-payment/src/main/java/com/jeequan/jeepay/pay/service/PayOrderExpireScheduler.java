@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.jeequan.jeepay.pay.config.OrderExpireYmlConfig;
+import com.jeequan.jeepay.service.impl.PayOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+* 支付订单 进程内过期调度
+*
+* 启用 isys.order-expire.local-enabled 后， 本节点创建的支付订单（ 订单生成 / 支付中 ）按照过期时间放入延迟队列，
+* 到期时单独关闭该订单（ 更新语句校验订单状态 & 过期时间 ）；  订单成功 / 失败 / 关闭时移除。
+*
+* 延迟队列为按照到期时间排序的小顶堆， 任务记录自身在堆中的下标， 订单移除时同时从堆中删除（ O(log n) ），
+* 队列中仅保存跟踪中的订单， 总数不超过 localMaxTasks。
+*
+* 仅保存在内存中： 节点重启、 超出 localMaxTasks 的订单， 由低频的过期扫描任务（ PayOrderExpiredTask ）兜底关闭。
+*/
+@Slf4j
+@Service
+public class PayOrderExpireScheduler {
+
+    @Autowired private OrderExpireYmlConfig orderExpireYmlConfig;
+    @Autowired private PayOrderService payOrderService;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** 堆顶任务变化（ 新增了更早到期的任务 ）时唤醒过期线程 **/
+    private final Condition available = lock.newCondition();
+
+    /** 按照到期时间排序的小顶堆 **/
+    private ExpireEntry[] heap = new ExpireEntry[64];
+    private int heapSize = 0;
+
+    /** payOrderId -> 堆中的任务 **/
+    private final Map<String, ExpireEntry> entryMap = new HashMap<>();
+
+    private volatile boolean running = false;
+    private Thread expireThread;
+
+    public boolean isEnabled(){
+        return running;
+    }
+
+    /** 当前跟踪的订单数 **/
+    public int size(){
+        lock.lock();
+        try {
+            return heapSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 跟踪订单的过期时间， 返回false表示未启用 或 已达到上限（ 由过期扫描任务兜底 ） **/
+    public boolean add(String payOrderId, Date expiredTime){
+
+        if(!running || expiredTime == null){
+            return false;
+        }
+
+        // 数据库中的过期时间精确到秒（ 毫秒部分四舍五入 ）， 到期时间向上取整到秒， 保证到期时满足更新条件
+        long expireTimeMillis = (expiredTime.getTime() + 999) / 1000 * 1000;
+        ExpireEntry entry = new ExpireEntry(payOrderId, expireTimeMillis);
+
+        lock.lock();
+        try {
+            ExpireEntry old = entryMap.get(payOrderId);
+            if(old == null && heapSize >= orderExpireYmlConfig.getLocalMaxTasks()){
+                return false;
+            }
+            if(old != null){ // 重复添加时替换旧任务
+                removeAt(old.heapIndex);
+            }
+            entryMap.put(payOrderId, entry);
+            offer(entry);
+            if(heap[0] == entry){
+                available.signal();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 订单已成功 / 失败 / 关闭， 不再跟踪 **/
+    public void remove(String payOrderId){
+
+        if(!running){
+            return;
+        }
+
+        lock.lock();
+        try {
+            ExpireEntry entry = entryMap.remove(payOrderId);
+            if(entry != null){
+                removeAt(entry.heapIndex);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PostConstruct
+    public void start(){
+
+        if(!orderExpireYmlConfig.getLocalEnabled()){
+            return;
+        }
+
+        running = true;
+        expireThread = new Thread(this::expireLoop, "pay-order-expire");
+        expireThread.setDaemon(true);
+        expireThread.start();
+    }
+
+    @PreDestroy
+    public void stop(){
+
+        if(!running){
+            return;
+        }
+
+        running = false;
+        expireThread.interrupt();
+    }
+
+    private void expireLoop(){
+
+        while (running) {
+            try {
+
+                ExpireEntry entry = take();
+
+                if(payOrderService.updateOrderExpired(entry.payOrderId)){
+                    log.info("支付订单[{}]已过期， 关闭订单", entry.payOrderId);
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("支付订单过期处理异常", e);
+            }
+        }
+    }
+
+    /** 等待并取出堆顶的到期任务 **/
+    private ExpireEntry take() throws InterruptedException {
+
+        lock.lockInterruptibly();
+        try {
+            while (true){
+
+                ExpireEntry first = heap[0];
+                if(first == null){
+                    available.await();
+                    continue;
+                }
+
+                long delayMillis = first.expireTimeMillis - System.currentTimeMillis();
+                if(delayMillis <= 0){
+                    removeAt(0);
+                    entryMap.remove(first.payOrderId);
+                    return first;
+                }
+                available.await(delayMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 加入堆， 需持有锁 **/
+    private void offer(ExpireEntry entry){
+
+        if(heapSize >= heap.length){
+            heap = Arrays.copyOf(heap, heap.length + (heap.length >> 1));
+        }
+        entry.heapIndex = heapSize;
+        heap[heapSize++] = entry;
+        siftUp(entry.heapIndex);
+    }
+
+    /** 删除堆中指定下标的任务， 需持有锁 **/
+    private void removeAt(int i){
+
+        ExpireEntry removed = heap[i];
+        removed.heapIndex = -1;
+
+        int last = --heapSize;
+        ExpireEntry moved = heap[last];
+        heap[last] = null;
+        if(i == last){
+            return;
+        }
+
+        heap[i] = moved;
+        moved.heapIndex = i;
+        siftDown(i);
+        if(heap[i] == moved){
+            siftUp(i);
+        }
+    }
+
+    private void siftUp(int i){
+
+        ExpireEntry entry = heap[i];
+        while (i > 0){
+            int parent = (i - 1) >>> 1;
+            if(heap[parent].expireTimeMillis <= entry.expireTimeMillis){
+                break;
+            }
+            heap[i] = heap[parent];
+            heap[i].heapIndex = i;
+            i = parent;
+        }
+        heap[i] = entry;
+        entry.heapIndex = i;
+    }
+
+    private void siftDown(int i){
+
+        ExpireEntry entry = heap[i];
+        int half = heapSize >>> 1;
+        while (i < half){
+            int child = (i << 1) + 1;
+            int right = child + 1;
+            if(right < heapSize && heap[right].expireTimeMillis < heap[child].expireTimeMillis){
+                child = right;
+            }
+            if(entry.expireTimeMillis <= heap[child].expireTimeMillis){
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].heapIndex = i;
+            i = child;
+        }
+        heap[i] = entry;
+        entry.heapIndex = i;
+    }
+
+    private static class ExpireEntry {
+
+        final String payOrderId;
+        final long expireTimeMillis;
+
+        /** 在堆中的下标， -1表示已移除 **/
+        int heapIndex = -1;
+
+        ExpireEntry(String payOrderId, long expireTimeMillis) {
+            this.payOrderId = payOrderId;
+            this.expireTimeMillis = expireTimeMillis;
+        }
+    }
+
+}
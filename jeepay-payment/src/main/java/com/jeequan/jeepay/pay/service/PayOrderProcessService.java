@@ -26,7 +26,6 @@ import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 /***
 * 订单处理通用逻辑
@@ -43,10 +42,14 @@ public class PayOrderProcessService {
     @Autowired private PayOrderService payOrderService;
     @Autowired private PayMchNotifyService payMchNotifyService;
     @Autowired private IMQSender mqSender;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
 
     /** 明确成功的处理逻辑（除更新订单其他业务） **/
     public void confirmSuccess(PayOrder payOrder){
 
+        // 订单已成功， 无需过期关闭
+        payOrderExpireScheduler.remove(payOrder.getPayOrderId());
+
         // 查询查询订单详情
         payOrder = payOrderService.getById(payOrder.getPayOrderId());
 
@@ -93,21 +96,14 @@ public class PayOrderProcessService {
 
     /***
      *
-     * 支付中 --》 支付成功或者失败
+     * 订单生成 --》 支付中 / 支付成功 / 支付失败 （ 单条语句完成状态变更 ）
      * **/
-    @Transactional
     public void updateIngAndSuccessOrFailByCreatebyOrder(PayOrder payOrder, ChannelRetMsg channelRetMsg){
 
-        boolean isSuccess = payOrderService.updateInit2Ing(payOrder.getPayOrderId(), payOrder);
-        if(!isSuccess){
-            log.error("updateInit2Ing更新异常 payOrderId={}", payOrder.getPayOrderId());
-            throw new BizException("更新订单异常!");
-        }
-
-        isSuccess = payOrderService.updateIng2SuccessOrFail(payOrder.getPayOrderId(), payOrder.getState(),
+        boolean isSuccess = payOrderService.updateInit2IngOrSuccessOrFail(payOrder.getPayOrderId(), payOrder,
                 channelRetMsg.getChannelOrderId(), channelRetMsg.getChannelUserId(), channelRetMsg.getChannelErrCode(), channelRetMsg.getChannelErrMsg());
         if(!isSuccess){
-            log.error("updateIng2SuccessOrFail更新异常 payOrderId={}", payOrder.getPayOrderId());
+            log.error("updateInit2IngOrSuccessOrFail更新异常 payOrderId={}", payOrder.getPayOrderId());
             throw new BizException("更新订单异常!");
         }
     }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.alibaba.fastjson.JSONObject;
+import com.jeequan.jeepay.core.entity.SysTaskLease;
+import com.jeequan.jeepay.pay.config.ScheduleLeaseYmlConfig;
+import com.jeequan.jeepay.service.impl.SysTaskLeaseService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+* 定时任务协调器： 多节点部署时， 通过数据库租约表（ t_sys_task_lease ）选举定时任务的执行节点 / 划分定时任务的分片
+*
+* 执行节点： 持有任务的 LEADER 租约的节点执行， 每次执行时续期； 节点宕机后租约到期由其他节点接管。
+*
+* 分片：
+* 每次执行任务时： 续期节点心跳租约 -> 按照存活节点数计算本节点应持有的分片数（ 向上取整 ） ->
+* 续期已持有的分片（ 超出应持有数量的释放给其他节点 ） -> 不足时抢占无人持有 / 已过期的分片。
+* 节点加入或宕机后， 分片在 1~2 个执行周期 / 租约时长 内重新均衡。
+*
+* 租约的获取与续期均为单条条件更新语句， 行锁保证同一时刻每个分片仅一个节点持有；  租约到期时间统一使用数据库时间。
+*/
+@Slf4j
+@Service
+public class ScheduleCoordinator {
+
+    @Autowired private ScheduleLeaseYmlConfig scheduleLeaseYmlConfig;
+    @Autowired private SysTaskLeaseService sysTaskLeaseService;
+
+    private final String nodeId = StringUtils.left(ManagementFactory.getRuntimeMXBean().getName(), 64);
+
+    /** taskName -> 当前节点持有的分片 **/
+    private final Map<String, List<Integer>> ownedShardMap = new ConcurrentHashMap<>();
+
+    /** 当前节点持有执行租约的任务 **/
+    private final Set<String> leaderTaskSet = ConcurrentHashMap.newKeySet();
+
+    public boolean isEnabled(){
+        return scheduleLeaseYmlConfig.getEnabled();
+    }
+
+    public String getNodeId(){
+        return nodeId;
+    }
+
+    /** 当前节点是否为任务的执行节点（ 获取 / 续期 LEADER 租约 ）， 未启用时返回true **/
+    public boolean tryLeader(String taskName){
+
+        if(!isEnabled()){
+            return true;
+        }
+
+        boolean leader = sysTaskLeaseService.acquire(newLease(taskName, SysTaskLease.LEASE_TYPE_LEADER, null), scheduleLeaseYmlConfig.getLeaseSeconds());
+        if(leader ? leaderTaskSet.add(taskName) : leaderTaskSet.remove(taskName)){
+            log.info("定时任务[{}]执行节点变更： 当前节点{}", taskName, leader ? "成为执行节点" : "不再是执行节点");
+        }
+        return leader;
+    }
+
+    /** 获取当前节点本次应处理的分片（ 升序 ）， 未启用时返回全部分片 **/
+    public List<Integer> acquireShards(String taskName, int shardCount){
+
+        if(!isEnabled()){
+            List<Integer> all = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                all.add(i);
+            }
+            return all;
+        }
+
+        int leaseSeconds = scheduleLeaseYmlConfig.getLeaseSeconds();
+
+        // 节点心跳
+        sysTaskLeaseService.acquire(newLease(taskName, SysTaskLease.LEASE_TYPE_NODE, null), leaseSeconds);
+
+        int nodeCount = 0;
+        Set<Integer> otherShards = new HashSet<>();
+        List<Integer> mineShards = new ArrayList<>();
+        for (SysTaskLease lease : sysTaskLeaseService.listLive(taskName)) {
+            if(SysTaskLease.LEASE_TYPE_NODE.equals(lease.getLeaseType())){
+                nodeCount++;
+            }else if(SysTaskLease.LEASE_TYPE_SHARD.equals(lease.getLeaseType()) && lease.getShardNo() != null && lease.getShardNo() < shardCount){
+                (nodeId.equals(lease.getNodeId()) ? mineShards : otherShards).add(lease.getShardNo());
+            }
+        }
+        int fairShare = (shardCount + Math.max(nodeCount, 1) - 1) / Math.max(nodeCount, 1);
+
+        List<Integer> result = new ArrayList<>(fairShare);
+
+        // 续期已持有的分片， 超出应持有数量的释放
+        Collections.sort(mineShards);
+        for (Integer shardNo : mineShards) {
+            if(result.size() < fairShare && sysTaskLeaseService.acquire(newLease(taskName, SysTaskLease.LEASE_TYPE_SHARD, shardNo), leaseSeconds)){
+                result.add(shardNo);
+            }else{
+                sysTaskLeaseService.release(genShardKey(taskName, shardNo), nodeId);
+            }
+        }
+
+        // 抢占无人持有的分片 （ 各节点从不同的起始位置开始， 减少冲突 ）
+        int offset = Math.floorMod(nodeId.hashCode(), shardCount);
+        for (int i = 0; i < shardCount && result.size() < fairShare; i++) {
+            int shardNo = (offset + i) % shardCount;
+            if(otherShards.contains(shardNo) || mineShards.contains(shardNo)){
+                continue;
+            }
+            if(sysTaskLeaseService.acquire(newLease(taskName, SysTaskLease.LEASE_TYPE_SHARD, shardNo), leaseSeconds)){
+                result.add(shardNo);
+            }
+        }
+
+        Collections.sort(result);
+        List<Integer> before = ownedShardMap.put(taskName, result);
+        if(!result.equals(before)){
+            log.info("定时任务[{}]分片变更： 存活节点数={}， 当前节点持有分片={}", taskName, nodeCount, result);
+        }
+        return result;
+    }
+
+    /** 任务归属状态： 当前节点持有的执行租约 / 分片， 以及全部节点未过期的租约 **/
+    public JSONObject getState(){
+
+        JSONObject state = new JSONObject();
+        state.put("nodeId", nodeId);
+        state.put("enabled", isEnabled());
+        state.put("leaderTasks", new TreeSet<>(leaderTaskSet));
+        state.put("shardTasks", new TreeMap<>(ownedShardMap));
+        if(isEnabled()){
+            state.put("leases", sysTaskLeaseService.listLive(null));
+        }
+        return state;
+    }
+
+    /** 停止时释放当前节点持有的租约， 其他节点无需等待租约到期即可接管 **/
+    @PreDestroy
+    public void destroy(){
+
+        if(!isEnabled()){
+            return;
+        }
+
+        ownedShardMap.forEach((taskName, shards) -> {
+            try {
+                shards.forEach(shardNo -> sysTaskLeaseService.release(genShardKey(taskName, shardNo), nodeId));
+                sysTaskLeaseService.release(genNodeKey(taskName), nodeId);
+            } catch (Exception e) {
+                log.error("定时任务[{}]释放租约异常", taskName, e);
+            }
+        });
+
+        leaderTaskSet.forEach(taskName -> {
+            try {
+                sysTaskLeaseService.release(genLeaderKey(taskName), nodeId);
+            } catch (Exception e) {
+                log.error("定时任务[{}]释放租约异常", taskName, e);
+            }
+        });
+    }
+
+    private SysTaskLease newLease(String taskName, String leaseType, Integer shardNo){
+        String leaseKey = SysTaskLease.LEASE_TYPE_LEADER.equals(leaseType) ? genLeaderKey(taskName)
+                : shardNo == null ? genNodeKey(taskName) : genShardKey(taskName, shardNo);
+        return new SysTaskLease().setLeaseKey(leaseKey).setTaskName(taskName).setLeaseType(leaseType).setShardNo(shardNo).setNodeId(nodeId);
+    }
+
+    private String genNodeKey(String taskName){
+        return StringUtils.left(taskName + ":NODE:" + nodeId, 128);
+    }
+
+    private String genLeaderKey(String taskName){
+        return taskName + ":LEADER";
+    }
+
+    private String genShardKey(String taskName, int shardNo){
+        return taskName + ":SHARD:" + shardNo;
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.task;
+
+import cn.hutool.core.date.DateUtil;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.jeequan.jeepay.components.mq.model.PayOrderMchNotifyMQ;
+import com.jeequan.jeepay.components.mq.vender.IMQSender;
+import com.jeequan.jeepay.core.entity.MchNotifyRecord;
+import com.jeequan.jeepay.pay.config.DelayRetryYmlConfig;
+import com.jeequan.jeepay.pay.service.DelayRetryService;
+import com.jeequan.jeepay.pay.service.MchNotifyDispatcher;
+import com.jeequan.jeepay.pay.service.MchNotifyHostBreaker;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
+import com.jeequan.jeepay.service.impl.MchNotifyRecordService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+* 商户通知 延迟重试兜底任务
+*
+* 启用进程内时间轮、 通知地址熔断 或 异步发送后， 等待重试 / 暂存 / 发送中的通知仅保存在内存中（ 节点宕机时丢失 ）。 本任务定时扫描通知中的记录，
+* 已超过预期重试时间（ 最后通知时间 + 最大延迟时间 + fallbackGraceSeconds ）仍未发送的， 重新发送MQ消息。
+* 异步发送时， 通知任务提交时即更新最后通知时间， 本节点等待发送 / 发送中 / 熔断暂存的通知不再重发。
+*
+* 多节点部署时， 启用定时任务租约（ isys.schedule-lease.enabled ）后仅执行节点扫描， 否则各节点均会扫描，
+* 可能产生重复通知（ 商户通知本身即为至少一次语义 ）。
+*/
+@Slf4j
+@Component
+public class MchNotifyRetryFallbackTask {
+
+    public static final String TASK_NAME = "MCH_NOTIFY_FALLBACK";
+
+    @Autowired private MchNotifyRecordService mchNotifyRecordService;
+    @Autowired private DelayRetryService delayRetryService;
+    @Autowired private DelayRetryYmlConfig delayRetryYmlConfig;
+    @Autowired private IMQSender mqSender;
+    @Autowired private MchNotifyHostBreaker mchNotifyHostBreaker;
+    @Autowired private MchNotifyDispatcher mchNotifyDispatcher;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+
+    @Scheduled(initialDelayString = "${isys.delay-retry.fallback-scan-interval-seconds:60}",
+            fixedDelayString = "${isys.delay-retry.fallback-scan-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    public void start() {
+
+        // 仅在 进程内时间轮、 通知地址熔断（暂存通知） 或 异步发送 启用时需要兜底
+        if(!delayRetryService.isLocalEnabled() && !mchNotifyHostBreaker.isEnabled() && !mchNotifyDispatcher.isEnabled()){
+            return;
+        }
+
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long graceMillis = delayRetryYmlConfig.getFallbackGraceSeconds() * 1000L;
+        Date offsetDate = new Date(now - graceMillis);
+        int pageSize = delayRetryYmlConfig.getFallbackScanPageSize();
+
+        int resendCount = 0;
+        Long lastNotifyId = 0L;
+        while (true){
+
+            try {
+                // 查询条件： 通知中 & （ 最后通知时间 <= 当前时间 - 宽限时间 或 从未通知且创建时间 <= 当前时间 - 宽限时间 ）， 按照ID游标分页
+                List<MchNotifyRecord> records = mchNotifyRecordService.page(new Page<>(1, pageSize, false), MchNotifyRecord.gw()
+                        .select(MchNotifyRecord::getNotifyId, MchNotifyRecord::getOrderType, MchNotifyRecord::getMchNo, MchNotifyRecord::getAppId, MchNotifyRecord::getNotifyCount,
+                                MchNotifyRecord::getNotifyCountLimit, MchNotifyRecord::getLastNotifyTime)
+                        .eq(MchNotifyRecord::getState, MchNotifyRecord.STATE_ING)
+                        .gt(MchNotifyRecord::getNotifyId, lastNotifyId)
+                        .and(w -> w.le(MchNotifyRecord::getLastNotifyTime, offsetDate)
+                                .or(w2 -> w2.isNull(MchNotifyRecord::getLastNotifyTime).le(MchNotifyRecord::getCreatedAt, offsetDate)))
+                        .orderByAsc(MchNotifyRecord::getNotifyId)
+                ).getRecords();
+
+                for (MchNotifyRecord record : records) {
+                    if(!mchNotifyDispatcher.isActive(record.getNotifyId()) && !mchNotifyHostBreaker.isHeld(record.getNotifyId())
+                            && isOverdue(record, now, graceMillis)){
+                        mqSender.send(PayOrderMchNotifyMQ.build(record.getNotifyId()));
+                        resendCount++;
+                    }
+                }
+
+                if(records.size() < pageSize){
+                    break;
+                }
+                lastNotifyId = records.get(records.size() - 1).getNotifyId();
+
+            } catch (Exception e) { //出现异常，直接退出，避免死循环。
+                log.error("error", e);
+                break;
+            }
+        }
+
+        if(resendCount > 0){
+            log.info("商户通知兜底扫描： 重新发送{}条， 时间轮任务数{}", resendCount, delayRetryService.getLocalTaskCount());
+        }
+    }
+
+    /** 是否已超过预期重试时间 **/
+    private boolean isOverdue(MchNotifyRecord record, long now, long graceMillis){
+
+        if(record.getNotifyCount() >= record.getNotifyCountLimit()){
+            return false;
+        }
+        if(record.getLastNotifyTime() == null){ // 从未通知， 查询条件已判断创建时间
+            return true;
+        }
+        int delaySeconds = delayRetryService.getNotifyMaxDelaySeconds(record, record.getNotifyCount());
+        return DateUtil.offsetSecond(record.getLastNotifyTime(), delaySeconds).getTime() + graceMillis <= now;
+    }
+
+}
@@ -21,11 +21,13 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.jeequan.jeepay.core.entity.PayOrder;
 import com.jeequan.jeepay.core.entity.PayOrderDivisionRecord;
-import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import com.jeequan.jeepay.pay.channel.ChannelServiceRegistry;
 import com.jeequan.jeepay.pay.channel.IDivisionService;
 import com.jeequan.jeepay.pay.model.MchAppConfigContext;
 import com.jeequan.jeepay.pay.rqrs.msg.ChannelRetMsg;
+import com.jeequan.jeepay.pay.service.ChannelOrderReissueService;
 import com.jeequan.jeepay.pay.service.ConfigContextQueryService;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.service.impl.PayOrderDivisionRecordService;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
@@ -36,6 +38,7 @@ import org.springframework.stereotype.Component;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /*
 * 分账补单定时任务
@@ -48,15 +51,25 @@ import java.util.List;
 @Component
 public class PayOrderDivisionRecordReissueTask {
 
+    public static final String TASK_NAME = "DIVISION_REISSUE";
+
     private static final int QUERY_PAGE_SIZE = 100; //每次查询数量
 
     @Autowired private PayOrderDivisionRecordService payOrderDivisionRecordService;
     @Autowired private ConfigContextQueryService configContextQueryService;
     @Autowired private PayOrderService payOrderService;
+    @Autowired private ChannelServiceRegistry channelServiceRegistry;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+    @Autowired private ChannelOrderReissueService channelOrderReissueService;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
 
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
         log.info("处理分账补单任务 开始");
 
         //当前时间 减去5分钟。
@@ -80,61 +93,9 @@ public class PayOrderDivisionRecordReissueTask {
                     break;
                 }
 
-                for(PayOrderDivisionRecord batchRecord: pageRecordList.getRecords()){
-
-                    try {
-                        String batchOrderId = batchRecord.getBatchOrderId();
-
-                        // 通过 batchId 查询出列表（ 注意：  需要按照ID 排序！！！！ ）
-                        List<PayOrderDivisionRecord> recordList = payOrderDivisionRecordService.list(PayOrderDivisionRecord.gw()
-                                .eq(PayOrderDivisionRecord::getState, PayOrderDivisionRecord.STATE_ACCEPT)
-                                .eq(PayOrderDivisionRecord::getBatchOrderId, batchOrderId)
-                                .orderByAsc(PayOrderDivisionRecord::getRecordId)
-                        );
-
-                        if(recordList == null || recordList.isEmpty()){
-                            continue;
-                        }
-
-                        // 查询支付订单信息
-                        PayOrder payOrder = payOrderService.getById(batchRecord.getPayOrderId());
-                        if (payOrder == null) {
-                            log.error("支付订单记录不存在：{}",  batchRecord.getPayOrderId());
-                            continue;
-                        }
-                        // 查询转账接口是否存在
-                        IDivisionService divisionService = SpringBeansUtil.getBean(payOrder.getIfCode() + "DivisionService", IDivisionService.class);
-
-                        if (divisionService == null) {
-                            log.error("查询分账接口不存在：{}",  payOrder.getIfCode());
-                            continue;
-                        }
-                        MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(payOrder.getMchNo(), payOrder.getAppId());
-                        // 调用渠道侧的查单接口：   注意：  渠道内需保证：
-                        // 1. 返回的条目 必须全部来自recordList， 可以少于recordList但是不得高于 recordList 数量；
-                        // 2. recordList 的记录可能与接口返回的数量不一致，  接口实现不要求对条目数量做验证；
-                        // 3. 接口查询的记录若recordList 不存在， 忽略即可。  （  例如两条相同的accNo, 则可能仅匹配一条。 那么另外一条将在下一次循环中处理。  ）
-                        // 4. 仅明确状态的再返回，若不明确则不需返回；
-                        HashMap<Long, ChannelRetMsg> queryDivision = divisionService.queryDivision(payOrder, recordList, mchAppConfigContext);
-
-                        // 处理查询结果
-                        recordList.stream().forEach(record -> {
-                            ChannelRetMsg channelRetMsg = queryDivision.get(record.getRecordId());
-
-                            // 响应状态为分账成功或失败时，更新该记录状态
-                            if (ChannelRetMsg.ChannelState.CONFIRM_SUCCESS == channelRetMsg.getChannelState() ||
-                                    ChannelRetMsg.ChannelState.CONFIRM_FAIL == channelRetMsg.getChannelState()) {
-
-                                Byte state = ChannelRetMsg.ChannelState.CONFIRM_SUCCESS == channelRetMsg.getChannelState() ? PayOrderDivisionRecord.STATE_SUCCESS : PayOrderDivisionRecord.STATE_FAIL;
-                                // 更新记录状态
-                                payOrderDivisionRecordService.updateRecordSuccessOrFailBySingleItem(record.getRecordId(), state, channelRetMsg.getChannelErrMsg());
-                            }
-                        });
-
-                    } catch (Exception e1) {
-                        log.error("处理补单任务单条[{}]异常",  batchRecord.getBatchOrderId(), e1);
-                    }
-                }
+                // 按照支付接口分组并发查询上游
+                channelOrderReissueService.executeGrouped(pageRecordList.getRecords().stream()
+                        .collect(Collectors.groupingBy(batchRecord -> String.valueOf(batchRecord.getIfCode()))), this::processBatchRecord);
 
                 //已经到达页码最大量，无需再次查询
                 if(pageRecordList.getPages() <= currentPageIndex){
@@ -151,4 +112,61 @@ public class PayOrderDivisionRecordReissueTask {
         }
     }
 
+    /** 处理单个分账批次 **/
+    private void processBatchRecord(PayOrderDivisionRecord batchRecord){
+
+        try {
+            String batchOrderId = batchRecord.getBatchOrderId();
+
+            // 通过 batchId 查询出列表（ 注意：  需要按照ID 排序！！！！ ）
+            List<PayOrderDivisionRecord> recordList = payOrderDivisionRecordService.list(PayOrderDivisionRecord.gw()
+                    .eq(PayOrderDivisionRecord::getState, PayOrderDivisionRecord.STATE_ACCEPT)
+                    .eq(PayOrderDivisionRecord::getBatchOrderId, batchOrderId)
+                    .orderByAsc(PayOrderDivisionRecord::getRecordId)
+            );
+
+            if(recordList == null || recordList.isEmpty()){
+                return;
+            }
+
+            // 查询支付订单信息
+            PayOrder payOrder = payOrderService.getById(batchRecord.getPayOrderId());
+            if (payOrder == null) {
+                log.error("支付订单记录不存在：{}",  batchRecord.getPayOrderId());
+                return;
+            }
+            // 查询转账接口是否存在
+            IDivisionService divisionService = channelServiceRegistry.getService(payOrder.getIfCode(), IDivisionService.class);
+
+            if (divisionService == null) {
+                log.error("查询分账接口不存在：{}",  payOrder.getIfCode());
+                return;
+            }
+            MchAppConfigContext mchAppConfigContext = configContextQueryService.queryMchInfoAndAppInfo(payOrder.getMchNo(), payOrder.getAppId());
+            // 调用渠道侧的查单接口：   注意：  渠道内需保证：
+            // 1. 返回的条目 必须全部来自recordList， 可以少于recordList但是不得高于 recordList 数量；
+            // 2. recordList 的记录可能与接口返回的数量不一致，  接口实现不要求对条目数量做验证；
+            // 3. 接口查询的记录若recordList 不存在， 忽略即可。  （  例如两条相同的accNo, 则可能仅匹配一条。 那么另外一条将在下一次循环中处理。  ）
+            // 4. 仅明确状态的再返回，若不明确则不需返回；
+            HashMap<Long, ChannelRetMsg> queryDivision = divisionService.queryDivision(payOrder, recordList, mchAppConfigContext);
+
+            // 处理查询结果
+            recordList.stream().forEach(record -> {
+                ChannelRetMsg channelRetMsg = queryDivision.get(record.getRecordId());
+
+                // 响应状态为分账成功或失败时，更新该记录状态 （ 未返回的记录在下一次任务中继续查询 ）
+                if (channelRetMsg != null && (ChannelRetMsg.ChannelState.CONFIRM_SUCCESS == channelRetMsg.getChannelState() ||
+                        ChannelRetMsg.ChannelState.CONFIRM_FAIL == channelRetMsg.getChannelState())) {
+
+                    Byte state = ChannelRetMsg.ChannelState.CONFIRM_SUCCESS == channelRetMsg.getChannelState() ? PayOrderDivisionRecord.STATE_SUCCESS : PayOrderDivisionRecord.STATE_FAIL;
+                    // 更新记录状态
+                    payOrderDivisionRecordService.updateRecordSuccessOrFailBySingleItem(record.getRecordId(), state, channelRetMsg.getChannelErrMsg());
+                }
+            });
+
+        } catch (Exception e1) {
+            log.error("处理补单任务单条[{}]异常",  batchRecord.getBatchOrderId(), e1);
+        }
+    }
+
 }
@@ -15,6 +15,9 @@
  */
 package com.jeequan.jeepay.pay.task;
 
+import com.jeequan.jeepay.pay.config.OrderExpireYmlConfig;
+import com.jeequan.jeepay.pay.service.PayOrderExpireScheduler;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,13 +35,34 @@ import org.springframework.stereotype.Component;
 @Component
 public class PayOrderExpiredTask {
 
+    public static final String TASK_NAME = "PAY_EXPIRED";
+
     @Autowired private PayOrderService payOrderService;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+    @Autowired private OrderExpireYmlConfig orderExpireYmlConfig;
+    @Autowired private PayOrderExpireScheduler payOrderExpireScheduler;
+
+    /** 上次扫描时间 **/
+    private long lastSweepTime = 0;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
 
-        int updateCount = payOrderService.updateOrderExpired();
-        log.info("处理订单超时{}条.", updateCount);
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        // 启用进程内过期调度时， 订单在过期时间单独关闭， 本任务仅作为兜底低频扫描
+        if(payOrderExpireScheduler.isEnabled() && startTime - lastSweepTime < orderExpireYmlConfig.getLocalSweepIntervalSeconds() * 1000L){
+            return;
+        }
+        lastSweepTime = startTime;
+
+        int updateCount = payOrderService.updateOrderExpired(orderExpireYmlConfig.getChunkSize());
+        log.info("处理订单超时{}条, 耗时{}ms.", updateCount, System.currentTimeMillis() - startTime);
     }
 
 
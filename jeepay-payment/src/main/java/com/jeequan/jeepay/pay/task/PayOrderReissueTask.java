@@ -17,21 +17,27 @@ package com.jeequan.jeepay.pay.task;
 
 import cn.hutool.core.date.DateUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.jeequan.jeepay.core.entity.PayOrder;
+import com.jeequan.jeepay.pay.config.ReissueYmlConfig;
 import com.jeequan.jeepay.pay.service.ChannelOrderReissueService;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.service.impl.PayOrderService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.Date;
+import java.util.List;
 
 /*
 * 补单定时任务
-* 
+*
+* 按照 （创建时间, 支付订单号） 游标分页， 订单状态变化不会导致漏查 / 重复查询；
+* 启用定时任务租约时， 各节点仅处理本节点持有的分片（ crc32(支付订单号) % 分片数 ）。
+*
 * @author terrfly
 * @site https://www.jeequan.com
 * @date 2021/6/8 17:47
@@ -40,10 +46,12 @@ import java.util.Date;
 @Component
 public class PayOrderReissueTask {
 
-    private static final int QUERY_PAGE_SIZE = 100; //每次查询数量
+    public static final String TASK_NAME = "PAY_REISSUE";
 
     @Autowired private PayOrderService payOrderService;
     @Autowired private ChannelOrderReissueService channelOrderReissueService;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+    @Autowired private ReissueYmlConfig reissueYmlConfig;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
@@ -51,29 +59,59 @@ public class PayOrderReissueTask {
         //当前时间 减去10分钟。
         Date offsetDate = DateUtil.offsetMinute(new Date(), -10);
 
-        //查询条件： 支付中的订单 & （ 订单创建时间 + 10分钟 >= 当前时间 ）
-        LambdaQueryWrapper<PayOrder> lambdaQueryWrapper = PayOrder.gw().eq(PayOrder::getState, PayOrder.STATE_ING).le(PayOrder::getCreatedAt, offsetDate);
+        // 本节点处理的分片
+        String shardSql = null;
+        if(scheduleCoordinator.isEnabled()){
+            int shardCount = reissueYmlConfig.getPayShardCount();
+            List<Integer> shards = scheduleCoordinator.acquireShards(TASK_NAME, shardCount);
+            if(shards.isEmpty()){
+                return;
+            }
+            if(shards.size() < shardCount){
+                shardSql = "crc32(pay_order_id) % " + shardCount + " in (" + StringUtils.join(shards, ",") + ")";
+            }
+        }
 
-        int currentPageIndex = 1; //当前页码
+        int pageSize = reissueYmlConfig.getPageSize();
+        long startTime = System.currentTimeMillis();
+        int processCount = 0;
+
+        Date lastCreatedAt = null;
+        String lastPayOrderId = null;
         while(true){
 
             try {
-                IPage<PayOrder> payOrderIPage = payOrderService.page(new Page(currentPageIndex, QUERY_PAGE_SIZE), lambdaQueryWrapper);
+                //查询条件： 支付中的订单 & （ 订单创建时间 + 10分钟 >= 当前时间 ）
+                LambdaQueryWrapper<PayOrder> lambdaQueryWrapper = PayOrder.gw().eq(PayOrder::getState, PayOrder.STATE_ING).le(PayOrder::getCreatedAt, offsetDate);
+
+                // 游标： （创建时间, 支付订单号） 大于上一批的最后一条
+                if(lastCreatedAt != null){
+                    Date cursorCreatedAt = lastCreatedAt;
+                    String cursorPayOrderId = lastPayOrderId;
+                    lambdaQueryWrapper.and(w -> w.gt(PayOrder::getCreatedAt, cursorCreatedAt)
+                            .or(w2 -> w2.eq(PayOrder::getCreatedAt, cursorCreatedAt).gt(PayOrder::getPayOrderId, cursorPayOrderId)));
+                }
+                if(shardSql != null){
+                    lambdaQueryWrapper.apply(shardSql);
+                }
+                lambdaQueryWrapper.orderByAsc(PayOrder::getCreatedAt).orderByAsc(PayOrder::getPayOrderId);
 
-                if(payOrderIPage == null || payOrderIPage.getRecords().isEmpty()){ //本次查询无结果, 不再继续查询;
+                List<PayOrder> payOrderList = payOrderService.page(new Page<>(1, pageSize, false), lambdaQueryWrapper).getRecords();
+                if(payOrderList.isEmpty()){ //本次查询无结果, 不再继续查询;
                     break;
                 }
 
-                for(PayOrder payOrder: payOrderIPage.getRecords()){
-                    channelOrderReissueService.processPayOrder(payOrder);
-                }
+                // 按照支付接口分组并发查询上游
+                channelOrderReissueService.processPayOrders(payOrderList);
+                processCount += payOrderList.size();
 
-                //已经到达页码最大量，无需再次查询
-                if(payOrderIPage.getPages() <= currentPageIndex){
+                if(payOrderList.size() < pageSize){
                     break;
                 }
-                currentPageIndex++;
 
+                PayOrder lastPayOrder = payOrderList.get(payOrderList.size() - 1);
+                lastCreatedAt = lastPayOrder.getCreatedAt();
+                lastPayOrderId = lastPayOrder.getPayOrderId();
 
             } catch (Exception e) { //出现异常，直接退出，避免死循环。
                 log.error("error", e);
@@ -81,8 +119,10 @@ public class PayOrderReissueTask {
             }
 
         }
-    }
-
 
+        if(processCount > 0){
+            log.info("补单任务： 处理订单{}笔， 耗时{}ms", processCount, System.currentTimeMillis() - startTime);
+        }
+    }
 
 }
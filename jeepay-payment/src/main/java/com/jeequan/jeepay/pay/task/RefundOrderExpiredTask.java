@@ -15,7 +15,8 @@
  */
 package com.jeequan.jeepay.pay.task;
 
-import com.jeequan.jeepay.service.impl.PayOrderService;
+import com.jeequan.jeepay.pay.config.OrderExpireYmlConfig;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.service.impl.RefundOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,13 +34,23 @@ import org.springframework.stereotype.Component;
 @Component
 public class RefundOrderExpiredTask {
 
+    public static final String TASK_NAME = "REFUND_EXPIRED";
+
     @Autowired private RefundOrderService refundOrderService;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
+    @Autowired private OrderExpireYmlConfig orderExpireYmlConfig;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
 
-        int updateCount = refundOrderService.updateOrderExpired();
-        log.info("处理退款订单超时{}条.", updateCount);
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int updateCount = refundOrderService.updateOrderExpired(orderExpireYmlConfig.getChunkSize());
+        log.info("处理退款订单超时{}条, 耗时{}ms.", updateCount, System.currentTimeMillis() - startTime);
     }
 
 
@@ -21,6 +21,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.jeequan.jeepay.core.entity.RefundOrder;
 import com.jeequan.jeepay.pay.service.ChannelOrderReissueService;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.service.impl.RefundOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,14 +41,22 @@ import java.util.Date;
 @Component
 public class RefundOrderReissueTask {
 
+    public static final String TASK_NAME = "REFUND_REISSUE";
+
     private static final int QUERY_PAGE_SIZE = 100; //每次查询数量
 
     @Autowired private RefundOrderService refundOrderService;
     @Autowired private ChannelOrderReissueService channelOrderReissueService;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
 
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
         //查询条件： 退款中的订单
         LambdaQueryWrapper<RefundOrder> lambdaQueryWrapper = RefundOrder.gw().eq(RefundOrder::getState, RefundOrder.STATE_ING);
 
@@ -20,6 +20,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.jeequan.jeepay.core.entity.TransferOrder;
+import com.jeequan.jeepay.pay.service.ScheduleCoordinator;
 import com.jeequan.jeepay.pay.service.TransferOrderReissueService;
 import com.jeequan.jeepay.service.impl.TransferOrderService;
 import lombok.extern.slf4j.Slf4j;
@@ -40,14 +41,22 @@ import java.util.Date;
 @Component
 public class TransferOrderReissueTask {
 
+    public static final String TASK_NAME = "TRANSFER_REISSUE";
+
     private static final int QUERY_PAGE_SIZE = 100; //每次查询数量
 
     @Autowired private TransferOrderService transferOrderService;
     @Autowired private TransferOrderReissueService transferOrderReissueService;
+    @Autowired private ScheduleCoordinator scheduleCoordinator;
 
     @Scheduled(cron="0 0/1 * * * ?") // 每分钟执行一次
     public void start() {
 
+        // 多节点部署时仅执行节点处理
+        if(!scheduleCoordinator.tryLeader(TASK_NAME)){
+            return;
+        }
+
         //查询条件：
         LambdaQueryWrapper<TransferOrder> lambdaQueryWrapper = TransferOrder.gw()
                 .eq(TransferOrder::getState, TransferOrder.STATE_ING) // 转账中
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.util;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.binarywang.wxpay.v3.util.PemUtils;
+import org.apache.commons.codec.binary.Base64;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+* 证书秘钥缓存
+*
+* 私钥按照 文件路径（ ChannelCertConfigKitBean 解析后的本地路径 ） 缓存， 文件的修改时间、大小或证书密码变化后重新加载；
+* 公钥按照 Base64字符串 缓存。 避免每次签名/验签时读取文件及解析证书。
+*/
+public final class CertKeyCache {
+
+    /** <类型|文件路径, 私钥>  **/
+    private static final Map<String, KeyEntry> PRIVATE_KEY_MAP = new ConcurrentHashMap<>();
+
+    /** <Base64公钥, 公钥>  **/
+    private static final LRUCache<String, PublicKey> PUBLIC_KEY_CACHE = CacheUtil.newLRUCache(1000);
+
+    private CertKeyCache(){}
+
+    /** 获取私钥， loader返回null时不缓存 **/
+    public static PrivateKey getPrivateKey(String type, String filePath, String password, Supplier<PrivateKey> loader){
+
+        File file = new File(filePath);
+        String fingerprint = file.lastModified() + "|" + file.length() + "|" + (password == null ? "" : DigestUtil.sha256Hex(password));
+        String key = type + "|" + file.getAbsolutePath();
+
+        KeyEntry entry = PRIVATE_KEY_MAP.get(key);
+        if(entry != null && entry.fingerprint.equals(fingerprint)){
+            return entry.privateKey;
+        }
+
+        PrivateKey privateKey = loader.get();
+        if(privateKey != null){
+            PRIVATE_KEY_MAP.put(key, new KeyEntry(fingerprint, privateKey));
+        }
+        return privateKey;
+    }
+
+    /** 获取PEM格式私钥（ 如微信 apiclient_key.pem ） **/
+    public static PrivateKey getPemPrivateKey(String filePath) throws FileNotFoundException {
+
+        if(!new File(filePath).exists()){
+            throw new FileNotFoundException(filePath);
+        }
+
+        return getPrivateKey("PEM", filePath, null, () -> {
+            try (FileInputStream fis = new FileInputStream(filePath)) {
+                return PemUtils.loadPrivateKey(fis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /** 获取RSA公钥（ X509 Base64格式 ） **/
+    public static PublicKey getRsaPublicKey(String base64PublicKey) throws Exception {
+
+        PublicKey publicKey = PUBLIC_KEY_CACHE.get(base64PublicKey);
+        if(publicKey == null){
+            publicKey = KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(Base64.decodeBase64(base64PublicKey)));
+            PUBLIC_KEY_CACHE.put(base64PublicKey, publicKey);
+        }
+        return publicKey;
+    }
+
+    private static class KeyEntry {
+
+        final String fingerprint;
+        final PrivateKey privateKey;
+
+        KeyEntry(String fingerprint, PrivateKey privateKey){
+            this.fingerprint = fingerprint;
+            this.privateKey = privateKey;
+        }
+    }
+
+}
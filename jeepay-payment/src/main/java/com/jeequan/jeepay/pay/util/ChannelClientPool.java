@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.jeequan.jeepay.core.utils.SpringBeansUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+* 渠道SDK client 共享池
+*
+* 按照凭证指纹（ 类型 + appId/商户号 + 秘钥摘要 + 证书文件摘要 + 沙箱标识等 ）共享client对象，
+* 凭证相同的 商户应用/服务商 配置上下文 使用同一个client（ 同一套HTTP连接及已解析的证书 ）。
+*
+* 引用计数由JVM可达性完成： 池中仅持有弱引用， 最后一个引用该client的配置上下文被替换或删除后，
+* client可被回收， 对应的池条目在下次访问时清除。
+*/
+@Slf4j
+public final class ChannelClientPool {
+
+    private static final Map<String, ClientRef> POOL = new ConcurrentHashMap<>();
+
+    private static final ReferenceQueue<Object> REF_QUEUE = new ReferenceQueue<>();
+
+    private ChannelClientPool(){}
+
+    /**
+     * 获取共享的client， 不存在时调用creator创建。
+     * creator返回null（ 如证书解析失败 ）时不放入池中， 调用方自行处理。
+     * **/
+    public static <T> T getOrCreate(String type, Supplier<T> creator, Object... credentials){
+
+        purge();
+
+        String key = type + "_" + fingerprint(credentials);
+
+        ClientRef ref = POOL.get(key);
+        Object client = ref == null ? null : ref.get();
+        if(client != null){
+            return (T) client;
+        }
+
+        Object[] result = new Object[1];
+        POOL.compute(key, (k, old) -> {
+
+            Object oldClient = old == null ? null : old.get();
+            if(oldClient != null){
+                result[0] = oldClient;
+                return old;
+            }
+
+            T created = creator.get();
+            result[0] = created;
+            return created == null ? null : new ClientRef(k, created);
+        });
+
+        return (T) result[0];
+    }
+
+    /** 证书文件摘要： 文件路径 + 大小 + 修改时间 （ 证书替换后生成新的指纹 ） **/
+    public static String certFingerprint(String certFilePath){
+
+        if(StringUtils.isBlank(certFilePath)){
+            return null;
+        }
+
+        File certFile = SpringBeansUtil.getBean(ChannelCertConfigKitBean.class).getCertFile(certFilePath);
+        return certFile.getAbsolutePath() + "|" + certFile.length() + "|" + certFile.lastModified();
+    }
+
+    /** 当前池中的client数量 **/
+    public static int size(){
+        purge();
+        return POOL.size();
+    }
+
+    /** 凭证指纹， 仅保存摘要， 避免秘钥明文作为map key **/
+    private static String fingerprint(Object... credentials){
+
+        StringBuilder sb = new StringBuilder();
+        for (Object credential : credentials) {
+            sb.append(credential).append('\u0001');
+        }
+        return DigestUtil.sha256Hex(sb.toString());
+    }
+
+    /** 清除已被回收的client对应的池条目 **/
+    private static void purge(){
+
+        Object ref;
+        while ((ref = REF_QUEUE.poll()) != null){
+            ClientRef clientRef = (ClientRef) ref;
+            POOL.remove(clientRef.key, clientRef);
+        }
+    }
+
+    private static class ClientRef extends WeakReference<Object> {
+
+        final String key;
+
+        ClientRef(String key, Object client){
+            super(client, REF_QUEUE);
+            this.key = key;
+        }
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+* 分层时间轮 （ 进程内延迟任务 ）
+*
+* 第0层每格 tickMillis， 第n层每格为第n-1层一整圈的时长； 层数根据最大延迟时间计算。
+* 高层的任务在对应格子到期时降级到低层， 最终在第0层到期后提交到执行线程池。
+*
+* 仅由工作线程读写时间轮， 其他线程提交的任务先进入无锁队列， 在下一个tick放入时间轮。
+* 任务仅保存在内存中， 进程重启后丢失， 需由调用方提供持久化兜底。
+*/
+@Slf4j
+public class HierarchicalTimingWheel {
+
+    private final long tickNanos;
+    private final int wheelSize;
+    private final int maxTasks;
+    private final Executor executor;
+
+    /** 每层一格对应的tick数 **/
+    private final long[] levelTicks;
+
+    /** 时间轮 [层][格] **/
+    private final ArrayDeque<TimerTask>[][] buckets;
+
+    /** 最大支持的延迟tick数 **/
+    private final long maxDelayTicks;
+
+    private final ConcurrentLinkedQueue<TimerTask> addQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger taskCount = new AtomicInteger();
+
+    private final long startNanos;
+    private long currentTick = 0;
+
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(String name, long tickMillis, int wheelSize, long maxDelayMillis, int maxTasks, Executor executor){
+
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheelSize = wheelSize;
+        this.maxTasks = maxTasks;
+        this.executor = executor;
+
+        // 计算层数， 保证最高层一圈可以容纳最大延迟时间
+        long maxTicks = Math.max(1, (maxDelayMillis + tickMillis - 1) / tickMillis);
+        int levels = 1;
+        long span = wheelSize;
+        while (span <= maxTicks){
+            span *= wheelSize;
+            levels++;
+        }
+        this.maxDelayTicks = span - 1;
+
+        this.levelTicks = new long[levels];
+        this.buckets = new ArrayDeque[levels][wheelSize];
+        long ticks = 1;
+        for (int i = 0; i < levels; i++) {
+            levelTicks[i] = ticks;
+            ticks *= wheelSize;
+            for (int j = 0; j < wheelSize; j++) {
+                buckets[i][j] = new ArrayDeque<>();
+            }
+        }
+
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 添加延迟任务， 返回false表示无法放入时间轮（ 延迟超出范围 / 任务数已达上限 / 已停止 ），
+     * 由调用方自行处理（ 如改为MQ延迟消息 ）
+     * **/
+    public boolean schedule(long delayMillis, Runnable task){
+
+        long deadlineTick = (System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)) + tickNanos - 1) / tickNanos;
+        if(!running || deadlineTick - currentTickApprox() > maxDelayTicks){
+            return false;
+        }
+
+        if(taskCount.incrementAndGet() > maxTasks){
+            taskCount.decrementAndGet();
+            return false;
+        }
+        addQueue.add(new TimerTask(deadlineTick, task));
+        return true;
+    }
+
+    /** 等待执行的任务数 **/
+    public int size(){
+        return taskCount.get();
+    }
+
+    /** 停止时间轮， 未到期的任务将被丢弃 **/
+    public void stop(){
+        running = false;
+        worker.interrupt();
+    }
+
+    private long currentTickApprox(){
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void run(){
+
+        while (running){
+
+            long waitNanos = startNanos + (currentTick + 1) * tickNanos - System.nanoTime();
+            if(waitNanos > 0){
+                LockSupport.parkNanos(this, waitNanos);
+                continue;
+            }
+
+            try {
+                currentTick++;
+
+                // 高层先降级， 保证降级到低层后同一tick内可以继续降级
+                for (int level = levelTicks.length - 1; level > 0; level--) {
+                    if(currentTick % levelTicks[level] == 0){
+                        int index = (int) ((currentTick / levelTicks[level]) % wheelSize);
+                        ArrayDeque<TimerTask> bucket = buckets[level][index];
+                        buckets[level][index] = new ArrayDeque<>(); // 先取出整格， 避免重新放入同一格子
+                        for (TimerTask task : bucket) {
+                            place(task);
+                        }
+                    }
+                }
+
+                TimerTask task;
+                while ((task = addQueue.poll()) != null){
+                    place(task);
+                }
+
+                ArrayDeque<TimerTask> bucket = buckets[0][(int) (currentTick % wheelSize)];
+                while ((task = bucket.poll()) != null){
+                    fire(task);
+                }
+
+            } catch (Exception e) {
+                log.error("时间轮执行异常", e);
+            }
+        }
+    }
+
+    /** 按照剩余tick数放入对应层的格子， 已到期时直接执行 **/
+    private void place(TimerTask task){
+
+        long delta = task.deadlineTick - currentTick;
+        if(delta <= 0){
+            fire(task);
+            return;
+        }
+
+        int level = 0;
+        while (level < levelTicks.length - 1 && delta >= levelTicks[level] * wheelSize){
+            level++;
+        }
+        buckets[level][(int) ((task.deadlineTick / levelTicks[level]) % wheelSize)].add(task);
+    }
+
+    private void fire(TimerTask task){
+        taskCount.decrementAndGet();
+        try {
+            executor.execute(task.runnable);
+        } catch (RejectedExecutionException e) {
+            log.error("时间轮任务提交失败", e);
+        }
+    }
+
+    private static class TimerTask {
+
+        final long deadlineTick;
+        final Runnable runnable;
+
+        TimerTask(long deadlineTick, Runnable runnable){
+            this.deadlineTick = deadlineTick;
+            this.runnable = runnable;
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.jeequan.jeepay.core.entity.MchApp;
+import com.jeequan.jeepay.core.entity.MchNotifyRecord;
+import com.jeequan.jeepay.core.exception.BizException;
+import com.jeequan.jeepay.core.model.MchNotifyPolicy;
+import com.jeequan.jeepay.pay.config.DelayRetryYmlConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 商户通知延迟时间 模拟测试： 多次计算同一次重试的延迟时间， 校验随机抖动的范围及分布， 以及最大延迟时间的限制
+*/
+class DelayRetryServiceTest {
+
+    private static final int SAMPLES = 100000;
+
+    private final DelayRetryYmlConfig config = new DelayRetryYmlConfig();
+    private final DelayRetryService delayRetryService = new DelayRetryService();
+
+    /** 商户应用配置的通知重试策略 **/
+    private String notifyPolicy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        inject(delayRetryService, "delayRetryYmlConfig", config);
+        inject(delayRetryService, "configContextQueryService", new ConfigContextQueryService(){
+            @Override
+            public MchApp queryMchApp(String mchNo, String mchAppId) {
+                return new MchApp().setMchNo(mchNo).setAppId(mchAppId).setNotifyPolicy(notifyPolicy);
+            }
+        });
+    }
+
+    @Test
+    void policyDelayIsExponentialAndCapped() {
+
+        MchNotifyPolicy policy = MchNotifyPolicy.parse("{\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600}");
+        int[] expected = {30, 30, 60, 120, 240, 480, 960, 1920, 3600, 3600};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], policy.getDelaySeconds(i));
+        }
+
+        assertThrows(BizException.class, () -> MchNotifyPolicy.parse("{\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":" + (MchNotifyPolicy.MAX_DELAY_SECONDS_LIMIT + 1) + "}"));
+    }
+
+    @Test
+    void jitterStaysInBoundsAndSpreadsEvenly() {
+
+        notifyPolicy = "{\"baseSeconds\":30,\"multiplier\":2,\"maxDelaySeconds\":3600,\"jitter\":0.2}";
+        MchNotifyRecord record = newRecord();
+
+        // 第4次通知失败： 基础延迟 240s， 抖动 ±20% 即 [192, 288]
+        int base = 240, min = 192, max = 288;
+        int buckets = 8;
+        int[] histogram = new int[buckets];
+        long sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int delay = delayRetryService.getNotifyDelaySeconds(record, 4);
+            assertTrue(delay >= min && delay <= max, "delay out of range: " + delay);
+            histogram[Math.min(buckets - 1, (delay - min) * buckets / (max - min))]++;
+            sum += delay;
+        }
+
+        // 均匀分布： 均值接近基础延迟， 各区间数量接近平均值
+        assertEquals(base, (double) sum / SAMPLES, base * 0.01);
+        for (int count : histogram) {
+            assertEquals(SAMPLES / buckets, count, SAMPLES / buckets * 0.1, "uneven spread: " + java.util.Arrays.toString(histogram));
+        }
+
+        // 最大延迟时间（ 抖动上限 ）覆盖全部样本
+        assertEquals(max, delayRetryService.getNotifyMaxDelaySeconds(record, 4));
+    }
+
+    @Test
+    void delayIsClampedToConfiguredMax() {
+
+        config.setNotifyMaxDelaySeconds(600);
+        notifyPolicy = "{\"baseSeconds\":60,\"multiplier\":3,\"maxDelaySeconds\":86400,\"jitter\":0.2}";
+        MchNotifyRecord record = newRecord();
+
+        for (int i = 0; i < SAMPLES; i++) {
+            assertTrue(delayRetryService.getNotifyDelaySeconds(record, 6) <= 600);
+        }
+        assertEquals(600, delayRetryService.getNotifyMaxDelaySeconds(record, 6));
+    }
+
+    @Test
+    void defaultDelaysUsedWithoutPolicy() {
+
+        config.setNotifyJitter(0d);
+        notifyPolicy = null;
+        MchNotifyRecord record = newRecord();
+
+        int[] expected = {30, 60, 90, 120, 150, 150};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], delayRetryService.getNotifyDelaySeconds(record, i + 1));
+        }
+    }
+
+    private static MchNotifyRecord newRecord(){
+        return new MchNotifyRecord().setMchNo("M1").setAppId("A1").setOrderType(MchNotifyRecord.TYPE_PAY_ORDER);
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.pay.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.jeequan.jeepay.pay.config.ScheduleLeaseYmlConfig;
+import com.jeequan.jeepay.service.impl.SysTaskLeaseService;
+import com.jeequan.jeepay.service.mapper.SysTaskLeaseMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 定时任务分片 测试： 多个节点共用H2（MySQL模式）中的租约表， 校验分片的均分、 节点加入后的再均衡 及 节点宕机后的接管
+*/
+class ScheduleCoordinatorTest {
+
+    private static final String TASK = "TEST_TASK";
+    private static final int SHARDS = 8;
+
+    private JdbcDataSource dataSource;
+    private SqlSession sqlSession;
+    private SysTaskLeaseService sysTaskLeaseService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(readDDL("t_sys_task_lease"));
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(SysTaskLeaseMapper.class);
+        sqlSession = new MybatisSqlSessionFactoryBuilder().build(configuration).openSession(true);
+
+        SysTaskLeaseMapper mapper = sqlSession.getMapper(SysTaskLeaseMapper.class);
+        sysTaskLeaseService = new SysTaskLeaseService(){{ baseMapper = mapper; }};
+    }
+
+    @AfterEach
+    void tearDown() {
+        sqlSession.close();
+    }
+
+    @Test
+    void singleNodeOwnsAllShards() throws Exception {
+        assertEquals(range(0, SHARDS), newNode("A").acquireShards(TASK, SHARDS));
+    }
+
+    @Test
+    void joiningNodeGetsShareBack() throws Exception {
+
+        ScheduleCoordinator a = newNode("A");
+        ScheduleCoordinator b = newNode("B");
+
+        assertEquals(SHARDS, a.acquireShards(TASK, SHARDS).size());
+        assertTrue(b.acquireShards(TASK, SHARDS).isEmpty()); // 分片均被A持有
+
+        // A 按照2个节点计算应持有数量， 释放多余的分片， B 随后获取
+        List<Integer> aShards = a.acquireShards(TASK, SHARDS);
+        List<Integer> bShards = b.acquireShards(TASK, SHARDS);
+        assertEquals(SHARDS / 2, aShards.size());
+        assertEquals(SHARDS / 2, bShards.size());
+        assertDisjointCover(aShards, bShards);
+
+        // 再次执行： 分片保持稳定
+        assertEquals(aShards, a.acquireShards(TASK, SHARDS));
+        assertEquals(bShards, b.acquireShards(TASK, SHARDS));
+    }
+
+    @Test
+    void eachNodeTakesAtMostItsShare() throws Exception {
+
+        List<ScheduleCoordinator> nodes = Arrays.asList(newNode("A"), newNode("B"), newNode("C"));
+        nodes.forEach(node -> node.acquireShards(TASK, SHARDS)); // 注册节点心跳
+
+        List<List<Integer>> result = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            result.clear();
+            for (ScheduleCoordinator node : nodes) {
+                result.add(node.acquireShards(TASK, SHARDS));
+            }
+        }
+
+        int fairShare = (SHARDS + nodes.size() - 1) / nodes.size();
+        result.forEach(shards -> assertTrue(shards.size() <= fairShare, "over share: " + shards));
+        assertDisjointCover(result.toArray(new List[0]));
+    }
+
+    @Test
+    void expiredShardsAreTakenOver() throws Exception {
+
+        ScheduleCoordinator a = newNode("A");
+        ScheduleCoordinator b = newNode("B");
+        a.acquireShards(TASK, SHARDS);
+        b.acquireShards(TASK, SHARDS);
+        a.acquireShards(TASK, SHARDS);
+        List<Integer> bShards = b.acquireShards(TASK, SHARDS);
+        assertFalse(bShards.isEmpty());
+
+        // B 宕机： 节点心跳 & 分片租约到期
+        expire("B");
+
+        List<Integer> aShards = a.acquireShards(TASK, SHARDS);
+        assertEquals(range(0, SHARDS), aShards);
+        assertTrue(aShards.containsAll(bShards));
+    }
+
+    @Test
+    void leaderIsExclusiveUntilExpired() throws Exception {
+
+        ScheduleCoordinator a = newNode("A");
+        ScheduleCoordinator b = newNode("B");
+
+        assertTrue(a.tryLeader(TASK));
+        assertFalse(b.tryLeader(TASK));
+
+        expire("A");
+        assertTrue(b.tryLeader(TASK));
+        assertFalse(a.tryLeader(TASK));
+    }
+
+    private ScheduleCoordinator newNode(String nodeId) throws Exception {
+
+        ScheduleLeaseYmlConfig config = new ScheduleLeaseYmlConfig();
+        config.setEnabled(true);
+        config.setLeaseSeconds(60);
+
+        ScheduleCoordinator coordinator = new ScheduleCoordinator();
+        inject(coordinator, "scheduleLeaseYmlConfig", config);
+        inject(coordinator, "sysTaskLeaseService", sysTaskLeaseService);
+        inject(coordinator, "nodeId", nodeId);
+        return coordinator;
+    }
+
+    /** 将节点持有的租约置为已过期 **/
+    private void expire(String nodeId) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("update t_sys_task_lease set expire_time = timestampadd(second, -1, now(3)) where node_id = ?")) {
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @SafeVarargs
+    private static void assertDisjointCover(List<Integer>... shardLists){
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (List<Integer> shards : shardLists) {
+            all.addAll(shards);
+            total += shards.size();
+        }
+        assertEquals(total, all.size(), "shard owned by more than one node");
+        assertEquals(new HashSet<>(range(0, SHARDS)), all);
+    }
+
+    private static List<Integer> range(int from, int to){
+        List<Integer> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    /** docs/sql/init.sql 中的建表语句 **/
+    private static String readDDL(String tableName) throws Exception {
+        String sql = Files.readString(Path.of("../docs/sql/init.sql"));
+        int start = sql.indexOf("CREATE TABLE `" + tableName + "`");
+        return sql.substring(start, sql.indexOf(";", start));
+    }
+
+}
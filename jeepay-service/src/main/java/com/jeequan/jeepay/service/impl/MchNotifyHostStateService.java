@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.jeequan.jeepay.core.entity.MchNotifyHostState;
+import com.jeequan.jeepay.service.mapper.MchNotifyHostStateMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>
+ * 商户通知地址熔断状态表 服务实现类
+ * </p>
+ */
+@Service
+public class MchNotifyHostStateService extends ServiceImpl<MchNotifyHostStateMapper, MchNotifyHostState> {
+
+    /** 上报节点状态 （ 显式设置上报时间， 内容未变化时同样更新 ） **/
+    public void report(String nodeId, String stateData){
+        saveOrUpdate(new MchNotifyHostState().setNodeId(nodeId).setStateData(stateData).setUpdatedAt(new Date()));
+    }
+
+    /** 查询 指定时间之后有上报的节点 **/
+    public List<MchNotifyHostState> listActive(Date since){
+        return list(MchNotifyHostState.gw().ge(MchNotifyHostState::getUpdatedAt, since));
+    }
+
+    /** 删除 指定时间之前最后上报的节点 （ 已下线的节点 ） **/
+    public boolean removeStale(Date before){
+        return remove(MchNotifyHostState.gw().lt(MchNotifyHostState::getUpdatedAt, before));
+    }
+
+}
@@ -21,6 +21,8 @@ import com.jeequan.jeepay.service.mapper.MchNotifyRecordMapper;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+
 /**
  * <p>
  * 商户通知表 服务实现类
@@ -58,6 +60,13 @@ public class MchNotifyRecordService extends ServiceImpl<MchNotifyRecordMapper, M
         return baseMapper.updateNotifyResult(notifyId, state, resResult);
     }
 
+    /** 更新最后通知时间（ 通知中的记录 ）， 不增加通知次数 */
+    public boolean updateLastNotifyTime(Long notifyId){
+        MchNotifyRecord updateRecord = new MchNotifyRecord();
+        updateRecord.setLastNotifyTime(new Date());
+        return update(updateRecord, MchNotifyRecord.gw().eq(MchNotifyRecord::getNotifyId, notifyId).eq(MchNotifyRecord::getState, MchNotifyRecord.STATE_ING));
+    }
+
 
 
 }
@@ -23,6 +23,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.jeequan.jeepay.core.constants.CS;
 import com.jeequan.jeepay.core.entity.IsvInfo;
@@ -36,6 +37,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -72,6 +74,45 @@ public class PayOrderService extends ServiceImpl<PayOrderMapper, PayOrder> {
                 .eq(PayOrder::getPayOrderId, payOrderId).eq(PayOrder::getState, PayOrder.STATE_INIT));
     }
 
+    /**
+     * 更新订单状态  【订单生成】 --》 【支付中/支付成功/支付失败】
+     * 单条语句完成状态变更， 等同于 updateInit2Ing + updateIng2SuccessOrFail
+     * **/
+    public boolean updateInit2IngOrSuccessOrFail(String payOrderId, PayOrder payOrder, String channelOrderNo, String channelUserId, String channelErrCode, String channelErrMsg){
+
+        Byte updateState = payOrder.getState();
+        if(updateState != PayOrder.STATE_ING && updateState != PayOrder.STATE_SUCCESS && updateState != PayOrder.STATE_FAIL){
+            return false;
+        }
+
+        PayOrder updateRecord = new PayOrder();
+        updateRecord.setState(updateState);
+
+        //同时更新， 未确定 --》 已确定的其他信息。  如支付接口的确认、 费率的计算。
+        updateRecord.setIfCode(payOrder.getIfCode());
+        updateRecord.setWayCode(payOrder.getWayCode());
+        updateRecord.setMchFeeRate(payOrder.getMchFeeRate());
+        updateRecord.setMchFeeAmount(payOrder.getMchFeeAmount());
+        updateRecord.setChannelUser(payOrder.getChannelUser());
+        updateRecord.setChannelOrderNo(payOrder.getChannelOrderNo());
+
+        // 支付成功/失败 以渠道返回信息为准（ 为空时不覆盖 ）
+        if(updateState != PayOrder.STATE_ING){
+            updateRecord.setChannelOrderNo(StringUtils.defaultIfEmpty(channelOrderNo, payOrder.getChannelOrderNo()));
+            updateRecord.setChannelUser(StringUtils.defaultIfEmpty(channelUserId, payOrder.getChannelUser()));
+        }
+
+        if(updateState == PayOrder.STATE_SUCCESS){
+            updateRecord.setSuccessTime(new Date());
+        }else if(updateState == PayOrder.STATE_FAIL){
+            updateRecord.setErrCode(channelErrCode);
+            updateRecord.setErrMsg(channelErrMsg);
+        }
+
+        return update(updateRecord, new LambdaUpdateWrapper<PayOrder>()
+                .eq(PayOrder::getPayOrderId, payOrderId).eq(PayOrder::getState, PayOrder.STATE_INIT));
+    }
+
     /** 更新订单状态  【支付中】 --》 【支付成功】 **/
     public boolean updateIng2Success(String payOrderId, String channelOrderNo, String channelUserId){
 
@@ -187,16 +228,72 @@ public class PayOrderService extends ServiceImpl<PayOrderMapper, PayOrder> {
         return payOrderMapper.payTypeCount(param);
     }
 
-    /** 更新订单为 超时状态 **/
-    public Integer updateOrderExpired(){
+    /**
+     * 更新订单为 超时状态
+     *
+     * 按照 （订单状态, 过期时间） 索引分批查询支付订单号， 再按照主键分批更新（ 每批为独立的短事务 ），
+     * 避免单条UPDATE语句长时间扫描 & 锁定大量数据， 影响下单。  返回更新的订单数。
+     */
+    public int updateOrderExpired(int chunkSize){
+
+        Date now = new Date();
+        int updateCount = 0;
 
-        PayOrder payOrder = new PayOrder();
-        payOrder.setState(PayOrder.STATE_CLOSED);
+        for (Byte state : Arrays.asList(PayOrder.STATE_INIT, PayOrder.STATE_ING)) {
+
+            Date lastExpiredTime = null;
+            String lastId = null;
+            while (true){
+
+                LambdaQueryWrapper<PayOrder> wrapper = PayOrder.gw().select(PayOrder::getPayOrderId, PayOrder::getExpiredTime)
+                        .eq(PayOrder::getState, state).le(PayOrder::getExpiredTime, now);
+
+                // 游标： （过期时间, 支付订单号） 大于上一批的最后一条
+                if(lastExpiredTime != null){
+                    Date cursorExpiredTime = lastExpiredTime;
+                    String cursorId = lastId;
+                    wrapper.and(w -> w.gt(PayOrder::getExpiredTime, cursorExpiredTime)
+                            .or(w2 -> w2.eq(PayOrder::getExpiredTime, cursorExpiredTime).gt(PayOrder::getPayOrderId, cursorId)));
+                }
+                wrapper.orderByAsc(PayOrder::getExpiredTime).orderByAsc(PayOrder::getPayOrderId);
+
+                List<PayOrder> records = page(new Page<>(1, chunkSize, false), wrapper).getRecords();
+                if(records.isEmpty()){
+                    break;
+                }
+
+                // 更新时再次校验状态， 查询后已变更状态的订单不受影响
+                PayOrder updateRecord = new PayOrder();
+                updateRecord.setState(PayOrder.STATE_CLOSED);
+                updateCount += baseMapper.update(updateRecord, PayOrder.gw()
+                        .in(PayOrder::getPayOrderId, records.stream().map(PayOrder::getPayOrderId).collect(Collectors.toList()))
+                        .eq(PayOrder::getState, state)
+                        .le(PayOrder::getExpiredTime, now)
+                );
+
+                if(records.size() < chunkSize){
+                    break;
+                }
+
+                PayOrder last = records.get(records.size() - 1);
+                lastExpiredTime = last.getExpiredTime();
+                lastId = last.getPayOrderId();
+            }
+        }
+
+        return updateCount;
+    }
+
+    /** 更新单个订单为 超时状态 （ 订单生成 / 支付中 & 已到过期时间 ） **/
+    public boolean updateOrderExpired(String payOrderId){
+
+        PayOrder updateRecord = new PayOrder();
+        updateRecord.setState(PayOrder.STATE_CLOSED);
 
-        return baseMapper.update(payOrder,
-                PayOrder.gw()
-                        .in(PayOrder::getState, Arrays.asList(PayOrder.STATE_INIT, PayOrder.STATE_ING))
-                        .le(PayOrder::getExpiredTime, new Date())
+        return update(updateRecord, PayOrder.gw()
+                .eq(PayOrder::getPayOrderId, payOrderId)
+                .in(PayOrder::getState, Arrays.asList(PayOrder.STATE_INIT, PayOrder.STATE_ING))
+                .le(PayOrder::getExpiredTime, new Date())
         );
     }
 
@@ -19,6 +19,7 @@ import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.jeequan.jeepay.core.entity.RefundOrder;
 import com.jeequan.jeepay.core.exception.BizException;
@@ -31,6 +32,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -126,17 +129,60 @@ public class RefundOrderService extends ServiceImpl<RefundOrderMapper, RefundOrd
     }
 
 
-    /** 更新退款单为 关闭状态 **/
-    public Integer updateOrderExpired(){
-
-        RefundOrder refundOrder = new RefundOrder();
-        refundOrder.setState(RefundOrder.STATE_CLOSED);
+    /**
+     * 更新订单为 超时状态
+     *
+     * 按照 （订单状态, 过期时间） 索引分批查询退款订单号， 再按照主键分批更新（ 每批为独立的短事务 ），
+     * 避免单条UPDATE语句长时间扫描 & 锁定大量数据， 影响下单。  返回更新的订单数。
+     */
+    public int updateOrderExpired(int chunkSize){
+
+        Date now = new Date();
+        int updateCount = 0;
+
+        for (Byte state : Arrays.asList(RefundOrder.STATE_INIT, RefundOrder.STATE_ING)) {
+
+            Date lastExpiredTime = null;
+            String lastId = null;
+            while (true){
+
+                LambdaQueryWrapper<RefundOrder> wrapper = RefundOrder.gw().select(RefundOrder::getRefundOrderId, RefundOrder::getExpiredTime)
+                        .eq(RefundOrder::getState, state).le(RefundOrder::getExpiredTime, now);
+
+                // 游标： （过期时间, 退款订单号） 大于上一批的最后一条
+                if(lastExpiredTime != null){
+                    Date cursorExpiredTime = lastExpiredTime;
+                    String cursorId = lastId;
+                    wrapper.and(w -> w.gt(RefundOrder::getExpiredTime, cursorExpiredTime)
+                            .or(w2 -> w2.eq(RefundOrder::getExpiredTime, cursorExpiredTime).gt(RefundOrder::getRefundOrderId, cursorId)));
+                }
+                wrapper.orderByAsc(RefundOrder::getExpiredTime).orderByAsc(RefundOrder::getRefundOrderId);
+
+                List<RefundOrder> records = page(new Page<>(1, chunkSize, false), wrapper).getRecords();
+                if(records.isEmpty()){
+                    break;
+                }
+
+                // 更新时再次校验状态， 查询后已变更状态的订单不受影响
+                RefundOrder updateRecord = new RefundOrder();
+                updateRecord.setState(RefundOrder.STATE_CLOSED);
+                updateCount += baseMapper.update(updateRecord, RefundOrder.gw()
+                        .in(RefundOrder::getRefundOrderId, records.stream().map(RefundOrder::getRefundOrderId).collect(Collectors.toList()))
+                        .eq(RefundOrder::getState, state)
+                        .le(RefundOrder::getExpiredTime, now)
+                );
+
+                if(records.size() < chunkSize){
+                    break;
+                }
+
+                RefundOrder last = records.get(records.size() - 1);
+                lastExpiredTime = last.getExpiredTime();
+                lastId = last.getRefundOrderId();
+            }
+        }
 
-        return baseMapper.update(refundOrder,
-                RefundOrder.gw()
-                        .in(RefundOrder::getState, Arrays.asList(RefundOrder.STATE_INIT, RefundOrder.STATE_ING))
-                        .le(RefundOrder::getExpiredTime, new Date())
-        );
+        return updateCount;
     }
 
 
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.jeequan.jeepay.core.entity.SysIdSegment;
+import com.jeequan.jeepay.core.service.IIdSegmentService;
+import com.jeequan.jeepay.service.mapper.SysIdSegmentMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * <p>
+ * ID号段表 服务实现类
+ * </p>
+ */
+@Service
+public class SysIdSegmentService extends ServiceImpl<SysIdSegmentMapper, SysIdSegment> implements IIdSegmentService {
+
+    /** 分配号段 （ 独立事务， 更新语句的行锁保证多节点分配的号段不重叠 ） **/
+    @Override
+    @Transactional(propagation = Propagation.REQUIRES_NEW, rollbackFor = Exception.class)
+    public long allocate(String bizTag, int step) {
+
+        if(baseMapper.incrMaxId(bizTag, step) <= 0){
+
+            // 首次使用该业务标识
+            try {
+                save(new SysIdSegment().setBizTag(bizTag).setMaxId((long) step));
+                return step;
+            } catch (DuplicateKeyException e) { // 其他节点已插入
+                baseMapper.incrMaxId(bizTag, step);
+            }
+        }
+
+        return getById(bizTag).getMaxId();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.jeequan.jeepay.core.entity.SysTaskLease;
+import com.jeequan.jeepay.core.service.IWorkerIdLeaseService;
+import com.jeequan.jeepay.service.mapper.SysTaskLeaseMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * <p>
+ * 定时任务租约表 服务实现类
+ * </p>
+ */
+@Service
+public class SysTaskLeaseService extends ServiceImpl<SysTaskLeaseMapper, SysTaskLease> implements IWorkerIdLeaseService {
+
+    /** 雪花算法workerId租约的任务名称 **/
+    public static final String TASK_NAME_SEQ_WORKER = "SEQ_WORKER";
+
+    /** 获取 / 续期租约， 返回true表示当前节点持有该租约 （ 单条语句的行锁保证同一时刻仅一个节点持有 ） **/
+    public boolean acquire(SysTaskLease lease, int leaseSeconds){
+
+        if(baseMapper.renew(lease.getLeaseKey(), lease.getNodeId(), leaseSeconds) > 0){
+            return true;
+        }
+
+        // 首次使用该租约， 并发插入时仅一个节点成功
+        return baseMapper.insertIgnore(lease, leaseSeconds) > 0;
+    }
+
+    /** 释放租约 （ 仅释放当前节点持有的租约 ） **/
+    public void release(String leaseKey, String nodeId){
+        baseMapper.release(leaseKey, nodeId);
+    }
+
+    /** 获取 / 续期 雪花算法workerId 的租约 （ 按照 workerId 分片 ） **/
+    @Override
+    public boolean acquireWorkerId(long workerId, String nodeId, int leaseSeconds){
+        return acquire(new SysTaskLease().setLeaseKey(genWorkerIdLeaseKey(workerId)).setTaskName(TASK_NAME_SEQ_WORKER)
+                .setLeaseType(SysTaskLease.LEASE_TYPE_SHARD).setShardNo((int) workerId).setNodeId(nodeId), leaseSeconds);
+    }
+
+    /** 释放 雪花算法workerId 的租约 **/
+    @Override
+    public void releaseWorkerId(long workerId, String nodeId){
+        release(genWorkerIdLeaseKey(workerId), nodeId);
+    }
+
+    private static String genWorkerIdLeaseKey(long workerId){
+        return TASK_NAME_SEQ_WORKER + ":SHARD:" + workerId;
+    }
+
+    /** 查询未过期的租约 （ 任务名称为空时查询全部任务 ） **/
+    public List<SysTaskLease> listLive(String taskName){
+        return baseMapper.listLive(taskName);
+    }
+
+}
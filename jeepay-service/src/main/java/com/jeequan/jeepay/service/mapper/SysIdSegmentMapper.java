@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.jeequan.jeepay.core.entity.SysIdSegment;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * <p>
+ * ID号段表 Mapper 接口
+ * </p>
+ */
+public interface SysIdSegmentMapper extends BaseMapper<SysIdSegment> {
+
+    /** 号段最大值累加 **/
+    int incrMaxId(@Param("bizTag") String bizTag, @Param("step") int step);
+
+}
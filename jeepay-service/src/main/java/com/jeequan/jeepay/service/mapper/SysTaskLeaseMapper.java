@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.jeequan.jeepay.core.entity.SysTaskLease;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * <p>
+ * 定时任务租约表 Mapper 接口
+ * </p>
+ */
+public interface SysTaskLeaseMapper extends BaseMapper<SysTaskLease> {
+
+    /** 续期租约 （ 当前节点持有 或 租约已过期 ） **/
+    int renew(@Param("leaseKey") String leaseKey, @Param("nodeId") String nodeId, @Param("leaseSeconds") int leaseSeconds);
+
+    /** 新增租约， 已存在时忽略 **/
+    int insertIgnore(@Param("lease") SysTaskLease lease, @Param("leaseSeconds") int leaseSeconds);
+
+    /** 释放租约 **/
+    int release(@Param("leaseKey") String leaseKey, @Param("nodeId") String nodeId);
+
+    /** 查询未过期的租约 （ 任务名称为空时查询全部任务 ） **/
+    List<SysTaskLease> listLive(@Param("taskName") String taskName);
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2021-2031, 河北计全科技有限公司 (https://www.jeequan.com & jeequan@126.com).
+ * <p>
+ * Licensed under the GNU LESSER GENERAL PUBLIC LICENSE 3.0;
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.gnu.org/licenses/lgpl.html
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jeequan.jeepay.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.jeequan.jeepay.core.entity.SysTaskLease;
+import com.jeequan.jeepay.service.mapper.SysTaskLeaseMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+* 定时任务租约 测试： 使用H2（MySQL模式）执行 SysTaskLeaseMapper.xml 中的语句， 表结构取自 docs/sql/init.sql
+*/
+class SysTaskLeaseServiceTest {
+
+    private static final String TASK = "TEST_TASK";
+    private static final int LEASE_SECONDS = 60;
+
+    private JdbcDataSource dataSource;
+    private SqlSession sqlSession;
+    private SysTaskLeaseMapper mapper;
+    private SysTaskLeaseService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(readDDL("t_sys_task_lease"));
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.setEnvironment(new Environment("test", new JdbcTransactionFactory(), dataSource));
+        configuration.addMapper(SysTaskLeaseMapper.class);
+        sqlSession = new MybatisSqlSessionFactoryBuilder().build(configuration).openSession(true);
+        mapper = sqlSession.getMapper(SysTaskLeaseMapper.class);
+
+        service = new SysTaskLeaseService(){{ baseMapper = mapper; }};
+    }
+
+    @AfterEach
+    void tearDown() {
+        sqlSession.close();
+    }
+
+    @Test
+    void insertIgnoreOnlyOnce() {
+
+        assertEquals(1, mapper.insertIgnore(lease("K1", "n1"), LEASE_SECONDS));
+        assertEquals(0, mapper.insertIgnore(lease("K1", "n2"), LEASE_SECONDS));
+
+        List<SysTaskLease> live = service.listLive(TASK);
+        assertEquals(1, live.size());
+        assertEquals("n1", live.get(0).getNodeId());
+    }
+
+    @Test
+    void renewOnlyByHolderOrAfterExpire() throws Exception {
+
+        assertEquals(0, mapper.renew("K1", "n1", LEASE_SECONDS)); // 不存在
+        mapper.insertIgnore(lease("K1", "n1"), LEASE_SECONDS);
+
+        assertEquals(1, mapper.renew("K1", "n1", LEASE_SECONDS));
+        assertEquals(0, mapper.renew("K1", "n2", LEASE_SECONDS));
+
+        expire("n1");
+        assertTrue(service.listLive(TASK).isEmpty());
+
+        assertEquals(1, mapper.renew("K1", "n2", LEASE_SECONDS)); // 过期后其他节点接管
+        assertEquals(0, mapper.renew("K1", "n1", LEASE_SECONDS));
+        assertEquals("n2", service.listLive(TASK).get(0).getNodeId());
+    }
+
+    @Test
+    void releaseOnlyByHolder() {
+
+        mapper.insertIgnore(lease("K1", "n1"), LEASE_SECONDS);
+
+        assertEquals(0, mapper.release("K1", "n2"));
+        assertEquals(1, service.listLive(TASK).size());
+
+        assertEquals(1, mapper.release("K1", "n1"));
+        assertTrue(service.listLive(TASK).isEmpty());
+
+        // 释放后无需等待即可被其他节点获取
+        assertTrue(service.acquire(lease("K1", "n2"), LEASE_SECONDS));
+    }
+
+    @Test
+    void acquireIsExclusive() {
+
+        assertTrue(service.acquire(lease("K1", "n1"), LEASE_SECONDS));  // 首次： 插入
+        assertTrue(service.acquire(lease("K1", "n1"), LEASE_SECONDS));  // 续期
+        assertFalse(service.acquire(lease("K1", "n2"), LEASE_SECONDS)); // 其他节点持有中
+
+        assertTrue(service.acquireWorkerId(3, "n1", LEASE_SECONDS));
+        assertFalse(service.acquireWorkerId(3, "n2", LEASE_SECONDS));
+        service.releaseWorkerId(3, "n1");
+        assertTrue(service.acquireWorkerId(3, "n2", LEASE_SECONDS));
+    }
+
+    private static SysTaskLease lease(String leaseKey, String nodeId){
+        return new SysTaskLease().setLeaseKey(leaseKey).setTaskName(TASK).setLeaseType(SysTaskLease.LEASE_TYPE_LEADER).setNodeId(nodeId);
+    }
+
+    /** 将节点持有的租约置为已过期 **/
+    private void expire(String nodeId) throws Exception {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("update t_sys_task_lease set expire_time = timestampadd(second, -1, now(3)) where node_id = ?")) {
+            stmt.setString(1, nodeId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /** docs/sql/init.sql 中的建表语句 **/
+    private static String readDDL(String tableName) throws Exception {
+        String sql = Files.readString(Path.of("../docs/sql/init.sql"));
+        int start = sql.indexOf("CREATE TABLE `" + tableName + "`");
+        return sql.substring(start, sql.indexOf(";", start));
+    }
+
+}